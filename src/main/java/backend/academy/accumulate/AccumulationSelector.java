@@ -0,0 +1,199 @@
+package backend.academy.accumulate;
+
+import backend.academy.config.AccumulationMode;
+import com.sun.management.OperatingSystemMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Автоматический выбор стратегии накопления для режима {@link AccumulationMode#AUTO}.
+ * Решение принимается по разрешению, числу потоков, доступной куче ({@link Runtime#maxMemory()}),
+ * памяти вне кучи ({@link #offHeapMemory()}) и результатам пробного прогона: оценке покрытия холста
+ * и доле попаданий в самые горячие пиксели. Приоритет — самая быстрая стратегия, буферы которой
+ * помещаются в память: разреженная при малом покрытии, затем приватные буферы потоков, компактные
+ * приватные буферы, общий буфер в куче, общий буфер вне кучи и, наконец, накопление на диске.
+ * Пробный прогон однопоточный и конкуренцию не измеряет: доля попаданий в горячие пиксели — эвристика
+ * концентрации, по которой предполагается, что потоки будут одновременно обновлять одни и те же
+ * кэш-линии. Причина выбора записывается в лог.
+ */
+@Log4j2
+public final class AccumulationSelector {
+
+    /**
+     * Оценка нагрузки без пробного прогона: холст считается освещённым целиком, горячих пикселей нет.
+     */
+    public static final double FULL_COVERAGE = 1.0;
+
+    private static final long DENSE_BYTES = 32;
+    private static final long COMPACT_BYTES = 8;
+    private static final long SPARSE_BYTES = 56;
+    private static final long OUTPUT_BYTES = 16;
+    private static final double HEAP_SHARE = 0.75;
+    private static final double SPARSE_COVERAGE = 0.25;
+    private static final double HOT_SHARE = 0.01;
+    private static final long MIB = 1_048_576;
+    private static final int PERCENT = 100;
+    private static final String MAX_DIRECT_MEMORY = "-XX:MaxDirectMemorySize=";
+    private static final String SIZE_UNITS = "KMGT";
+    private static final int UNIT_BITS = 10;
+
+    private AccumulationSelector() {
+        // Предотвращение создания экземпляра утилитного класса
+    }
+
+    /**
+     * Выбирает стратегию накопления в куче или на диске и записывает причину в лог.
+     * Память вне кучи не учитывается.
+     *
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     * @param threads Количество потоков генерации.
+     * @param maxMemory Доступная куча в байтах.
+     * @param coverage Оценка доли освещённых пикселей от {@code 0} до {@code 1}.
+     * @param hotShare Доля попаданий в самые горячие пиксели пробного прогона.
+     * @return выбранная стратегия.
+     */
+    public static Choice select(int width, int height, int threads, long maxMemory, double coverage,
+        double hotShare) {
+        return select(Canvas.of(width, height), threads, maxMemory, 0, coverage, hotShare, false);
+    }
+
+    /**
+     * Выбирает стратегию накопления и записывает причину в лог.
+     * Для взвешенных попаданий билинейного распределения выбираются только режимы, которые их принимают
+     * ({@link Accumulators#supportsWeightedHits}): компактные буферы и буферы записи пропускаются.
+     * Плотные режимы откладывают симметрию: их буферы считаются по размеру с полями, и к ним прибавляются
+     * промежуточные буферы сборки холста. Разреженный, компактный и внекучевой режимы пишут копии
+     * на каждое попадание и считаются по размеру холста.
+     *
+     * @param canvas Размеры холста и буфера исходных точек.
+     * @param threads Количество потоков генерации.
+     * @param maxMemory Доступная куча в байтах.
+     * @param offHeapMemory Память вне кучи в байтах, доступная буферу {@link AccumulationMode#OFF_HEAP}.
+     * @param coverage Оценка доли освещённых пикселей от {@code 0} до {@code 1}.
+     * @param hotShare Доля попаданий в самые горячие пиксели пробного прогона.
+     * @param weightedHits {@code true}, если попадания распределяются билинейно.
+     * @return выбранная стратегия.
+     */
+    public static Choice select(Canvas canvas, int threads, long maxMemory, long offHeapMemory, double coverage,
+        double hotShare, boolean weightedHits) {
+        Choice choice = choose(canvas, Math.max(1, threads), maxMemory, offHeapMemory, coverage, hotShare,
+            weightedHits);
+        log.info("Режим накопления {}: {}", choice.mode(), choice.reason());
+        return choice;
+    }
+
+    /**
+     * Оценивает память вне кучи, доступную буферу {@link AccumulationMode#OFF_HEAP}: сегменты арены
+     * учитываются в пределе {@code -XX:MaxDirectMemorySize}, который по умолчанию равен наибольшей куче,
+     * и не могут занять больше свободной физической памяти.
+     *
+     * @return байты, которые можно выделить вне кучи.
+     */
+    public static long offHeapMemory() {
+        long limit = Runtime.getRuntime().maxMemory();
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith(MAX_DIRECT_MEMORY)) {
+                limit = parseSize(argument.substring(MAX_DIRECT_MEMORY.length()));
+            }
+        }
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof OperatingSystemMXBean system) {
+            limit = Math.min(limit, system.getFreeMemorySize());
+        }
+        return limit;
+    }
+
+    private static long parseSize(String value) {
+        int unit = SIZE_UNITS.indexOf(value.toUpperCase(Locale.ROOT).charAt(value.length() - 1));
+        if (unit < 0) {
+            return Long.parseLong(value);
+        }
+        return Long.parseLong(value.substring(0, value.length() - 1)) << (UNIT_BITS * (unit + 1));
+    }
+
+    private static Choice choose(Canvas size, int threads, long maxMemory, long offHeapMemory, double coverage,
+        double hotShare, boolean weightedHits) {
+        long pixels = (long) size.width() * size.height();
+        long sourcePixels = (long) size.sourceWidth() * size.sourceHeight();
+        long budget = (long) (maxMemory * HEAP_SHARE);
+        long output = pixels * OUTPUT_BYTES;
+        String canvas = size.width() + "x" + size.height() + ", потоков " + threads + ", куча " + mib(maxMemory);
+        long sparse = (long) Math.ceil(coverage * pixels) * SPARSE_BYTES * threads + output;
+        long perThread = sourcePixels * DENSE_BYTES * threads + size.resampleBytes() + output;
+        long compact = pixels * COMPACT_BYTES * (threads + 1) + output;
+        long shared = sourcePixels * DENSE_BYTES + size.resampleBytes() + output;
+        long offHeap = pixels * DENSE_BYTES;
+        boolean concentrated = threads > 1 && hotShare > HOT_SHARE
+            && accepts(AccumulationMode.WRITE_COMBINING, weightedHits);
+        Choice choice;
+        if (coverage < SPARSE_COVERAGE && sparse <= budget) {
+            choice = new Choice(AccumulationMode.SPARSE, canvas + "; покрытие около " + percent(coverage)
+                + ", разреженные буферы займут " + mib(sparse));
+        } else if (perThread <= budget) {
+            choice = new Choice(AccumulationMode.PER_THREAD, canvas + "; приватные буферы потоков займут "
+                + mib(perThread) + " и не требуют синхронизации");
+        } else if (compact <= budget && accepts(AccumulationMode.COMPACT, weightedHits)) {
+            choice = new Choice(AccumulationMode.COMPACT, canvas + "; плотные приватные буферы ("
+                + mib(perThread) + ") не помещаются, 16-битные займут около " + mib(compact));
+        } else if (shared <= budget) {
+            String onlyShared = canvas + "; помещается только общий буфер (" + mib(shared) + "), ";
+            choice = concentrated
+                ? new Choice(AccumulationMode.WRITE_COMBINING, onlyShared + "горячие пиксели получают "
+                    + percent(hotShare) + " попаданий — сортированный сброс буферов записи снижает конкуренцию")
+                : new Choice(AccumulationMode.ATOMIC, onlyShared
+                    + "попадания не сосредоточены в горячих пикселях — атомарные обновления");
+        } else if (offHeap <= offHeapMemory && output <= budget) {
+            choice = new Choice(AccumulationMode.OFF_HEAP, canvas + "; общий буфер (" + mib(shared)
+                + ") не помещается в кучу, но помещается вне её (доступно " + mib(offHeapMemory) + ")");
+        } else {
+            choice = new Choice(AccumulationMode.OUT_OF_CORE, canvas + "; даже общий буфер (" + mib(shared)
+                + ") не помещается в кучу — накопление по тайлам на диске");
+        }
+        return choice;
+    }
+
+    private static boolean accepts(AccumulationMode mode, boolean weightedHits) {
+        return !weightedHits || Accumulators.supportsWeightedHits(mode);
+    }
+
+    private static String mib(long bytes) {
+        return bytes / MIB + " МиБ";
+    }
+
+    private static String percent(double share) {
+        return Math.round(share * PERCENT) + "%";
+    }
+
+    /**
+     * Размеры холста для оценки памяти.
+     *
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     * @param sourceWidth Ширина буфера исходных точек отложенной симметрии.
+     * @param sourceHeight Высота буфера исходных точек отложенной симметрии.
+     * @param resampleBytes Память промежуточных буферов сборки холста в байтах.
+     */
+    public record Canvas(int width, int height, int sourceWidth, int sourceHeight, long resampleBytes) {
+
+        /**
+         * Создаёт размеры холста без полей и сборки.
+         *
+         * @param width Ширина холста в пикселях.
+         * @param height Высота холста в пикселях.
+         * @return размеры холста.
+         */
+        public static Canvas of(int width, int height) {
+            return new Canvas(width, height, width, height, 0);
+        }
+    }
+
+    /**
+     * Выбранная стратегия и причина выбора.
+     *
+     * @param mode Режим накопления.
+     * @param reason Причина выбора для лога.
+     */
+    public record Choice(AccumulationMode mode, String reason) {
+    }
+}
@@ -0,0 +1,34 @@
+package backend.academy.accumulate;
+
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+
+/**
+ * Стратегия накопления попаданий рабочими потоками генератора.
+ * Определяет, в какой буфер пишет каждый поток и как из них получается итоговый буфер для тонирования.
+ * Накопители, владеющие ресурсами вне кучи, освобождают их в {@link #close()}.
+ */
+public interface Accumulator extends AutoCloseable {
+
+    /**
+     * Возвращает буфер, в который должен писать вызывающий поток.
+     * Вызывается один раз на сэмпл, а не на каждое попадание.
+     *
+     * @return буфер для записи попаданий.
+     */
+    HitSink sink();
+
+    /**
+     * Возвращает итоговый буфер. Вызывается после завершения генерации.
+     *
+     * @return буфер со всеми накопленными попаданиями.
+     */
+    Histogram result();
+
+    /**
+     * Освобождает ресурсы накопителя. После закрытия итоговый буфер использовать нельзя.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,125 @@
+package backend.academy.accumulate;
+
+import backend.academy.config.AccumulationMode;
+import backend.academy.config.HistogramLayout;
+import backend.academy.models.AtomicHistogram;
+import backend.academy.models.BufferPool;
+import backend.academy.models.FractalImage;
+import backend.academy.models.MortonLayout;
+import backend.academy.models.OffHeapHistogram;
+import backend.academy.models.PixelLayout;
+import backend.academy.models.RowMajorLayout;
+
+/**
+ * Фабрика стратегий накопления по режиму из конфигурации.
+ */
+public final class Accumulators {
+
+    private Accumulators() {
+        // Предотвращение создания экземпляра утилитного класса
+    }
+
+    /**
+     * Создаёт накопитель для заданного режима с построчной раскладкой буферов.
+     *
+     * @param mode Режим накопления.
+     * @param width Ширина буфера в пикселях.
+     * @param height Высота буфера в пикселях.
+     * @return накопитель попаданий.
+     */
+    public static Accumulator create(AccumulationMode mode, int width, int height) {
+        return create(mode, width, height, HistogramLayout.ROW_MAJOR);
+    }
+
+    /**
+     * Создаёт накопитель для заданного режима.
+     * Раскладка применяется к плоским буферам в куче; буфер объектов-пикселей и буфер вне кучи
+     * всегда построчные, разреженный буфер хранит только освещённые пиксели, а накопление вне памяти
+     * хранит попадания в файлах тайлов. Режим {@link AccumulationMode#AUTO} без пробного прогона
+     * выбирается по разрешению, числу ядер, куче и памяти вне кучи в предположении, что освещён весь холст.
+     * Число потоков генерации считается равным числу ядер.
+     *
+     * @param mode Режим накопления.
+     * @param width Ширина буфера в пикселях.
+     * @param height Высота буфера в пикселях.
+     * @param histogramLayout Раскладка пикселей в плоских буферах.
+     * @return накопитель попаданий.
+     */
+    public static Accumulator create(AccumulationMode mode, int width, int height,
+        HistogramLayout histogramLayout) {
+        return create(mode, width, height, histogramLayout, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Создаёт накопитель для заданного режима с известным числом потоков генерации.
+     * Потоки-владельцы тайлов получают ядра, оставшиеся от генерации, а автоматический выбор режима
+     * учитывает настоящее число потоков вместо числа ядер.
+     *
+     * @param mode Режим накопления.
+     * @param width Ширина буфера в пикселях.
+     * @param height Высота буфера в пикселях.
+     * @param histogramLayout Раскладка пикселей в плоских буферах.
+     * @param threads Количество потоков генерации, пишущих в накопитель.
+     * @return накопитель попаданий.
+     */
+    public static Accumulator create(AccumulationMode mode, int width, int height,
+        HistogramLayout histogramLayout, int threads) {
+        PixelLayout layout = createLayout(histogramLayout, width, height);
+        return switch (mode) {
+            case LOCKED -> new SharedAccumulator(new FractalImage(width, height));
+            case PER_THREAD -> new PerThreadAccumulator(layout);
+            case ATOMIC -> pooledShared(new AtomicHistogram(layout, true, BufferPool.shared()));
+            case APPROXIMATE -> pooledShared(new AtomicHistogram(layout, false, BufferPool.shared()));
+            case STRIPED -> new StripedAccumulator(width, height);
+            case WRITE_COMBINING -> new WriteCombiningAccumulator(layout);
+            case TILE_OWNERSHIP -> new TileOwnershipAccumulator(layout,
+                TileOwnershipAccumulator.ownerCount(threads, Runtime.getRuntime().availableProcessors()));
+            case OFF_HEAP -> offHeap(width, height);
+            case OUT_OF_CORE -> new TileSpillAccumulator(width, height, TileSpillAccumulator.DEFAULT_TILE_SIZE);
+            case SPARSE -> new SparseAccumulator(width, height);
+            case COMPACT -> new CompactAccumulator(width, height);
+            case AUTO -> create(AccumulationSelector.select(AccumulationSelector.Canvas.of(width, height), threads,
+                Runtime.getRuntime().maxMemory(), AccumulationSelector.offHeapMemory(),
+                AccumulationSelector.FULL_COVERAGE, 0, false).mode(), width, height, histogramLayout, threads);
+        };
+    }
+
+    /**
+     * Проверяет, что накопитель режима принимает взвешенные попадания билинейного распределения, не создавая
+     * его: нужно автоматическому выбору режима. Их поддерживают буферы с плоскими 64-битными счётчиками
+     * и разреженный буфер; ответ совпадает с тем, реализует ли созданный накопитель {@link WeightedAccumulator}.
+     *
+     * @param mode Режим накопления.
+     * @return {@code true}, если накопитель режима — {@link WeightedAccumulator}.
+     */
+    public static boolean supportsWeightedHits(AccumulationMode mode) {
+        return switch (mode) {
+            case PER_THREAD, ATOMIC, APPROXIMATE, OFF_HEAP, SPARSE -> true;
+            default -> false;
+        };
+    }
+
+    private static Accumulator pooledShared(AtomicHistogram histogram) {
+        return new WeightedSharedAccumulator(histogram, histogram::release);
+    }
+
+    private static Accumulator offHeap(int width, int height) {
+        OffHeapHistogram histogram = new OffHeapHistogram(width, height);
+        return new WeightedSharedAccumulator(histogram, histogram::close);
+    }
+
+    /**
+     * Создаёт раскладку пикселей для холста заданного размера.
+     *
+     * @param histogramLayout Вид раскладки.
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     * @return раскладка пикселей.
+     */
+    public static PixelLayout createLayout(HistogramLayout histogramLayout, int width, int height) {
+        return switch (histogramLayout) {
+            case ROW_MAJOR -> new RowMajorLayout(width, height);
+            case MORTON -> new MortonLayout(width, height);
+        };
+    }
+}
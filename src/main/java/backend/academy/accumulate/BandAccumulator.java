@@ -0,0 +1,44 @@
+package backend.academy.accumulate;
+
+import backend.academy.models.AtomicHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+
+/**
+ * Накопление одной горизонтальной полосы холста.
+ * Попадания вне строк полосы отбрасываются, остальные складываются в точный атомарный буфер
+ * размером с полосу, поэтому занимаемая память не зависит от количества потоков.
+ * {@link #result()} возвращает буфер в координатах полосы: строка {@code 0} — верхняя строка полосы.
+ */
+public class BandAccumulator implements Accumulator {
+
+    private final AtomicHistogram histogram;
+    private final HitSink sink;
+
+    /**
+     * Создаёт накопитель полосы.
+     *
+     * @param width Ширина холста в пикселях.
+     * @param top Номер первой строки полосы на холсте.
+     * @param rows Количество строк в полосе.
+     */
+    public BandAccumulator(int width, int top, int rows) {
+        this.histogram = new AtomicHistogram(width, rows, true);
+        int bottom = top + rows;
+        this.sink = (x, y, color) -> {
+            if (y >= top && y < bottom) {
+                histogram.add(x, y - top, color);
+            }
+        };
+    }
+
+    @Override
+    public HitSink sink() {
+        return sink;
+    }
+
+    @Override
+    public Histogram result() {
+        return histogram;
+    }
+}
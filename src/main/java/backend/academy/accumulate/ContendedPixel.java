@@ -0,0 +1,11 @@
+package backend.academy.accumulate;
+
+/**
+ * Пиксель, на который приходится непропорционально большая доля попаданий.
+ *
+ * @param x Горизонтальная координата пикселя.
+ * @param y Вертикальная координата пикселя.
+ * @param hits Количество попаданий, прошедших мимо монитора пикселя через полосы потоков.
+ */
+public record ContendedPixel(int x, int y, long hits) {
+}
@@ -0,0 +1,98 @@
+package backend.academy.accumulate;
+
+import backend.academy.models.BufferPool;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.PixelLayout;
+import backend.academy.models.WeightedHitSink;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Накопление в приватные буферы рабочих потоков.
+ * Каждый поток пишет в свою копию {@link DensityHistogram} без синхронизации, а после генерации копии
+ * сливаются попарным деревом. Массив разбит на блоки, и каждый блок сливается параллельно со всеми
+ * остальными, поэтому все ядра заняты на каждом уровне дерева. Массивы буферов берутся из пула
+ * и возвращаются в него в {@link #close()}, поэтому серия рендеров одного размера не выделяет их заново.
+ */
+public class PerThreadAccumulator implements WeightedAccumulator {
+
+    private static final int MERGE_BLOCK = 16_384;
+
+    private final PixelLayout layout;
+    private final BufferPool pool;
+    private final List<DensityHistogram> replicas = new ArrayList<>();
+    private final ThreadLocal<DensityHistogram> local = ThreadLocal.withInitial(this::newReplica);
+    private DensityHistogram merged;
+
+    /**
+     * Создаёт накопитель для буферов с заданной раскладкой на массивах общего пула.
+     *
+     * @param layout Раскладка пикселей буферов.
+     */
+    public PerThreadAccumulator(PixelLayout layout) {
+        this(layout, BufferPool.shared());
+    }
+
+    /**
+     * Создаёт накопитель для буферов с заданной раскладкой.
+     *
+     * @param layout Раскладка пикселей буферов.
+     * @param pool Пул массивов буферов.
+     */
+    public PerThreadAccumulator(PixelLayout layout, BufferPool pool) {
+        this.layout = layout;
+        this.pool = pool;
+    }
+
+    @Override
+    public WeightedHitSink sink() {
+        return local.get();
+    }
+
+    @Override
+    public synchronized Histogram result() {
+        if (merged == null) {
+            merged = replicas.isEmpty() ? new DensityHistogram(layout, pool) : merge(replicas);
+        }
+        return merged;
+    }
+
+    /**
+     * Возвращает массивы всех буферов в пул.
+     */
+    @Override
+    public synchronized void close() {
+        replicas.forEach(DensityHistogram::release);
+        if (merged != null) {
+            merged.release();
+        }
+    }
+
+    private synchronized DensityHistogram newReplica() {
+        DensityHistogram replica = new DensityHistogram(layout, pool);
+        replicas.add(replica);
+        return replica;
+    }
+
+    /**
+     * Сливает буферы попарным деревом в первый из них.
+     * На уровне с шагом {@code stride} буфер {@code i + stride} прибавляется к буферу {@code i}.
+     */
+    private static DensityHistogram merge(List<DensityHistogram> histograms) {
+        DensityHistogram[] parts = histograms.toArray(new DensityHistogram[0]);
+        int length = parts[0].length();
+        int blocks = (length + MERGE_BLOCK - 1) / MERGE_BLOCK;
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int from = block * MERGE_BLOCK;
+            int to = Math.min(length, from + MERGE_BLOCK);
+            for (int stride = 1; stride < parts.length; stride *= 2) {
+                for (int i = 0; i + stride < parts.length; i += 2 * stride) {
+                    parts[i].addRange(parts[i + stride], from, to);
+                }
+            }
+        });
+        return parts[0];
+    }
+}
@@ -0,0 +1,92 @@
+package backend.academy.accumulate;
+
+import backend.academy.domain.PixelColor;
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+import backend.academy.models.SparseHistogram;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Накопление короткого пробного прогона для {@link AccumulationSelector}.
+ * Покрытие оценивается по сетке не больше 256x256 ячеек: за короткий прогон ячейки насыщаются,
+ * а отдельные пиксели — нет. Вместо конкуренции, которую один поток измерить не может, считается
+ * доля попаданий в самые горячие пиксели: чем она выше, тем чаще потоки полного прогона
+ * обновляли бы одни и те же пиксели. Рассчитан на один поток.
+ */
+public class ProbeAccumulator implements Accumulator {
+
+    private static final int MAX_CELLS = 256;
+    private static final int HOT_PIXELS = 16;
+
+    private final int width;
+    private final int height;
+    private final int cellsX;
+    private final int cellsY;
+    private final BitSet cells;
+    private final SparseHistogram pixels;
+    private final HitSink sink;
+    private long hits;
+
+    /**
+     * Создаёт пробный накопитель.
+     *
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     */
+    public ProbeAccumulator(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.cellsX = Math.min(width, MAX_CELLS);
+        this.cellsY = Math.min(height, MAX_CELLS);
+        this.cells = new BitSet(cellsX * cellsY);
+        this.pixels = new SparseHistogram(width, height);
+        this.sink = this::add;
+    }
+
+    @Override
+    public HitSink sink() {
+        return sink;
+    }
+
+    @Override
+    public Histogram result() {
+        return pixels;
+    }
+
+    /**
+     * Возвращает оценку доли освещённых пикселей холста.
+     *
+     * @return доля освещённых ячеек сетки.
+     */
+    public double coverage() {
+        return (double) cells.cardinality() / (cellsX * cellsY);
+    }
+
+    /**
+     * Возвращает долю попаданий в самые горячие пиксели.
+     *
+     * @return доля попаданий в 16 пикселей с наибольшим числом попаданий.
+     */
+    public double hotShare() {
+        if (hits == 0) {
+            return 0;
+        }
+        long[] counts = new long[pixels.size()];
+        for (int slot = 0; slot < counts.length; slot++) {
+            counts[slot] = pixels.value(slot, Histogram.HITS);
+        }
+        Arrays.sort(counts);
+        long hot = 0;
+        for (int i = Math.max(0, counts.length - HOT_PIXELS); i < counts.length; i++) {
+            hot += counts[i];
+        }
+        return (double) hot / hits;
+    }
+
+    private void add(int x, int y, PixelColor color) {
+        cells.set((int) ((long) y * cellsY / height) * cellsX + (int) ((long) x * cellsX / width));
+        pixels.add(x, y, color);
+        hits++;
+    }
+}
@@ -0,0 +1,49 @@
+package backend.academy.accumulate;
+
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+
+/**
+ * Накопление в один общий буфер, в который пишут все потоки.
+ * Потокобезопасность обеспечивает сам буфер.
+ */
+public class SharedAccumulator implements Accumulator {
+
+    private final Histogram histogram;
+    private final Runnable release;
+
+    /**
+     * Создаёт накопитель поверх общего буфера в куче.
+     *
+     * @param histogram Потокобезопасный буфер накопления.
+     */
+    public SharedAccumulator(Histogram histogram) {
+        this(histogram, () -> { });
+    }
+
+    /**
+     * Создаёт накопитель поверх общего буфера, владеющего внешними ресурсами.
+     *
+     * @param histogram Потокобезопасный буфер накопления.
+     * @param release Действие, освобождающее ресурсы буфера.
+     */
+    public SharedAccumulator(Histogram histogram, Runnable release) {
+        this.histogram = histogram;
+        this.release = release;
+    }
+
+    @Override
+    public HitSink sink() {
+        return histogram;
+    }
+
+    @Override
+    public Histogram result() {
+        return histogram;
+    }
+
+    @Override
+    public void close() {
+        release.run();
+    }
+}
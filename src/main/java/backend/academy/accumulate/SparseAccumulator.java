@@ -0,0 +1,60 @@
+package backend.academy.accumulate;
+
+import backend.academy.models.Histogram;
+import backend.academy.models.SparseHistogram;
+import backend.academy.models.WeightedHitSink;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Разреженное накопление с шардами по потокам.
+ * Каждый поток пишет в свой {@link SparseHistogram} без синхронизации, а после генерации шарды
+ * сливаются в самый большой из них. Память пропорциональна числу освещённых пикселей (с повторами
+ * пикселей, освещённых несколькими потоками), поэтому режим выгоден на больших холстах с малым покрытием.
+ */
+public class SparseAccumulator implements WeightedAccumulator {
+
+    private final int width;
+    private final int height;
+    private final List<SparseHistogram> shards = new ArrayList<>();
+    private final ThreadLocal<SparseHistogram> local = ThreadLocal.withInitial(this::newShard);
+    private SparseHistogram merged;
+
+    /**
+     * Создаёт накопитель для холста заданного размера.
+     *
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     */
+    public SparseAccumulator(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public WeightedHitSink sink() {
+        return local.get();
+    }
+
+    @Override
+    public synchronized Histogram result() {
+        if (merged == null) {
+            merged = shards.stream().max(Comparator.comparingInt(SparseHistogram::size))
+                .orElseGet(() -> new SparseHistogram(width, height));
+            for (SparseHistogram shard : shards) {
+                if (shard != merged) {
+                    merged.addAll(shard);
+                }
+            }
+            shards.clear();
+        }
+        return merged;
+    }
+
+    private synchronized SparseHistogram newShard() {
+        SparseHistogram shard = new SparseHistogram(width, height);
+        shards.add(shard);
+        return shard;
+    }
+}
@@ -0,0 +1,70 @@
+package backend.academy.accumulate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Ограниченный кольцевой буфер примитивных значений для одного производителя и одного потребителя.
+ * Позиции публикуются release-записью и читаются acquire-чтением, без блокировок и CAS.
+ * Каждая сторона кэширует позицию другой стороны и перечитывает её только при кажущемся
+ * переполнении или опустошении, чтобы не гонять кэш-линию между ядрами на каждом значении.
+ */
+final class SpscRing {
+
+    private final long[] buffer;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private long producerTail;
+    private long cachedHead;
+    private long consumerHead;
+
+    /**
+     * Создаёт буфер заданной ёмкости.
+     *
+     * @param capacity Ёмкость буфера, степень двойки.
+     */
+    SpscRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ёмкость должна быть степенью двойки: " + capacity);
+        }
+        this.buffer = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Добавляет значение. Вызывается только потоком-производителем.
+     *
+     * @param value Значение.
+     * @return {@code false}, если буфер заполнен.
+     */
+    boolean offer(long value) {
+        if (producerTail - cachedHead == buffer.length) {
+            cachedHead = head.getAcquire();
+            if (producerTail - cachedHead == buffer.length) {
+                return false;
+            }
+        }
+        buffer[(int) producerTail & mask] = value;
+        producerTail++;
+        tail.setRelease(producerTail);
+        return true;
+    }
+
+    /**
+     * Передаёт все опубликованные значения потребителю. Вызывается только потоком-потребителем.
+     *
+     * @param consumer Обработчик значений.
+     * @return количество переданных значений.
+     */
+    int drain(LongConsumer consumer) {
+        long available = tail.getAcquire();
+        for (long position = consumerHead; position < available; position++) {
+            consumer.accept(buffer[(int) position & mask]);
+        }
+        int drained = (int) (available - consumerHead);
+        consumerHead = available;
+        head.setRelease(available);
+        return drained;
+    }
+}
@@ -0,0 +1,173 @@
+package backend.academy.accumulate;
+
+import backend.academy.domain.PixelColor;
+import backend.academy.models.FractalImage;
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Накопление в общий буфер пикселей с полосами для горячих пикселей.
+ * Аттрактор попадает в немногие пиксели (ядра, неподвижные точки аффинных преобразований) намного
+ * чаще остальных, и мониторы этих пикселей сериализуют весь пул. Каждый поток первые
+ * {@link #WARM_UP_HITS} попаданий пишет обычным путём и считает их по пикселям; затем самые частые
+ * пиксели публикуются как горячие. Попадания в горячие пиксели копятся в приватных полосах потоков
+ * (по аналогии с {@link java.util.concurrent.atomic.LongAdder}) и прибавляются к буферу в конце,
+ * холодные пиксели по-прежнему идут через монитор.
+ */
+public class StripedAccumulator implements Accumulator {
+
+    private static final int WARM_UP_HITS = 65_536;
+    private static final int MIN_HOT_HITS = 8;
+    private static final int MAX_HOT_PIXELS = 4096;
+    private static final int NOT_HOT = -1;
+
+    private final FractalImage image;
+    private final List<StripedSink> sinks = new ArrayList<>();
+    private final ThreadLocal<StripedSink> local = ThreadLocal.withInitial(this::newSink);
+    private final Object hotPixelsLock = new Object();
+    private volatile Int2IntOpenHashMap hotSlots = emptySlots();
+    private long[] foldedHits = new long[0];
+    private boolean folded;
+
+    /**
+     * Создаёт накопитель поверх нового буфера пикселей.
+     *
+     * @param width Ширина буфера в пикселях.
+     * @param height Высота буфера в пикселях.
+     */
+    public StripedAccumulator(int width, int height) {
+        this.image = new FractalImage(width, height);
+    }
+
+    @Override
+    public HitSink sink() {
+        return local.get();
+    }
+
+    @Override
+    public synchronized Histogram result() {
+        if (!folded) {
+            Int2IntOpenHashMap slots = hotSlots;
+            foldedHits = new long[slots.size()];
+            for (Int2IntMap.Entry entry : slots.int2IntEntrySet()) {
+                int slot = entry.getIntValue();
+                for (StripedSink sink : sinks) {
+                    foldedHits[slot] += sink.foldInto(entry.getIntKey(), slot);
+                }
+            }
+            folded = true;
+        }
+        return image;
+    }
+
+    /**
+     * Возвращает горячие пиксели, получившие больше всего попаданий через полосы.
+     * Вызывается после {@link #result()}.
+     *
+     * @param limit Максимальное количество пикселей в отчёте.
+     * @return пиксели по убыванию количества попаданий.
+     */
+    public synchronized List<ContendedPixel> topContendedPixels(int limit) {
+        List<ContendedPixel> pixels = new ArrayList<>();
+        for (Int2IntMap.Entry entry : hotSlots.int2IntEntrySet()) {
+            int index = entry.getIntKey();
+            long hits = folded ? foldedHits[entry.getIntValue()] : 0;
+            pixels.add(new ContendedPixel(index % image.width(), index / image.width(), hits));
+        }
+        pixels.sort(Comparator.comparingLong(ContendedPixel::hits).reversed());
+        return pixels.subList(0, Math.min(limit, pixels.size()));
+    }
+
+    private synchronized StripedSink newSink() {
+        StripedSink sink = new StripedSink();
+        sinks.add(sink);
+        return sink;
+    }
+
+    /**
+     * Публикует горячие пиксели, найденные потоком за окно прогрева.
+     * Опубликованная таблица не изменяется, поэтому читающие её потоки обходятся без блокировок.
+     */
+    private void publishHotPixels(Int2IntOpenHashMap warmUpCounts) {
+        synchronized (hotPixelsLock) {
+            Int2IntOpenHashMap next = new Int2IntOpenHashMap(hotSlots);
+            next.defaultReturnValue(NOT_HOT);
+            warmUpCounts.int2IntEntrySet().stream()
+                .filter(entry -> entry.getIntValue() >= MIN_HOT_HITS)
+                .sorted(Comparator.comparingInt(Int2IntMap.Entry::getIntValue).reversed())
+                .forEach(entry -> {
+                    if (next.size() < MAX_HOT_PIXELS && !next.containsKey(entry.getIntKey())) {
+                        next.put(entry.getIntKey(), next.size());
+                    }
+                });
+            hotSlots = next;
+        }
+    }
+
+    private static Int2IntOpenHashMap emptySlots() {
+        Int2IntOpenHashMap slots = new Int2IntOpenHashMap();
+        slots.defaultReturnValue(NOT_HOT);
+        return slots;
+    }
+
+    /**
+     * Приёмник одного потока: счётчики прогрева и полоса сумм для горячих пикселей.
+     */
+    private final class StripedSink implements HitSink {
+
+        private Int2IntOpenHashMap warmUpCounts = new Int2IntOpenHashMap();
+        private int warmUpLeft = WARM_UP_HITS;
+        private long[] stripe = new long[0];
+
+        @Override
+        public void add(int x, int y, PixelColor color) {
+            int index = y * image.width() + x;
+            if (warmUpLeft > 0) {
+                warmUp(index);
+            } else {
+                int slot = hotSlots.get(index);
+                if (slot != NOT_HOT) {
+                    addToStripe(slot, color);
+                    return;
+                }
+            }
+            image.add(x, y, color);
+        }
+
+        private void warmUp(int index) {
+            warmUpCounts.addTo(index, 1);
+            if (--warmUpLeft == 0) {
+                publishHotPixels(warmUpCounts);
+                warmUpCounts = null;
+            }
+        }
+
+        private void addToStripe(int slot, PixelColor color) {
+            int base = slot * Histogram.CHANNELS;
+            if (base >= stripe.length) {
+                stripe = Arrays.copyOf(stripe, MAX_HOT_PIXELS * Histogram.CHANNELS);
+            }
+            stripe[base + Histogram.HITS]++;
+            stripe[base + Histogram.RED] += color.red();
+            stripe[base + Histogram.GREEN] += color.green();
+            stripe[base + Histogram.BLUE] += color.blue();
+        }
+
+        private long foldInto(int index, int slot) {
+            int base = slot * Histogram.CHANNELS;
+            if (base >= stripe.length) {
+                return 0;
+            }
+            long hits = stripe[base + Histogram.HITS];
+            image.addPoints(index, hits, stripe[base + Histogram.RED], stripe[base + Histogram.GREEN],
+                stripe[base + Histogram.BLUE]);
+            return hits;
+        }
+    }
+}
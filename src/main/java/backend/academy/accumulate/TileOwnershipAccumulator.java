@@ -0,0 +1,210 @@
+package backend.academy.accumulate;
+
+import backend.academy.domain.PixelColor;
+import backend.academy.models.BufferPool;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+import backend.academy.models.PixelLayout;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Накопление с владением тайлами.
+ * Холст разбит на квадратные тайлы, каждый из которых принадлежит одному потоку-владельцу.
+ * Потоки генератора не пишут в буфер сами, а направляют попадания владельцу тайла через
+ * собственные кольцевые буферы {@link SpscRing} — по одному на пару (генератор, владелец).
+ * Каждый пиксель изменяет только его владелец, поэтому обновления обходятся без атомарных
+ * операций и мониторов, а рабочий набор владельца ограничен его тайлами.
+ * Владельцы ждут попаданий активно, поэтому вместе с генераторами не должны занимать больше ядер,
+ * чем есть ({@link #ownerCount(int, int)}). Буфер берётся из {@link BufferPool#shared()} и
+ * возвращается в пул в {@link #close()}, который также останавливает владельцев.
+ */
+public class TileOwnershipAccumulator implements Accumulator {
+
+    private static final int TILE_SIZE = 128;
+    private static final int RING_CAPACITY = 8192;
+    private static final int COLOR_BITS = 24;
+    private static final int CHANNEL_BITS = 8;
+    private static final int CHANNEL_MASK = 0xFF;
+    private static final int IDLE_SPINS = 64;
+    private static final long IDLE_PARK_NANOS = 50_000;
+    private static final String STOPPED = "Накопление уже завершено";
+
+    private final DensityHistogram histogram;
+    private final int tilesX;
+    private final Owner[] owners;
+    private final ThreadLocal<RoutingSink> local = ThreadLocal.withInitial(this::newSink);
+    private volatile boolean closed;
+    private boolean started;
+
+    /**
+     * Создаёт накопитель.
+     *
+     * @param layout Раскладка пикселей общего буфера.
+     * @param ownerCount Количество потоков-владельцев тайлов.
+     */
+    public TileOwnershipAccumulator(PixelLayout layout, int ownerCount) {
+        this.histogram = new DensityHistogram(layout, BufferPool.shared());
+        this.tilesX = (layout.width() + TILE_SIZE - 1) / TILE_SIZE;
+        this.owners = new Owner[Math.max(1, ownerCount)];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = new Owner(i);
+        }
+    }
+
+    /**
+     * Возвращает количество владельцев, которое вместе с потоками генерации умещается в ядра.
+     * Владелец есть всегда, даже если генераторы заняли все ядра.
+     *
+     * @param producers Количество потоков генерации.
+     * @param cores Количество ядер.
+     * @return количество потоков-владельцев тайлов.
+     */
+    public static int ownerCount(int producers, int cores) {
+        return Math.max(1, cores - Math.max(1, producers));
+    }
+
+    @Override
+    public HitSink sink() {
+        return local.get();
+    }
+
+    /**
+     * Останавливает владельцев, дождавшись разбора всех направленных им попаданий.
+     * Вызывается после завершения генерации.
+     */
+    @Override
+    public synchronized Histogram result() {
+        stopOwners();
+        return histogram;
+    }
+
+    /**
+     * Останавливает владельцев, если они ещё работают, и возвращает буфер в пул.
+     */
+    @Override
+    public synchronized void close() {
+        stopOwners();
+        histogram.release();
+    }
+
+    private void stopOwners() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (started) {
+            for (Owner owner : owners) {
+                owner.thread.interrupt();
+                joinUninterruptibly(owner.thread);
+            }
+        }
+    }
+
+    private synchronized RoutingSink newSink() {
+        if (closed) {
+            throw new IllegalStateException(STOPPED);
+        }
+        if (!started) {
+            for (Owner owner : owners) {
+                owner.thread.start();
+            }
+            started = true;
+        }
+        SpscRing[] rings = new SpscRing[owners.length];
+        for (int i = 0; i < owners.length; i++) {
+            rings[i] = new SpscRing(RING_CAPACITY);
+            owners[i].inbound.add(rings[i]);
+        }
+        return new RoutingSink(rings);
+    }
+
+    private int ownerOf(int x, int y) {
+        return ((y / TILE_SIZE) * tilesX + x / TILE_SIZE) % owners.length;
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Приёмник потока генератора: упаковывает попадание и кладёт его в кольцо владельца тайла.
+     * Если кольцо заполнено, поток уступает процессор, пока владелец его разберёт;
+     * после остановки владельцев запись отклоняется, чтобы генератор не ждал вечно.
+     */
+    private final class RoutingSink implements HitSink {
+
+        private final SpscRing[] rings;
+
+        RoutingSink(SpscRing[] rings) {
+            this.rings = rings;
+        }
+
+        @Override
+        public void add(int x, int y, PixelColor color) {
+            long index = histogram.indexOf(x, y);
+            int rgb = (color.red() << (2 * CHANNEL_BITS)) | (color.green() << CHANNEL_BITS) | color.blue();
+            SpscRing ring = rings[ownerOf(x, y)];
+            long hit = (index << COLOR_BITS) | rgb;
+            while (!ring.offer(hit)) {
+                if (closed) {
+                    throw new IllegalStateException(STOPPED);
+                }
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Поток-владелец: по кругу разбирает входящие кольца и пишет попадания в свои тайлы.
+     */
+    private final class Owner implements Runnable {
+
+        private final List<SpscRing> inbound = new CopyOnWriteArrayList<>();
+        private final Thread thread;
+
+        Owner(int number) {
+            this.thread = new Thread(this, "tile-owner-" + number);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                boolean stopping = closed;
+                int drained = 0;
+                for (SpscRing ring : inbound) {
+                    drained += ring.drain(this::apply);
+                }
+                if (drained > 0) {
+                    idle = 0;
+                } else if (stopping) {
+                    return;
+                } else if (++idle < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        private void apply(long hit) {
+            int rgb = (int) hit;
+            histogram.add((int) (hit >>> COLOR_BITS), (rgb >>> (2 * CHANNEL_BITS)) & CHANNEL_MASK,
+                (rgb >>> CHANNEL_BITS) & CHANNEL_MASK, rgb & CHANNEL_MASK);
+        }
+    }
+}
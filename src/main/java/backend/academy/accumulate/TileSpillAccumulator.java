@@ -0,0 +1,331 @@
+package backend.academy.accumulate;
+
+import backend.academy.domain.PixelColor;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Накопление вне памяти с раскладкой попаданий по тайлам.
+ * Холст разбит на квадратные тайлы; поток генератора складывает попадания в буферы своих тайлов,
+ * а заполненный буфер записывается в общий временный файл. Место в файле резервируется атомарным
+ * сдвигом его конца, запись идёт по позиции без блокировок, а тайл запоминает свои отрезки файла
+ * (экстенты). Так весь холст держит открытым один дескриптор при любом числе тайлов, и запись буфера
+ * не открывает и не закрывает файлов. Буферы приёмника потока делят между тайлами около
+ * {@value #SINK_BUFFER_BYTES} байт, но вмещают от {@value #MIN_BUFFER_HITS} до {@value #MAX_BUFFER_HITS}
+ * попаданий: чем меньше тайлов, тем длиннее экстенты и последовательнее чтение тайла.
+ * Попадание хранится одним упакованным {@code long}: номер пикселя внутри тайла и цвет RGB.
+ * После генерации тайлы по одному загружаются в плотный буфер ({@link #tile(int, int)}),
+ * поэтому в памяти одновременно находится не больше нескольких тайлов — размер холста
+ * ограничен диском, а не кучей. Файл удаляется в {@link #close()}.
+ */
+public class TileSpillAccumulator implements Accumulator {
+
+    /**
+     * Сторона тайла по умолчанию в пикселях: плотный буфер такого тайла занимает 32 МиБ.
+     */
+    public static final int DEFAULT_TILE_SIZE = 1024;
+
+    private static final int MAX_TILE_SIZE = 4096;
+    private static final int SINK_BUFFER_BYTES = 16_777_216;
+    private static final int MIN_BUFFER_HITS = 512;
+    private static final int MAX_BUFFER_HITS = 8192;
+    private static final int EXTENT_COUNT_BITS = 16;
+    private static final long EXTENT_COUNT_MASK = (1L << EXTENT_COUNT_BITS) - 1;
+    private static final int INITIAL_EXTENTS = 4;
+    private static final int COLOR_BITS = 24;
+    private static final int CHANNEL_BITS = 8;
+    private static final int CHANNEL_MASK = 0xFF;
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int tilesX;
+    private final int tilesY;
+    private final int bufferHits;
+    private final Path file;
+    private final FileChannel channel;
+    private final AtomicLong spilledHits = new AtomicLong();
+    private final Extents[] extents;
+    private final List<SpillSink> sinks = new ArrayList<>();
+    private final ThreadLocal<SpillSink> local = ThreadLocal.withInitial(this::newSink);
+    private long totalHits;
+    private boolean flushed;
+
+    /**
+     * Создаёт накопитель с файлами тайлов в новом временном каталоге.
+     *
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     * @param tileSize Сторона тайла в пикселях, не больше 4096.
+     */
+    public TileSpillAccumulator(int width, int height, int tileSize) {
+        if (tileSize <= 0 || tileSize > MAX_TILE_SIZE) {
+            throw new IllegalArgumentException("Сторона тайла должна быть в (0, " + MAX_TILE_SIZE + "]: " + tileSize);
+        }
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.tilesX = (width + tileSize - 1) / tileSize;
+        this.tilesY = (height + tileSize - 1) / tileSize;
+        this.extents = new Extents[Math.multiplyExact(tilesX, tilesY)];
+        for (int i = 0; i < extents.length; i++) {
+            extents[i] = new Extents();
+        }
+        this.bufferHits = Math.clamp(SINK_BUFFER_BYTES / Long.BYTES / extents.length, MIN_BUFFER_HITS,
+            MAX_BUFFER_HITS);
+        try {
+            this.file = Files.createTempFile("flame-tiles", ".bin");
+            this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int tileSize() {
+        return tileSize;
+    }
+
+    public int tilesX() {
+        return tilesX;
+    }
+
+    public int tilesY() {
+        return tilesY;
+    }
+
+    @Override
+    public HitSink sink() {
+        return local.get();
+    }
+
+    /**
+     * Возвращает общее количество попаданий на холст.
+     * Вызывается после завершения генерации.
+     *
+     * @return количество попаданий.
+     */
+    public synchronized long totalHits() {
+        flush();
+        return totalHits;
+    }
+
+    /**
+     * Загружает тайл из его экстентов общего файла в новый плотный буфер.
+     * Экстенты читаются по позиции в порядке смещения, поэтому тайлы можно загружать параллельно.
+     * Вызывается после завершения генерации.
+     *
+     * @param tileX Номер тайла по горизонтали.
+     * @param tileY Номер тайла по вертикали.
+     * @return буфер размером с тайл; крайние тайлы могут быть меньше {@link #tileSize()}.
+     */
+    public DensityHistogram tile(int tileX, int tileY) {
+        synchronized (this) {
+            flush();
+        }
+        DensityHistogram histogram = new DensityHistogram(tileWidth(tileX), tileHeight(tileY));
+        long[] tileExtents = extents[tileY * tilesX + tileX].sorted();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferHits * Long.BYTES);
+        try {
+            for (long extent : tileExtents) {
+                int count = (int) (extent & EXTENT_COUNT_MASK);
+                long position = (extent >>> EXTENT_COUNT_BITS) * Long.BYTES;
+                buffer.clear().limit(count * Long.BYTES);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException("Файл попаданий короче экстента тайла");
+                    }
+                }
+                buffer.flip();
+                for (int i = 0; i < count; i++) {
+                    long hit = buffer.getLong();
+                    int rgb = (int) hit;
+                    histogram.add((int) (hit >>> COLOR_BITS), (rgb >>> (2 * CHANNEL_BITS)) & CHANNEL_MASK,
+                        (rgb >>> CHANNEL_BITS) & CHANNEL_MASK, rgb & CHANNEL_MASK);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return histogram;
+    }
+
+    /**
+     * Собирает весь холст в одном буфере в памяти.
+     * Нужен для совместимости с остальными режимами на холстах, которые помещаются в кучу;
+     * большие холсты следует читать по тайлам через {@link #tile(int, int)}.
+     */
+    @Override
+    public Histogram result() {
+        DensityHistogram canvas = new DensityHistogram(width, height);
+        long[] row = new long[Math.min(tileSize, width) * Histogram.CHANNELS];
+        for (int tileY = 0; tileY < tilesY; tileY++) {
+            for (int tileX = 0; tileX < tilesX; tileX++) {
+                copyTile(tile(tileX, tileY), canvas, tileX * tileSize, tileY * tileSize, row);
+            }
+        }
+        return canvas;
+    }
+
+    private static void copyTile(DensityHistogram tile, DensityHistogram canvas, int left, int top, long[] row) {
+        for (int y = 0; y < tile.height(); y++) {
+            tile.readRow(y, row);
+            int index = canvas.indexOf(left, top + y);
+            for (int base = 0; base < tile.width() * Histogram.CHANNELS; base += Histogram.CHANNELS) {
+                canvas.addPoints(index++, row[base + Histogram.HITS], row[base + Histogram.RED],
+                    row[base + Histogram.GREEN], row[base + Histogram.BLUE]);
+            }
+        }
+    }
+
+    /**
+     * Закрывает и удаляет файл попаданий.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int tileWidth(int tileX) {
+        return Math.min(tileSize, width - tileX * tileSize);
+    }
+
+    private int tileHeight(int tileY) {
+        return Math.min(tileSize, height - tileY * tileSize);
+    }
+
+    private void flush() {
+        if (!flushed) {
+            flushed = true;
+            for (SpillSink sink : sinks) {
+                sink.flushAll();
+                totalHits += sink.hits;
+            }
+        }
+    }
+
+    /**
+     * Записывает попадания в зарезервированный отрезок в конце общего файла и добавляет его к экстентам тайла.
+     * Отрезки потоков не пересекаются, поэтому запись по позиции идёт без блокировки файла.
+     */
+    private void write(int tile, ByteBuffer bytes) {
+        int count = bytes.remaining() / Long.BYTES;
+        long first = spilledHits.getAndAdd(count);
+        long position = first * Long.BYTES;
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, position + bytes.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        extents[tile].add((first << EXTENT_COUNT_BITS) | count);
+    }
+
+    private synchronized SpillSink newSink() {
+        if (flushed) {
+            throw new IllegalStateException("Накопление уже завершено");
+        }
+        SpillSink sink = new SpillSink();
+        sinks.add(sink);
+        return sink;
+    }
+
+    /**
+     * Приёмник одного потока с буфером упакованных попаданий на каждый тайл.
+     * Буфер тайла выделяется при первом попадании в тайл.
+     */
+    private final class SpillSink implements HitSink {
+
+        private final long[][] buffers = new long[extents.length][];
+        private final int[] sizes = new int[extents.length];
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(bufferHits * Long.BYTES);
+        private long hits;
+
+        @Override
+        public void add(int x, int y, PixelColor color) {
+            int tileX = x / tileSize;
+            int tileY = y / tileSize;
+            int tile = tileY * tilesX + tileX;
+            long index = (long) (y - tileY * tileSize) * tileWidth(tileX) + (x - tileX * tileSize);
+            int rgb = (color.red() << (2 * CHANNEL_BITS)) | (color.green() << CHANNEL_BITS) | color.blue();
+            long[] buffer = buffers[tile];
+            if (buffer == null) {
+                buffer = new long[bufferHits];
+                buffers[tile] = buffer;
+            }
+            buffer[sizes[tile]++] = (index << COLOR_BITS) | rgb;
+            hits++;
+            if (sizes[tile] == bufferHits) {
+                flush(tile);
+            }
+        }
+
+        private void flushAll() {
+            for (int tile = 0; tile < buffers.length; tile++) {
+                flush(tile);
+            }
+        }
+
+        /**
+         * Записывает буфер тайла в общий файл.
+         */
+        private void flush(int tile) {
+            int size = sizes[tile];
+            if (size == 0) {
+                return;
+            }
+            bytes.clear();
+            bytes.asLongBuffer().put(buffers[tile], 0, size);
+            bytes.limit(size * Long.BYTES);
+            write(tile, bytes);
+            sizes[tile] = 0;
+        }
+    }
+
+    /**
+     * Экстенты тайла: упакованные в {@code long} номер первого попадания в файле и количество попаданий.
+     */
+    private static final class Extents {
+
+        private long[] packed = new long[INITIAL_EXTENTS];
+        private int size;
+
+        private synchronized void add(long extent) {
+            if (size == packed.length) {
+                packed = Arrays.copyOf(packed, size * 2);
+            }
+            packed[size++] = extent;
+        }
+
+        private synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(packed, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package backend.academy.accumulate;
+
+import backend.academy.models.WeightedHitSink;
+
+/**
+ * Стратегия накопления, буферы которой принимают взвешенные попадания билинейного распределения.
+ * Рендерер с билинейным распределением принимает только такие накопители.
+ */
+public interface WeightedAccumulator extends Accumulator {
+
+    /**
+     * Возвращает буфер, в который должен писать вызывающий поток.
+     * Вызывается один раз на сэмпл, а не на каждое попадание.
+     *
+     * @return буфер для записи попаданий, в том числе взвешенных.
+     */
+    @Override
+    WeightedHitSink sink();
+}
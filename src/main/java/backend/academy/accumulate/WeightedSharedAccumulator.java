@@ -0,0 +1,29 @@
+package backend.academy.accumulate;
+
+import backend.academy.models.Histogram;
+import backend.academy.models.WeightedHitSink;
+
+/**
+ * Накопление в один общий буфер, который принимает взвешенные попадания.
+ */
+public class WeightedSharedAccumulator extends SharedAccumulator implements WeightedAccumulator {
+
+    private final WeightedHitSink sink;
+
+    /**
+     * Создаёт накопитель поверх общего буфера, владеющего внешними ресурсами.
+     *
+     * @param histogram Потокобезопасный буфер накопления со взвешенными попаданиями.
+     * @param release Действие, освобождающее ресурсы буфера.
+     * @param <H> Тип буфера.
+     */
+    public <H extends Histogram & WeightedHitSink> WeightedSharedAccumulator(H histogram, Runnable release) {
+        super(histogram, release);
+        this.sink = histogram;
+    }
+
+    @Override
+    public WeightedHitSink sink() {
+        return sink;
+    }
+}
@@ -0,0 +1,149 @@
+package backend.academy.accumulate;
+
+import backend.academy.domain.PixelColor;
+import backend.academy.models.BufferPool;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+import backend.academy.models.PixelLayout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Накопление через буферы записи потоков с сортированным сбросом.
+ * Хаотичный обход аттрактора попадает в память случайно, поэтому почти каждая запись — промах кэша.
+ * Здесь поток складывает попадания в небольшой приватный буфер упакованных пар (индекс пикселя, цвет);
+ * заполненный буфер сортируется поразрядно по индексу и сбрасывается в общий буфер одним проходом.
+ * Общий буфер поделён на полосы со своими мониторами: монитор полосы захватывается один раз
+ * на отрезок отсортированного буфера, а не на каждое попадание.
+ */
+public class WriteCombiningAccumulator implements Accumulator {
+
+    private static final int BUFFER_HITS = 4096;
+    private static final int BAND_PIXELS = 65_536;
+    private static final int COLOR_BITS = 24;
+    private static final int CHANNEL_BITS = 8;
+    private static final int CHANNEL_MASK = 0xFF;
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private final DensityHistogram histogram;
+    private final Object[] bandLocks;
+    private final int indexBits;
+    private final List<CombiningSink> sinks = new ArrayList<>();
+    private final ThreadLocal<CombiningSink> local = ThreadLocal.withInitial(this::newSink);
+
+    /**
+     * Создаёт накопитель с общим буфером в заданной раскладке.
+     *
+     * @param layout Раскладка пикселей общего буфера.
+     */
+    public WriteCombiningAccumulator(PixelLayout layout) {
+        this.histogram = new DensityHistogram(layout, BufferPool.shared());
+        int pixels = layout.capacity();
+        this.bandLocks = new Object[(pixels + BAND_PIXELS - 1) / BAND_PIXELS];
+        for (int i = 0; i < bandLocks.length; i++) {
+            bandLocks[i] = new Object();
+        }
+        this.indexBits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(pixels - 1));
+    }
+
+    @Override
+    public HitSink sink() {
+        return local.get();
+    }
+
+    /**
+     * Сбрасывает остатки буферов всех потоков и возвращает общий буфер.
+     * Вызывается после завершения генерации.
+     */
+    @Override
+    public synchronized Histogram result() {
+        sinks.forEach(CombiningSink::flush);
+        return histogram;
+    }
+
+    /**
+     * Возвращает массив общего буфера в пул.
+     */
+    @Override
+    public void close() {
+        histogram.release();
+    }
+
+    private synchronized CombiningSink newSink() {
+        CombiningSink sink = new CombiningSink();
+        sinks.add(sink);
+        return sink;
+    }
+
+    /**
+     * Приёмник одного потока с буфером упакованных попаданий: индекс в старших битах, цвет RGB — в младших.
+     */
+    private final class CombiningSink implements HitSink {
+
+        private long[] hits = new long[BUFFER_HITS];
+        private long[] scratch = new long[BUFFER_HITS];
+        private final int[] counts = new int[RADIX];
+        private int size;
+
+        @Override
+        public void add(int x, int y, PixelColor color) {
+            long index = histogram.indexOf(x, y);
+            int rgb = (color.red() << (2 * CHANNEL_BITS)) | (color.green() << CHANNEL_BITS) | color.blue();
+            hits[size++] = (index << COLOR_BITS) | rgb;
+            if (size == BUFFER_HITS) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (size == 0) {
+                return;
+            }
+            sort();
+            int start = 0;
+            while (start < size) {
+                int band = (int) (hits[start] >>> COLOR_BITS) / BAND_PIXELS;
+                int end = start;
+                synchronized (bandLocks[band]) {
+                    while (end < size && (int) (hits[end] >>> COLOR_BITS) / BAND_PIXELS == band) {
+                        long hit = hits[end++];
+                        int rgb = (int) hit;
+                        histogram.add((int) (hit >>> COLOR_BITS), (rgb >>> (2 * CHANNEL_BITS)) & CHANNEL_MASK,
+                            (rgb >>> CHANNEL_BITS) & CHANNEL_MASK, rgb & CHANNEL_MASK);
+                    }
+                }
+                start = end;
+            }
+            size = 0;
+        }
+
+        /**
+         * Поразрядная сортировка (LSD) по битам индекса пикселя, по {@link #RADIX_BITS} бит за проход.
+         */
+        private void sort() {
+            for (int shift = 0; shift < indexBits; shift += RADIX_BITS) {
+                int bitShift = COLOR_BITS + shift;
+                Arrays.fill(counts, 0);
+                for (int i = 0; i < size; i++) {
+                    counts[(int) (hits[i] >>> bitShift) & (RADIX - 1)]++;
+                }
+                int position = 0;
+                for (int digit = 0; digit < RADIX; digit++) {
+                    int count = counts[digit];
+                    counts[digit] = position;
+                    position += count;
+                }
+                for (int i = 0; i < size; i++) {
+                    long hit = hits[i];
+                    scratch[counts[(int) (hit >>> bitShift) & (RADIX - 1)]++] = hit;
+                }
+                long[] sorted = scratch;
+                scratch = hits;
+                hits = sorted;
+            }
+        }
+    }
+}
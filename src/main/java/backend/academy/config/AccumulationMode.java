@@ -0,0 +1,72 @@
+package backend.academy.config;
+
+/**
+ * Режим накопления попаданий при генерации.
+ */
+public enum AccumulationMode {
+
+    /**
+     * Общий буфер пикселей, каждый пиксель защищён собственным монитором.
+     */
+    LOCKED,
+
+    /**
+     * Приватный буфер на каждый рабочий поток с параллельным слиянием после генерации.
+     */
+    PER_THREAD,
+
+    /**
+     * Общий плоский буфер с атомарными обновлениями через {@link java.lang.invoke.VarHandle}.
+     */
+    ATOMIC,
+
+    /**
+     * Общий плоский буфер с неатомарными opaque-обновлениями: быстрее, но часть попаданий
+     * при одновременной записи в один пиксель теряется.
+     */
+    APPROXIMATE,
+
+    /**
+     * Общий буфер пикселей с мониторами, горячие пиксели копятся в приватных полосах потоков.
+     */
+    STRIPED,
+
+    /**
+     * Буферы записи потоков, сортируемые по индексу пикселя и сбрасываемые в общий буфер пачками.
+     */
+    WRITE_COMBINING,
+
+    /**
+     * Тайлы холста принадлежат потокам-владельцам, генераторы направляют им попадания через кольцевые буферы.
+     */
+    TILE_OWNERSHIP,
+
+    /**
+     * Общий буфер вне кучи в сегменте памяти общей арены с атомарными обновлениями.
+     */
+    OFF_HEAP,
+
+    /**
+     * Раскладка попаданий по файлам тайлов на диске с потайловым тонированием — для холстов,
+     * буфер которых не помещается в память.
+     */
+    OUT_OF_CORE,
+
+    /**
+     * Разреженные буферы потоков на хеш-таблицах с открытой адресацией: память пропорциональна
+     * числу освещённых пикселей, а не разрешению.
+     */
+    SPARSE,
+
+    /**
+     * Приватные буферы потоков с 16-битными счётчиками, тайлы которых при переполнении
+     * переводятся в 64-битные.
+     */
+    COMPACT,
+
+    /**
+     * Автоматический выбор одного из режимов по разрешению, числу потоков, доступной куче
+     * и пробному прогону генерации.
+     */
+    AUTO
+}
@@ -0,0 +1,63 @@
+package backend.academy.config;
+
+/**
+ * Параметры свечения (bloom) ярких областей тонированного изображения.
+ * Пиксели, яркость которых выше порога, размываются гауссовым ядром большого радиуса,
+ * и размытая копия прибавляется к изображению.
+ *
+ * @param threshold порог яркости в [0, 1); свечение даёт только превышение порога
+ * @param radius радиус ядра в пикселях изображения (три сигмы гауссианы); {@code 0} отключает свечение
+ * @param intensity множитель яркости свечения при сложении с изображением
+ */
+public record Bloom(double threshold, double radius, double intensity) {
+
+    /**
+     * Без свечения.
+     */
+    public static final Bloom NONE = new Bloom(0, 0, 0);
+
+    /**
+     * Порог яркости по умолчанию.
+     */
+    public static final double DEFAULT_THRESHOLD = 0.7;
+
+    /**
+     * Множитель яркости свечения по умолчанию.
+     */
+    public static final double DEFAULT_INTENSITY = 0.6;
+
+    /**
+     * Наибольший допустимый радиус ядра в пикселях.
+     */
+    public static final double MAX_RADIUS = 1024;
+
+    public Bloom {
+        if (threshold < 0 || threshold >= 1) {
+            throw new IllegalArgumentException("Порог свечения должен быть в [0, 1): " + threshold);
+        }
+        if (radius < 0 || radius > MAX_RADIUS) {
+            throw new IllegalArgumentException("Радиус свечения должен быть в [0, " + MAX_RADIUS + "]: " + radius);
+        }
+        if (intensity < 0) {
+            throw new IllegalArgumentException("Яркость свечения не может быть отрицательной: " + intensity);
+        }
+    }
+
+    /**
+     * Создаёт параметры с порогом и яркостью по умолчанию.
+     *
+     * @param radius Радиус ядра в пикселях; {@code 0} отключает свечение.
+     */
+    public Bloom(double radius) {
+        this(DEFAULT_THRESHOLD, radius, DEFAULT_INTENSITY);
+    }
+
+    /**
+     * Проверяет, включено ли свечение.
+     *
+     * @return {@code true}, если радиус и яркость свечения положительны.
+     */
+    public boolean enabled() {
+        return radius > 0 && intensity > 0;
+    }
+}
@@ -0,0 +1,61 @@
+package backend.academy.config;
+
+/**
+ * Параметры адаптивной оценки плотности в духе flam3: каждый пиксель размывается ядром, радиус которого
+ * убывает с количеством попаданий, {@code maxRadius / hits^curve}, но не меньше {@code minRadius}.
+ * Редкие попадания в разреженных областях размазываются широко и перестают выглядеть шумом,
+ * а плотные области остаются резкими.
+ *
+ * @param maxRadius радиус ядра пикселя с одним попаданием в пикселях; {@code 0} отключает фильтр
+ * @param minRadius наименьший радиус ядра в пикселях
+ * @param curve показатель убывания радиуса с плотностью
+ */
+public record DensityEstimation(double maxRadius, double minRadius, double curve) {
+
+    /**
+     * Без оценки плотности.
+     */
+    public static final DensityEstimation NONE = new DensityEstimation(0, 0, 0);
+
+    /**
+     * Показатель убывания радиуса по умолчанию, как в flam3.
+     */
+    public static final double DEFAULT_CURVE = 0.4;
+
+    /**
+     * Наибольший допустимый радиус ядра в пикселях.
+     */
+    public static final double MAX_RADIUS = 32;
+
+    public DensityEstimation {
+        if (maxRadius < 0 || maxRadius > MAX_RADIUS) {
+            throw new IllegalArgumentException("Радиус оценки плотности должен быть в [0, " + MAX_RADIUS + "]: "
+                + maxRadius);
+        }
+        if (minRadius < 0 || minRadius > maxRadius) {
+            throw new IllegalArgumentException("Наименьший радиус должен быть неотрицательным и не больше "
+                + maxRadius + ": " + minRadius);
+        }
+        if (curve < 0) {
+            throw new IllegalArgumentException("Показатель убывания радиуса не может быть отрицательным: " + curve);
+        }
+    }
+
+    /**
+     * Создаёт параметры с нулевым наименьшим радиусом и показателем убывания по умолчанию.
+     *
+     * @param maxRadius Радиус ядра пикселя с одним попаданием; {@code 0} отключает фильтр.
+     */
+    public DensityEstimation(double maxRadius) {
+        this(maxRadius, 0, DEFAULT_CURVE);
+    }
+
+    /**
+     * Проверяет, включена ли оценка плотности.
+     *
+     * @return {@code true}, если радиус ядра положителен.
+     */
+    public boolean enabled() {
+        return maxRadius > 0;
+    }
+}
@@ -0,0 +1,23 @@
+package backend.academy.config;
+
+/**
+ * Фильтр уменьшения суперсэмплированного буфера накопления до выходного разрешения.
+ */
+public enum DownsampleFilter {
+
+    /**
+     * Сумма субпикселей выходного пикселя: совпадает с накоплением в выходном разрешении.
+     */
+    BOX,
+
+    /**
+     * Гауссиана с {@code σ = 0.5} выходного пикселя и радиусом 1.5 пикселя: мягче, без звона.
+     */
+    GAUSSIAN,
+
+    /**
+     * Кубический фильтр Митчелла–Нетравали ({@code B = C = 1/3}) с радиусом 2 пикселя: резче гауссианы,
+     * с небольшими отрицательными лепестками.
+     */
+    MITCHELL
+}
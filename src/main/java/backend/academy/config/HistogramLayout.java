@@ -0,0 +1,17 @@
+package backend.academy.config;
+
+/**
+ * Раскладка пикселей в плоских буферах накопления.
+ */
+public enum HistogramLayout {
+
+    /**
+     * Построчная раскладка {@code y * width + x}.
+     */
+    ROW_MAJOR,
+
+    /**
+     * Тайлы 32x32 с порядком Мортона внутри тайла для лучшей двумерной локальности.
+     */
+    MORTON
+}
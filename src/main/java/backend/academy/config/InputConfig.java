@@ -1,6 +1,7 @@
 package backend.academy.config;
 
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Конфигурация для генерации фрактальных изображений.
@@ -30,6 +31,26 @@ public class InputConfig {
         return imageSettings.axesCount();
     }
 
+    public SymmetryType symmetry() {
+        return imageSettings.symmetry();
+    }
+
+    public boolean splatting() {
+        return imageSettings.splatting();
+    }
+
+    public Supersampling supersampling() {
+        return imageSettings.supersampling();
+    }
+
+    public HistogramLayout histogramLayout() {
+        return imageSettings.histogramLayout();
+    }
+
+    public int memoryBudgetMb() {
+        return imageSettings.memoryBudgetMb();
+    }
+
     // Геттеры для параметров генерации
     public int samples() {
         return generationSettings.samples();
@@ -51,18 +72,80 @@ public class InputConfig {
         return generationSettings.threads();
     }
 
+    public AccumulationMode accumulationMode() {
+        return generationSettings.accumulationMode();
+    }
+
+    public long seed() {
+        return generationSettings.seed();
+    }
+
     public List<String> transformations() {
         return transformations;
     }
 
+    /**
+     * Возвращает копию конфигурации с другим количеством потоков генерации.
+     *
+     * @param threads количество потоков
+     * @return конфигурация с теми же параметрами изображения, seed и трансформациями
+     */
+    public InputConfig withThreads(int threads) {
+        GenerationSettings settings = new GenerationSettings(samples(), iterations(), affineTransformations(),
+            multithreaded(), threads, accumulationMode(), seed());
+        return new InputConfig(imageSettings, settings, transformations);
+    }
+
+    /**
+     * Возвращает копию конфигурации с другим режимом накопления.
+     *
+     * @param accumulationMode режим накопления
+     * @return конфигурация с теми же параметрами изображения, генерации и трансформациями
+     */
+    public InputConfig withAccumulationMode(AccumulationMode accumulationMode) {
+        GenerationSettings settings = new GenerationSettings(samples(), iterations(), affineTransformations(),
+            multithreaded(), threads(), accumulationMode, seed());
+        return new InputConfig(imageSettings, settings, transformations);
+    }
+
     /**
      * Класс для параметров изображения.
      * @param width ширина изображения
      * @param height высота изображения
      * @param axesCount количество осей для фрактала
+     * @param histogramLayout раскладка пикселей в буферах накопления
+     * @param memoryBudgetMb бюджет памяти буфера накопления в МБ; {@code 0} — без ограничения
+     * @param symmetry вид группы симметрии
+     * @param splatting билинейное распределение попаданий по четырём пикселям вместо округления
+     * @param supersampling накопление на более мелкой сетке с уменьшением до размера изображения
      */
-    public record ImageSettings(int width, int height, int axesCount) {
-     }
+    public record ImageSettings(int width, int height, int axesCount, HistogramLayout histogramLayout,
+                                int memoryBudgetMb, SymmetryType symmetry, boolean splatting,
+                                Supersampling supersampling) {
+
+        public ImageSettings(int width, int height, int axesCount, HistogramLayout histogramLayout,
+                             int memoryBudgetMb, SymmetryType symmetry, boolean splatting) {
+            this(width, height, axesCount, histogramLayout, memoryBudgetMb, symmetry, splatting, Supersampling.NONE);
+        }
+
+        public ImageSettings(int width, int height, int axesCount, HistogramLayout histogramLayout,
+                             int memoryBudgetMb, SymmetryType symmetry) {
+            this(width, height, axesCount, histogramLayout, memoryBudgetMb, symmetry, false);
+        }
+
+        public ImageSettings(int width, int height, int axesCount, HistogramLayout histogramLayout,
+                             int memoryBudgetMb) {
+            this(width, height, axesCount, histogramLayout, memoryBudgetMb, SymmetryType.ROTATIONAL);
+        }
+
+        public ImageSettings(int width, int height, int axesCount, HistogramLayout histogramLayout) {
+            this(width, height, axesCount, histogramLayout, 0);
+        }
+
+        public ImageSettings(int width, int height, int axesCount) {
+            this(width, height, axesCount, HistogramLayout.ROW_MAJOR);
+        }
+    }
 
     /**
      * Класс для параметров генерации.
@@ -71,8 +154,21 @@ public class InputConfig {
      * @param affineTransformations количество аффинных преобразований
      * @param multithreaded флаг многопоточности
      * @param threads количество потоков для генерации
+     * @param accumulationMode режим накопления попаданий
+     * @param seed начальное значение генератора случайных чисел; одинаковый seed даёт одинаковые попадания
      */
     public record GenerationSettings(int samples, int iterations, int affineTransformations, boolean multithreaded,
-                                     int threads) {
+                                     int threads, AccumulationMode accumulationMode, long seed) {
+
+        public GenerationSettings(int samples, int iterations, int affineTransformations, boolean multithreaded,
+                                  int threads, AccumulationMode accumulationMode) {
+            this(samples, iterations, affineTransformations, multithreaded, threads, accumulationMode,
+                ThreadLocalRandom.current().nextLong());
+        }
+
+        public GenerationSettings(int samples, int iterations, int affineTransformations, boolean multithreaded,
+                                  int threads) {
+            this(samples, iterations, affineTransformations, multithreaded, threads, AccumulationMode.LOCKED);
+        }
     }
 }
@@ -8,8 +8,11 @@ import backend.academy.transformation.SwirlTransformation;
 import backend.academy.transformation.Transformation;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.stream.Collectors;
 
 
 /**
@@ -48,6 +51,23 @@ public final class InputHandler {
         }
     }
 
+    /**
+     * Читает длинное целочисленное значение из сканера или использует значение по умолчанию.
+     *
+     * @param scanner сканер для чтения ввода
+     * @param defaultValue значение по умолчанию
+     * @return считанное значение или значение по умолчанию, если ввод некорректен
+     */
+    public static long getLong(Scanner scanner, long defaultValue) {
+        String input = scanner.nextLine();
+        try {
+            return Long.parseLong(input);
+        } catch (NumberFormatException e) {
+            OUT.println(INVALID_INPUT_MSG + defaultValue);
+            return defaultValue;
+        }
+    }
+
     /**
      * Читает логическое значение из сканера или использует значение по умолчанию.
      *
@@ -77,6 +97,42 @@ public final class InputHandler {
         }
     }
 
+    /**
+     * Читает значение перечисления (режим, раскладку и т.п.) из сканера или использует значение по умолчанию.
+     * Название не зависит от регистра, дефис равнозначен подчёркиванию.
+     *
+     * @param scanner сканер для чтения ввода
+     * @param defaultValue значение по умолчанию
+     * @param <E> тип перечисления
+     * @return считанное значение или значение по умолчанию, если ввод некорректен
+     */
+    public static <E extends Enum<E>> E getOption(Scanner scanner, E defaultValue) {
+        String input = scanner.nextLine().trim();
+        if (input.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(defaultValue.getDeclaringClass(), input.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            OUT.println(INVALID_INPUT_MSG + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Возвращает названия значений перечисления в том виде, в котором их принимает
+     * {@link #getOption(Scanner, Enum)}.
+     *
+     * @param type класс перечисления
+     * @param <E> тип перечисления
+     * @return названия значений через запятую
+     */
+    public static <E extends Enum<E>> String optionNames(Class<E> type) {
+        return Arrays.stream(type.getEnumConstants())
+            .map(value -> value.name().toLowerCase(Locale.ROOT).replace('_', '-'))
+            .collect(Collectors.joining(", "));
+    }
+
     /**
      * Получает список трансформаций из строки, разделенной запятыми.
      *
@@ -0,0 +1,30 @@
+package backend.academy.config;
+
+/**
+ * Параметры суперсэмплинга: накопление на мелкой сетке и её уменьшение до выходного разрешения.
+ *
+ * @param factor во сколько раз сетка накопления мельче изображения по каждой стороне
+ * @param filter фильтр уменьшения сетки до размера изображения
+ */
+public record Supersampling(int factor, DownsampleFilter filter) {
+
+    /**
+     * Накопление прямо в выходном разрешении.
+     */
+    public static final Supersampling NONE = new Supersampling(1, DownsampleFilter.BOX);
+
+    public Supersampling {
+        if (factor < 1) {
+            throw new IllegalArgumentException("Коэффициент суперсэмплинга должен быть положительным: " + factor);
+        }
+    }
+
+    /**
+     * Проверяет, накапливаются ли попадания на более мелкой сетке.
+     *
+     * @return {@code true}, если коэффициент больше единицы.
+     */
+    public boolean enabled() {
+        return factor != 1;
+    }
+}
@@ -0,0 +1,23 @@
+package backend.academy.config;
+
+/**
+ * Вид группы симметрии изображения.
+ */
+public enum SymmetryType {
+
+    /**
+     * Повороты на углы, кратные {@code 360° / axesCount}.
+     */
+    ROTATIONAL,
+
+    /**
+     * Зеркальное отражение относительно вертикальной оси; количество осей не учитывается.
+     */
+    MIRROR,
+
+    /**
+     * Диэдральная группа: повороты на углы, кратные {@code 360° / axesCount}, и {@code axesCount}
+     * зеркальных осей между ними.
+     */
+    DIHEDRAL
+}
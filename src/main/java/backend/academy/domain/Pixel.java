@@ -4,13 +4,14 @@ import lombok.Getter;
 
 /**
  * Класс Pixel используется для представления пикселя на изображении.
- * Хранит информацию о цвете пикселя и количестве "попаданий", то есть сколько раз этот пиксель был обновлён.
+ * Хранит суммы цветовых каналов и количество "попаданий", то есть сколько раз этот пиксель был обновлён.
+ * Суммы хранятся без округления, поэтому средний цвет и плотность попаданий восстанавливаются точно.
  */
 @Getter public class Pixel {
-    private int red;
-    private int green;
-    private int blue;
-    private int pointsCount;
+    private long red;
+    private long green;
+    private long blue;
+    private long pointsCount;
 
     /**
      * Создает пиксель с заданными значениями цвета.
@@ -26,41 +27,65 @@ import lombok.Getter;
     }
 
     /**
-     * Устанавливает новые значения RGB для этого пикселя.
+     * Устанавливает новые значения RGB для этого пикселя, сохраняя количество попаданий.
      *
      * @param red   новое значение красного компонента.
      * @param green новое значение зелёного компонента.
      * @param blue  новое значение синего компонента.
      */
     public void setRGB(int red, int green, int blue) {
-        this.red = red;
-        this.green = green;
-        this.blue = blue;
-        new PixelColor(this.red, this.green, this.blue);
+        long weight = Math.max(pointsCount, 1);
+        this.red = red * weight;
+        this.green = green * weight;
+        this.blue = blue * weight;
     }
 
     /**
-     * Добавляет цвет к пикселю, усредняя его с существующим цветом на основе количества попаданий.
+     * Добавляет цвет к сумме каналов пикселя и увеличивает количество попаданий.
      *
      * @param pixelColor Цвет, который будет добавлен к пикселю.
      */
     public void addPoint(PixelColor pixelColor) {
         if (pointsCount == 0) {
-            setRGB(pixelColor.red(), pixelColor.green(), pixelColor.blue());
-        } else {
-            red = (red * pointsCount + pixelColor.red()) / (pointsCount + 1);
-            green = (green * pointsCount + pixelColor.green()) / (pointsCount + 1);
-            blue = (blue * pointsCount + pixelColor.blue()) / (pointsCount + 1);
+            red = 0;
+            green = 0;
+            blue = 0;
         }
+        red += pixelColor.red();
+        green += pixelColor.green();
+        blue += pixelColor.blue();
         pointsCount++;
-        new PixelColor(this.red, this.green, this.blue);
     }
 
     /**
-     * Возвращает цвет пикселя.
+     * Добавляет к пикселю накопленные в другом месте попадания и суммы каналов.
+     *
+     * @param hits  количество попаданий.
+     * @param red   сумма красного компонента.
+     * @param green сумма зелёного компонента.
+     * @param blue  сумма синего компонента.
+     */
+    public void addPoints(long hits, long red, long green, long blue) {
+        if (hits == 0) {
+            return;
+        }
+        if (pointsCount == 0) {
+            this.red = 0;
+            this.green = 0;
+            this.blue = 0;
+        }
+        this.red += red;
+        this.green += green;
+        this.blue += blue;
+        pointsCount += hits;
+    }
+
+    /**
+     * Возвращает средний цвет пикселя.
      * @return объект Color, представляющий цвет пикселя.
      */
     public PixelColor getColor() {
-        return new PixelColor(red, green, blue);
+        long weight = Math.max(pointsCount, 1);
+        return new PixelColor((int) (red / weight), (int) (green / weight), (int) (blue / weight));
     }
 }
@@ -1,15 +1,30 @@
 package backend.academy.entry;
 
+import backend.academy.accumulate.StripedAccumulator;
+import backend.academy.config.AccumulationMode;
+import backend.academy.config.Bloom;
+import backend.academy.config.DensityEstimation;
+import backend.academy.config.DownsampleFilter;
+import backend.academy.config.HistogramLayout;
 import backend.academy.config.InputConfig;
 import backend.academy.config.InputHandler;
+import backend.academy.config.Supersampling;
+import backend.academy.config.SymmetryType;
 import backend.academy.generate.AbstractFlameGenerator;
+import backend.academy.generate.AccumulationProbe;
+import backend.academy.generate.BandedGenerator;
 import backend.academy.generate.MultiThreadedGenerator;
 import backend.academy.generate.SingleThreadedGenerator;
+import backend.academy.render.MipmapChain;
 import backend.academy.render.Renderer;
+import backend.academy.render.SymmetryGroup;
+import backend.academy.render.ToneSettings;
 import backend.academy.transformation.Transformation;
+import java.awt.image.BufferedImage;
 import java.io.PrintStream;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Класс EntryPoint служит точкой входа в приложение для генерации фракталов.
@@ -25,6 +40,10 @@ public class EntryPoint {
     private static final int DEFAULT_THREADS = 4;
     private static final int DEFAULT_AXES = 8;
     private static final double DEFAULT_GAMMA = 2.5;
+    private static final int CONTENDED_PIXELS_REPORTED = 5;
+    private static final String OPTIONS_END = "): ";
+    private static final long BYTES_PER_MB = 1_048_576;
+    private static final String IMAGE_SAVED = "Изображение сохранено в src/main/resources/fractal.png";
 
     /**
      * Запускает процесс генерации фракталов, руководствуясь вводом пользователя.
@@ -56,36 +75,123 @@ public class EntryPoint {
                 threads = InputHandler.getInt(reader, DEFAULT_THREADS);
             }
 
+            out.print("Выберите режим накопления (" + InputHandler.optionNames(AccumulationMode.class) + OPTIONS_END);
+            AccumulationMode accumulationMode = InputHandler.getOption(reader, AccumulationMode.AUTO);
+
+            out.print("Выберите раскладку буфера накопления (" + InputHandler.optionNames(HistogramLayout.class)
+                + OPTIONS_END);
+            HistogramLayout histogramLayout = InputHandler.getOption(reader, HistogramLayout.ROW_MAJOR);
+
             out.print("Выберите трансформации (Heart, Polar, Sinusoidal, Spherical, Swirl): ");
             List<String> transformationNames = InputHandler.getTransformations(reader);
 
+            out.print("Введите бюджет памяти буфера накопления в МБ (0 — без ограничения): ");
+            int memoryBudgetMb = InputHandler.getInt(reader, 0);
+
+            out.print("Введите seed генератора (пусто — случайный): ");
+            long seed = InputHandler.getLong(reader, ThreadLocalRandom.current().nextLong());
+
             out.print("Введите количество осей симметрии: ");
             int axesCount = InputHandler.getInt(reader, DEFAULT_AXES);
 
+            out.print("Выберите группу симметрии (" + InputHandler.optionNames(SymmetryType.class) + OPTIONS_END);
+            SymmetryType symmetry = InputHandler.getOption(reader, SymmetryType.ROTATIONAL);
+
+            out.print("Распределять попадания билинейно по четырём пикселям? (true/false): ");
+            boolean splatting = InputHandler.getBoolean(reader, false);
+
+            out.print("Введите коэффициент суперсэмплинга (1 — без суперсэмплинга): ");
+            int supersample = InputHandler.getInt(reader, 1);
+
+            out.print("Выберите фильтр уменьшения (" + InputHandler.optionNames(DownsampleFilter.class) + OPTIONS_END);
+            DownsampleFilter downsampleFilter = InputHandler.getOption(reader, DownsampleFilter.GAUSSIAN);
+
             out.print("Введите значение гаммы: ");
             double gamma = InputHandler.getDouble(reader, DEFAULT_GAMMA);
 
-            InputConfig.ImageSettings imageSettings = new InputConfig.ImageSettings(width, height, axesCount);
+            out.print("Введите насыщенность от 0 до 1 (1 — сохранить оттенки): ");
+            double vibrancy = InputHandler.getDouble(reader, Renderer.DEFAULT_VIBRANCY);
+
+            out.print("Введите яркость (1 — без изменения): ");
+            double brightness = InputHandler.getDouble(reader, 1.0);
+
+            out.print("Кодировать цвета кривой sRGB? (true/false): ");
+            boolean srgb = InputHandler.getBoolean(reader, false);
+            ToneSettings tone = new ToneSettings(gamma, brightness, vibrancy, srgb);
+
+            out.print("Введите радиус оценки плотности (0 — без фильтра): ");
+            DensityEstimation estimation = new DensityEstimation(InputHandler.getDouble(reader, 0));
+
+            out.print("Введите радиус свечения ярких областей (0 — без свечения): ");
+            Bloom bloom = new Bloom(InputHandler.getDouble(reader, 0));
+
+            out.print("Сохранить уменьшенные копии 1/2, 1/4 и миниатюру? (true/false): ");
+            boolean mipmaps = InputHandler.getBoolean(reader, false);
+
+            InputConfig.ImageSettings imageSettings = new InputConfig.ImageSettings(width, height, axesCount,
+                histogramLayout, memoryBudgetMb, symmetry, splatting, new Supersampling(supersample, downsampleFilter));
             InputConfig.GenerationSettings generationSettings = new InputConfig.GenerationSettings(samples,
-                iterations, affineTransformationsCount, multithreaded, threads);
+                iterations, affineTransformationsCount, multithreaded, threads, accumulationMode, seed);
             InputConfig config = new InputConfig(imageSettings, generationSettings, transformationNames);
 
-            Renderer renderer = new Renderer(config.width(), config.height(), config.axesCount());
-
             List<Transformation> transformations = InputHandler.createTransformations(transformationNames);
+            if (memoryBudgetMb > 0) {
+                BandedGenerator.checkPostProcessing(estimation, mipmaps);
+                renderBands(config, transformations, tone, bloom, out);
+            } else {
+                InputConfig resolved = AccumulationProbe.resolve(config, transformations);
+                Renderer.checkPostProcessing(resolved.accumulationMode(), estimation, bloom, mipmaps);
+                renderFractal(resolved, transformations, tone, estimation, bloom, mipmaps, out);
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
+    /**
+     * Генерирует, тонирует и сохраняет фрактал. Буферы накопления освобождаются сразу после сохранения.
+     */
+    private void renderFractal(InputConfig config, List<Transformation> transformations, ToneSettings tone,
+        DensityEstimation estimation, Bloom bloom, boolean mipmaps, PrintStream out) throws InterruptedException {
+        try (Renderer renderer = new Renderer(config)) {
             AbstractFlameGenerator generator = config.multithreaded()
                 ? new MultiThreadedGenerator(config, transformations, renderer)
                 : new SingleThreadedGenerator(config, transformations, renderer);
 
             generator.generate();
 
-            renderer.applyGamma(gamma);
-            renderer.render();
-            renderer.saveImage();
-            out.println("Изображение сохранено в src/main/resources/fractal.png");
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            SymmetryGroup group = SymmetryGroup.of(config.symmetry(), config.axesCount());
+            List<BufferedImage> levels = List.of();
+            if (mipmaps) {
+                levels = renderer.renderMipmaps(tone, estimation, bloom, group);
+            } else {
+                renderer.render(tone, estimation, bloom, group);
+            }
+            if (renderer.accumulator() instanceof StripedAccumulator striped) {
+                out.println("Самые нагруженные пиксели: " + striped.topContendedPixels(CONTENDED_PIXELS_REPORTED));
+            }
+            if (levels.isEmpty()) {
+                renderer.saveImage();
+            } else {
+                Renderer.saveImages(levels);
+                out.println("Уменьшенные копии сохранены рядом с изображением: " + MipmapChain.LEVEL_SUFFIXES);
+            }
+            out.println(config.accumulationMode() == AccumulationMode.OUT_OF_CORE
+                ? "Тайлы изображения сохранены в src/main/resources/fractal-tiles"
+                : IMAGE_SAVED);
         }
     }
+
+    /**
+     * Генерирует фрактал по полосам в пределах бюджета памяти и сохраняет его.
+     */
+    private void renderBands(InputConfig config, List<Transformation> transformations, ToneSettings tone,
+        Bloom bloom, PrintStream out) throws InterruptedException {
+        BandedGenerator generator = new BandedGenerator(config, transformations,
+            config.memoryBudgetMb() * BYTES_PER_MB);
+        out.println("Полос: " + generator.bandCount() + ", параллельно: " + generator.concurrentBands()
+            + ", seed: " + config.seed());
+        Renderer.saveImage(generator.render(tone, bloom));
+        out.println(IMAGE_SAVED);
+    }
 }
@@ -3,18 +3,21 @@ package backend.academy.generate;
 import backend.academy.config.InputConfig;
 import backend.academy.domain.PixelColor;
 import backend.academy.domain.Point;
+import backend.academy.models.HitSink;
 import backend.academy.render.Renderer;
 import backend.academy.transformation.AffineTransformation;
 import backend.academy.transformation.Transformation;
 import java.util.List;
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 /**
  * Абстрактный класс для генераторов фрактального пламени.
  * Служит основой для создания конкретных реализаций генераторов.
+ * Аффинные преобразования и последовательности случайных чисел образцов выводятся из seed конфигурации,
+ * поэтому запуски с одинаковым seed дают одинаковые попадания независимо от распределения образцов по потокам.
  */
 public abstract class AbstractFlameGenerator {
     private static final int MAX_COLOR_VALUE = 255;
@@ -23,6 +26,7 @@ public abstract class AbstractFlameGenerator {
     protected final Renderer renderer;
     protected final List<AffineTransformation> affineTransformations;
     protected final List<Transformation> transformations;
+    private final long[] sampleSeeds;
 
     /**
      * Конструктор создаёт экземпляр генератора фракталов.
@@ -36,19 +40,23 @@ public abstract class AbstractFlameGenerator {
         this.renderer = renderer;
         this.transformations = transformations;
 
+        SplittableRandom seeds = new SplittableRandom(config.seed());
         this.affineTransformations = IntStream.range(0, config.affineTransformations())
-            .mapToObj(x -> new AffineTransformation())
+            .mapToObj(x -> new AffineTransformation(seeds))
             .collect(Collectors.toList());
+        this.sampleSeeds = seeds.longs(config.samples()).toArray();
     }
 
     /**
      * Генерирует образец фрактала.
      * Вызывает метод генерации внутри вложенного объекта генератора.
      *
+     * @param sample номер образца, определяющий его последовательность случайных чисел.
      * @param iterations количество итераций.
      */
-    protected void generateFlameSample(int iterations) {
-        Random random = ThreadLocalRandom.current();
+    protected void generateFlameSample(int sample, int iterations) {
+        RandomGenerator random = new SplittableRandom(sampleSeeds[sample]);
+        HitSink sink = renderer.sink();
         Point currentPoint = new Point(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1);
         for (int i = 0; i < iterations; i++) {
             AffineTransformation affineTransformation = affineTransformations
@@ -56,7 +64,7 @@ public abstract class AbstractFlameGenerator {
             Transformation transformation = transformations.get(random.nextInt(transformations.size()));
             currentPoint = affineTransformation.transform(currentPoint);
             currentPoint = transformation.transform(currentPoint);
-            renderer.renderPoint(currentPoint, getPointColor(currentPoint));
+            renderer.renderPoint(currentPoint, getPointColor(currentPoint), sink);
         }
     }
 
@@ -0,0 +1,60 @@
+package backend.academy.generate;
+
+import backend.academy.accumulate.AccumulationSelector;
+import backend.academy.accumulate.ProbeAccumulator;
+import backend.academy.config.AccumulationMode;
+import backend.academy.config.InputConfig;
+import backend.academy.render.Renderer;
+import backend.academy.render.SymmetryGroup;
+import backend.academy.render.SymmetryResampler;
+import backend.academy.transformation.Transformation;
+import java.util.List;
+
+/**
+ * Разрешение режима {@link AccumulationMode#AUTO} перед генерацией.
+ * Короткий однопоточный прогон первого сэмпла с тем же seed накапливается в {@link ProbeAccumulator},
+ * который оценивает покрытие холста и долю попаданий в самые горячие пиксели; по этим оценкам,
+ * разрешению, числу потоков, доступной куче и памяти вне кучи {@link AccumulationSelector} выбирает режим.
+ * Конкуренция потоков не замеряется: доля горячих попаданий служит только эвристикой её вероятности.
+ * Явно заданный режим не меняется.
+ */
+public final class AccumulationProbe {
+
+    /**
+     * Количество итераций пробного прогона.
+     */
+    public static final int PROBE_ITERATIONS = 100_000;
+
+    private AccumulationProbe() {
+        // Предотвращение создания экземпляра утилитного класса
+    }
+
+    /**
+     * Заменяет режим {@link AccumulationMode#AUTO} выбранным по пробному прогону.
+     *
+     * @param config Конфигурация генерации.
+     * @param transformations Список трансформаций.
+     * @return конфигурация с конкретным режимом накопления; при явно заданном режиме — исходная.
+     */
+    public static InputConfig resolve(InputConfig config, List<Transformation> transformations) {
+        if (config.accumulationMode() != AccumulationMode.AUTO) {
+            return config;
+        }
+        SymmetryGroup symmetry = SymmetryGroup.of(config.symmetry(), config.axesCount());
+        int gridWidth = config.width() * config.supersampling().factor();
+        int gridHeight = config.height() * config.supersampling().factor();
+        ProbeAccumulator probe = new ProbeAccumulator(gridWidth, gridHeight);
+        Renderer renderer = new Renderer(gridWidth, gridHeight, symmetry, probe);
+        new SingleThreadedGenerator(config, transformations, renderer)
+            .generateFlameSample(0, Math.min(config.iterations(), PROBE_ITERATIONS));
+        int factor = config.supersampling().factor();
+        AccumulationSelector.Canvas canvas = new AccumulationSelector.Canvas(gridWidth, gridHeight,
+            SymmetryResampler.sourceSize(config.width(), symmetry) * factor,
+            SymmetryResampler.sourceSize(config.height(), symmetry) * factor,
+            SymmetryResampler.intermediateBytes(config.width(), config.height(), symmetry, factor));
+        AccumulationSelector.Choice choice = AccumulationSelector.select(canvas,
+            config.multithreaded() ? config.threads() : 1, Runtime.getRuntime().maxMemory(),
+            AccumulationSelector.offHeapMemory(), probe.coverage(), probe.hotShare(), config.splatting());
+        return config.withAccumulationMode(choice.mode());
+    }
+}
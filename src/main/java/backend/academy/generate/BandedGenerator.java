@@ -0,0 +1,159 @@
+package backend.academy.generate;
+
+import backend.academy.accumulate.BandAccumulator;
+import backend.academy.config.Bloom;
+import backend.academy.config.DensityEstimation;
+import backend.academy.config.InputConfig;
+import backend.academy.models.Histogram;
+import backend.academy.render.BandedImage;
+import backend.academy.render.BloomFilter;
+import backend.academy.render.Renderer;
+import backend.academy.render.SymmetryGroup;
+import backend.academy.render.ToneMapper;
+import backend.academy.render.ToneSettings;
+import backend.academy.transformation.Transformation;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Многопроходная генерация по горизонтальным полосам в пределах бюджета памяти.
+ * Холст делится на полосы, буфер накопления которых помещается в бюджет; для каждой полосы генератор
+ * перезапускается с тем же seed и накапливает только попадания в её строки. Все проходы дают одни и те же
+ * попадания, поэтому полосы стыкуются без швов: память обменивается на процессорное время без временных файлов.
+ * В бюджет входит и само изображение ({@link BandedImage#BYTES_PER_PIXEL} байт на пиксель): полосы делят
+ * то, что остаётся после него. Если в бюджет помещается несколько полос, они генерируются параллельно
+ * и делят между собой потоки.
+ * Тонирование, яркость, насыщенность, sRGB и свечение работают так же, как при рендере целиком;
+ * оценка плотности и уменьшенные копии недоступны ({@link #checkPostProcessing}).
+ */
+public class BandedGenerator {
+
+    private static final long BYTES_PER_PIXEL = (long) Histogram.CHANNELS * Long.BYTES;
+
+    private final InputConfig config;
+    private final List<Transformation> transformations;
+    private final int bandRows;
+    private final int bandCount;
+    private final int concurrentBands;
+
+    /**
+     * Создаёт генератор и делит холст на полосы.
+     *
+     * @param config Конфигурация генерации; seed определяет попадания каждого прохода.
+     * @param transformations Список трансформаций.
+     * @param memoryBudgetBytes Бюджет памяти изображения и буферов накопления полос в байтах.
+     */
+    public BandedGenerator(InputConfig config, List<Transformation> transformations, long memoryBudgetBytes) {
+        if (config.splatting()) {
+            throw new IllegalArgumentException("Рендер полосами не поддерживает билинейное распределение попаданий");
+        }
+        if (config.supersampling().enabled()) {
+            throw new IllegalArgumentException("Рендер полосами не поддерживает суперсэмплинг");
+        }
+        this.config = config;
+        this.transformations = transformations;
+        long rowBytes = config.width() * BYTES_PER_PIXEL;
+        long imageBytes = (long) config.width() * config.height() * BandedImage.BYTES_PER_PIXEL;
+        long bandBudget = memoryBudgetBytes - imageBytes;
+        long maxRows = Math.min(config.height(), Math.max(0, bandBudget) / rowBytes);
+        if (maxRows == 0) {
+            throw new IllegalArgumentException("Бюджет памяти меньше изображения (" + imageBytes
+                + " байт) и одной строки буфера (" + rowBytes + " байт)");
+        }
+        this.bandCount = (int) ((config.height() + maxRows - 1) / maxRows);
+        this.bandRows = (config.height() + bandCount - 1) / bandCount;
+        this.concurrentBands = Math.clamp(bandBudget / (bandRows * rowBytes), 1,
+            Math.min(bandCount, config.threads()));
+    }
+
+    public int bandCount() {
+        return bandCount;
+    }
+
+    public int concurrentBands() {
+        return concurrentBands;
+    }
+
+    /**
+     * Проверяет до генерации, что постобработка доступна при рендере полосами. Оценке плотности и
+     * уменьшенным копиям нужны счётчики соседних полос, а полоса после сохранения хранит только средний
+     * цвет и плотность.
+     *
+     * @param estimation Оценка плотности; должна быть выключена.
+     * @param mipmaps {@code true}, если запрошены уменьшенные копии.
+     */
+    public static void checkPostProcessing(DensityEstimation estimation, boolean mipmaps) {
+        if (estimation.enabled()) {
+            throw new IllegalArgumentException("Рендер полосами не поддерживает оценку плотности");
+        }
+        if (mipmaps) {
+            throw new IllegalArgumentException("Рендер полосами не поддерживает уменьшенные копии");
+        }
+    }
+
+    /**
+     * Генерирует все полосы и тонирует изображение с общей точкой белого.
+     *
+     * @param gamma Коэффициент гаммы.
+     * @return итоговое изображение.
+     * @throws InterruptedException если генерация была прервана.
+     */
+    public BufferedImage render(double gamma) throws InterruptedException {
+        return render(new ToneSettings(gamma, Renderer.DEFAULT_VIBRANCY), Bloom.NONE);
+    }
+
+    /**
+     * Генерирует все полосы, тонирует изображение с общей точкой белого и добавляет свечение.
+     *
+     * @param settings Гамма, яркость, насыщенность и кодирование вывода.
+     * @param bloom Параметры свечения.
+     * @return итоговое изображение.
+     * @throws InterruptedException если генерация была прервана.
+     */
+    public BufferedImage render(ToneSettings settings, Bloom bloom) throws InterruptedException {
+        BandedImage image = new BandedImage(config.width(), config.height());
+        InputConfig bandConfig = config.withThreads(Math.max(1, config.threads() / concurrentBands));
+        List<Callable<Void>> bands = new ArrayList<>();
+        for (int band = 0; band < bandCount; band++) {
+            int top = band * bandRows;
+            bands.add(() -> {
+                renderBand(bandConfig, top, Math.min(bandRows, config.height() - top), image);
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(concurrentBands);
+        try {
+            for (Future<Void> band : executor.invokeAll(bands)) {
+                band.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка генерации полосы", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        BufferedImage result = image.toneMap(new ToneMapper(settings.gamma(), Renderer.WHITE_POINT_PERCENTILE),
+            settings);
+        BloomFilter.apply(((DataBufferInt) result.getRaster().getDataBuffer()).getData(), config.width(),
+            config.height(), bloom);
+        return result;
+    }
+
+    private void renderBand(InputConfig bandConfig, int top, int rows, BandedImage image)
+        throws InterruptedException {
+        BandAccumulator accumulator = new BandAccumulator(config.width(), top, rows);
+        Renderer renderer = new Renderer(config.width(), config.height(),
+            SymmetryGroup.of(config.symmetry(), config.axesCount()), accumulator);
+        AbstractFlameGenerator generator = bandConfig.multithreaded()
+            ? new MultiThreadedGenerator(bandConfig, transformations, renderer)
+            : new SingleThreadedGenerator(bandConfig, transformations, renderer);
+        generator.generate();
+        image.storeBand(accumulator.result(), top);
+    }
+}
@@ -37,7 +37,8 @@ public class MultiThreadedGenerator extends AbstractFlameGenerator {
     public void generate() throws InterruptedException {
         ExecutorService executorService = Executors.newFixedThreadPool(threadsCount);
         for (int i = 0; i < config.samples(); i++) {
-            executorService.execute(() -> generateFlameSample(config.iterations()));
+            int sample = i;
+            executorService.execute(() -> generateFlameSample(sample, config.iterations()));
         }
         executorService.shutdown();
         executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
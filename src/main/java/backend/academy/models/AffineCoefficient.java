@@ -1,10 +1,10 @@
 package backend.academy.models;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 public record AffineCoefficient(double a, double b, double d, double e, double c, double f) {
 
-    public static AffineCoefficient generate(Random random) {
+    public static AffineCoefficient generate(RandomGenerator random) {
         double a;
         double b;
         double c;
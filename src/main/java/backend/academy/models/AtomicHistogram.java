@@ -0,0 +1,126 @@
+package backend.academy.models;
+
+import backend.academy.domain.PixelColor;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Общий плоский буфер накопления без блокировок.
+ * Значения пикселя лежат подряд в массиве {@code long[]} и обновляются через {@link VarHandle}:
+ * в точном режиме атомарным {@code getAndAdd}, в приближённом — парой opaque-чтения и opaque-записи.
+ * Приближённый режим не даёт атомарности: при одновременной записи в один пиксель часть попаданий
+ * теряется, зато стоимость попадания равна обычной записи в память.
+ */
+public class AtomicHistogram implements Histogram, WeightedHitSink {
+
+    private static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final PixelLayout layout;
+    private final boolean exact;
+    private final long[] data;
+    private final BufferPool pool;
+    private boolean released;
+
+    /**
+     * Создаёт пустой буфер заданного размера с построчной раскладкой.
+     *
+     * @param width Ширина буфера в пикселях.
+     * @param height Высота буфера в пикселях.
+     * @param exact {@code true} для атомарных обновлений, {@code false} для приближённых.
+     */
+    public AtomicHistogram(int width, int height, boolean exact) {
+        this(new RowMajorLayout(width, height), exact);
+    }
+
+    /**
+     * Создаёт пустой буфер с заданной раскладкой пикселей.
+     *
+     * @param layout Раскладка пикселей.
+     * @param exact {@code true} для атомарных обновлений, {@code false} для приближённых.
+     */
+    public AtomicHistogram(PixelLayout layout, boolean exact) {
+        this(layout, exact, null);
+    }
+
+    /**
+     * Создаёт пустой буфер с заданной раскладкой пикселей на массиве из пула.
+     * Массив возвращается в пул через {@link #release()}.
+     *
+     * @param layout Раскладка пикселей.
+     * @param exact {@code true} для атомарных обновлений, {@code false} для приближённых.
+     * @param pool Пул массивов или {@code null} для нового массива.
+     */
+    public AtomicHistogram(PixelLayout layout, boolean exact, BufferPool pool) {
+        this.layout = layout;
+        this.exact = exact;
+        int length = Math.multiplyExact(layout.capacity(), CHANNELS);
+        this.data = pool != null ? pool.acquireLongs(length) : new long[length];
+        this.pool = pool;
+    }
+
+    @Override
+    public int width() {
+        return layout.width();
+    }
+
+    @Override
+    public int height() {
+        return layout.height();
+    }
+
+    @Override
+    public void add(int x, int y, PixelColor color) {
+        int base = layout.index(x, y) * CHANNELS;
+        if (exact) {
+            ELEMENTS.getAndAdd(data, base + HITS, 1L);
+            ELEMENTS.getAndAdd(data, base + RED, (long) color.red());
+            ELEMENTS.getAndAdd(data, base + GREEN, (long) color.green());
+            ELEMENTS.getAndAdd(data, base + BLUE, (long) color.blue());
+        } else {
+            addOpaque(base + HITS, 1L);
+            addOpaque(base + RED, color.red());
+            addOpaque(base + GREEN, color.green());
+            addOpaque(base + BLUE, color.blue());
+        }
+    }
+
+    @Override
+    public void add(int x, int y, PixelColor color, long weight) {
+        int base = layout.index(x, y) * CHANNELS;
+        if (exact) {
+            ELEMENTS.getAndAdd(data, base + HITS, weight);
+            ELEMENTS.getAndAdd(data, base + RED, color.red() * weight);
+            ELEMENTS.getAndAdd(data, base + GREEN, color.green() * weight);
+            ELEMENTS.getAndAdd(data, base + BLUE, color.blue() * weight);
+        } else {
+            addOpaque(base + HITS, weight);
+            addOpaque(base + RED, color.red() * weight);
+            addOpaque(base + GREEN, color.green() * weight);
+            addOpaque(base + BLUE, color.blue() * weight);
+        }
+    }
+
+    private void addOpaque(int index, long delta) {
+        ELEMENTS.setOpaque(data, index, (long) ELEMENTS.getOpaque(data, index) + delta);
+    }
+
+    /**
+     * Копирует строку буфера. Вызывается после завершения генерации,
+     * когда все записи уже видны читающему потоку.
+     */
+    @Override
+    public void readRow(int y, long[] row) {
+        DensityHistogram.readRow(layout, data, y, row);
+    }
+
+    /**
+     * Возвращает массив значений в пул, из которого он получен; для буфера без пула ничего не делает.
+     * После возврата буфер использовать нельзя. Повторные вызовы игнорируются.
+     */
+    public synchronized void release() {
+        if (pool != null && !released) {
+            released = true;
+            pool.release(data);
+        }
+    }
+}
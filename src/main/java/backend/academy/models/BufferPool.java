@@ -0,0 +1,153 @@
+package backend.academy.models;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Пул крупных массивов буферов накопления ({@code long[]}) и растров изображений ({@code int[]}),
+ * переиспользуемых между рендерами в одной JVM. Массивы хранятся по длине; возвращённый массив выдаётся
+ * снова только после очистки, которая для больших массивов идёт параллельно блоками через
+ * {@link Arrays#fill}. Без пула каждый рендер выделял сотни мегабайт, которые переживали молодое
+ * поколение и вызывали полные сборки мусора. Свободные массивы держатся через {@link SoftReference},
+ * поэтому при нехватке кучи сборщик забирает их раньше, чем возникнет {@link OutOfMemoryError},
+ * а их общий объём ограничен. Методы потокобезопасны.
+ */
+public final class BufferPool {
+
+    private static final BufferPool SHARED = new BufferPool(Runtime.getRuntime().maxMemory() / 4);
+    private static final int CLEAR_BLOCK = 262_144;
+
+    private final long maxRetainedBytes;
+    private final Map<Integer, ArrayDeque<SoftReference<long[]>>> longs = new HashMap<>();
+    private final Map<Integer, ArrayDeque<SoftReference<int[]>>> ints = new HashMap<>();
+    private long retainedBytes;
+
+    /**
+     * Создаёт пул.
+     *
+     * @param maxRetainedBytes Наибольший объём свободных массивов в пуле; лишние возвращённые массивы
+     *     отдаются сборщику мусора.
+     */
+    public BufferPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * Возвращает общий пул процесса; свободные массивы занимают не больше четверти кучи.
+     *
+     * @return общий пул.
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Выдаёт обнулённый массив значений буфера накопления.
+     *
+     * @param length Длина массива.
+     * @return массив из пула или новый массив.
+     */
+    public long[] acquireLongs(int length) {
+        long[] array = poll(longs, length, Long.BYTES);
+        if (array == null) {
+            return new long[length];
+        }
+        clear(length, (from, to) -> Arrays.fill(array, from, to, 0L));
+        return array;
+    }
+
+    /**
+     * Выдаёт обнулённый массив пикселей растра.
+     *
+     * @param length Длина массива.
+     * @return массив из пула или новый массив.
+     */
+    public int[] acquireInts(int length) {
+        int[] array = poll(ints, length, Integer.BYTES);
+        if (array == null) {
+            return new int[length];
+        }
+        clear(length, (from, to) -> Arrays.fill(array, from, to, 0));
+        return array;
+    }
+
+    /**
+     * Возвращает массив в пул. После возврата массив использовать нельзя.
+     *
+     * @param array Массив, полученный через {@link #acquireLongs(int)} или созданный вызывающим кодом.
+     */
+    public void release(long[] array) {
+        offer(longs, array, array.length, (long) array.length * Long.BYTES);
+    }
+
+    /**
+     * Возвращает массив растра в пул. После возврата массив использовать нельзя.
+     *
+     * @param array Массив, полученный через {@link #acquireInts(int)} или созданный вызывающим кодом.
+     */
+    public void release(int[] array) {
+        offer(ints, array, array.length, (long) array.length * Integer.BYTES);
+    }
+
+    /**
+     * Возвращает объём свободных массивов, учтённых пулом; часть из них могла быть уже собрана сборщиком.
+     *
+     * @return байты свободных массивов.
+     */
+    public synchronized long retainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * Освобождает все свободные массивы.
+     */
+    public synchronized void clear() {
+        longs.clear();
+        ints.clear();
+        retainedBytes = 0;
+    }
+
+    private synchronized <T> T poll(Map<Integer, ArrayDeque<SoftReference<T>>> arrays, int length, int elementBytes) {
+        ArrayDeque<SoftReference<T>> free = arrays.get(length);
+        while (free != null && !free.isEmpty()) {
+            retainedBytes -= (long) length * elementBytes;
+            T array = free.poll().get();
+            if (array != null) {
+                return array;
+            }
+        }
+        return null;
+    }
+
+    private synchronized <T> void offer(Map<Integer, ArrayDeque<SoftReference<T>>> arrays, T array, int length,
+        long bytes) {
+        if (retainedBytes + bytes <= maxRetainedBytes) {
+            arrays.computeIfAbsent(length, key -> new ArrayDeque<>()).push(new SoftReference<>(array));
+            retainedBytes += bytes;
+        }
+    }
+
+    /**
+     * Обнуляет массив блоками; блоки большого массива очищаются параллельно.
+     */
+    private static void clear(int length, RangeClear range) {
+        if (length <= CLEAR_BLOCK) {
+            range.clear(0, length);
+            return;
+        }
+        IntStream.range(0, (length + CLEAR_BLOCK - 1) / CLEAR_BLOCK).parallel()
+            .forEach(block -> range.clear(block * CLEAR_BLOCK, Math.min(length, (block + 1) * CLEAR_BLOCK)));
+    }
+
+    /**
+     * Очистка диапазона элементов массива.
+     */
+    @FunctionalInterface
+    private interface RangeClear {
+        void clear(int from, int to);
+    }
+}
@@ -0,0 +1,181 @@
+package backend.academy.models;
+
+import backend.academy.domain.PixelColor;
+import java.util.Arrays;
+
+/**
+ * Компактный буфер накопления с 16-битными счётчиками и расширением по тайлам.
+ * Холст разбит на тайлы 64x64; тайл хранит попадания и суммы каналов в 16-битных {@code char},
+ * то есть 8 байт на пиксель вместо 32. Если очередное попадание переполнило бы счётчик любого пикселя
+ * тайла, весь тайл переводится в 64-битные счётчики, поэтому значения остаются точными.
+ * Тайлы выделяются при первом попадании, и нетронутые области холста памяти не занимают.
+ * Экземпляр не потокобезопасен: писать в него должен один поток.
+ */
+public class CompactHistogram implements Histogram {
+
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final int TILE_VALUES = TILE_SIZE * TILE_SIZE * CHANNELS;
+    private static final int MAX_COMPACT = Character.MAX_VALUE;
+
+    private final int width;
+    private final int height;
+    private final int tilesX;
+    private final char[][] compact;
+    private final long[][] wide;
+
+    /**
+     * Создаёт пустой буфер.
+     *
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     */
+    public CompactHistogram(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_MASK) >> TILE_SHIFT;
+        int tiles = Math.multiplyExact(tilesX, (height + TILE_MASK) >> TILE_SHIFT);
+        this.compact = new char[tiles][];
+        this.wide = new long[tiles][];
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Возвращает количество тайлов буфера.
+     *
+     * @return количество тайлов.
+     */
+    public int tileCount() {
+        return compact.length;
+    }
+
+    /**
+     * Оценивает объём памяти, занятый значениями тайлов.
+     *
+     * @return байты массивов счётчиков без заголовков объектов.
+     */
+    public long footprintBytes() {
+        long bytes = 0;
+        for (int tile = 0; tile < compact.length; tile++) {
+            if (wide[tile] != null) {
+                bytes += (long) TILE_VALUES * Long.BYTES;
+            } else if (compact[tile] != null) {
+                bytes += (long) TILE_VALUES * Character.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void add(int x, int y, PixelColor color) {
+        int tile = (y >> TILE_SHIFT) * tilesX + (x >> TILE_SHIFT);
+        int base = (((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK)) * CHANNELS;
+        add(tile, base, 1, color.red(), color.green(), color.blue());
+    }
+
+    /**
+     * Прибавляет к тайлам из диапазона соответствующие тайлы другого буфера того же размера.
+     * Пустой тайл этого буфера забирает массив другого буфера без копирования, поэтому после слияния
+     * другой буфер использовать нельзя. Тайлы независимы, и непересекающиеся диапазоны можно сливать параллельно.
+     *
+     * @param other Буфер того же размера.
+     * @param fromTile Первый тайл диапазона (включительно).
+     * @param toTile Последний тайл диапазона (не включительно).
+     */
+    public void addTiles(CompactHistogram other, int fromTile, int toTile) {
+        for (int tile = fromTile; tile < toTile; tile++) {
+            long[] sourceWide = other.wide[tile];
+            char[] sourceCompact = other.compact[tile];
+            if (wide[tile] == null && compact[tile] == null) {
+                wide[tile] = sourceWide;
+                compact[tile] = sourceCompact;
+            } else if (sourceWide != null || sourceCompact != null) {
+                for (int base = 0; base < TILE_VALUES; base += CHANNELS) {
+                    long hits = value(sourceWide, sourceCompact, base + HITS);
+                    if (hits != 0) {
+                        add(tile, base, hits, value(sourceWide, sourceCompact, base + RED),
+                            value(sourceWide, sourceCompact, base + GREEN),
+                            value(sourceWide, sourceCompact, base + BLUE));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void readRow(int y, long[] row) {
+        int tileRow = (y >> TILE_SHIFT) * tilesX;
+        int offset = (y & TILE_MASK) << TILE_SHIFT;
+        for (int tileX = 0; tileX < tilesX; tileX++) {
+            int tile = tileRow + tileX;
+            int target = (tileX << TILE_SHIFT) * CHANNELS;
+            int length = Math.min(TILE_SIZE, width - (tileX << TILE_SHIFT)) * CHANNELS;
+            int source = offset * CHANNELS;
+            if (wide[tile] != null) {
+                System.arraycopy(wide[tile], source, row, target, length);
+            } else if (compact[tile] != null) {
+                char[] values = compact[tile];
+                for (int i = 0; i < length; i++) {
+                    row[target + i] = values[source + i];
+                }
+            } else {
+                Arrays.fill(row, target, target + length, 0);
+            }
+        }
+    }
+
+    private void add(int tile, int base, long hits, long red, long green, long blue) {
+        long[] wideTile = wide[tile];
+        if (wideTile == null) {
+            char[] values = compact[tile];
+            if (values == null) {
+                values = new char[TILE_VALUES];
+                compact[tile] = values;
+            }
+            long newHits = values[base + HITS] + hits;
+            long newRed = values[base + RED] + red;
+            long newGreen = values[base + GREEN] + green;
+            long newBlue = values[base + BLUE] + blue;
+            if ((newHits | newRed | newGreen | newBlue) <= MAX_COMPACT) {
+                values[base + HITS] = (char) newHits;
+                values[base + RED] = (char) newRed;
+                values[base + GREEN] = (char) newGreen;
+                values[base + BLUE] = (char) newBlue;
+                return;
+            }
+            wideTile = promote(tile);
+        }
+        wideTile[base + HITS] += hits;
+        wideTile[base + RED] += red;
+        wideTile[base + GREEN] += green;
+        wideTile[base + BLUE] += blue;
+    }
+
+    /**
+     * Переводит тайл в 64-битные счётчики, перенося накопленные значения.
+     */
+    private long[] promote(int tile) {
+        long[] values = new long[TILE_VALUES];
+        char[] source = compact[tile];
+        for (int i = 0; i < TILE_VALUES; i++) {
+            values[i] = source[i];
+        }
+        wide[tile] = values;
+        compact[tile] = null;
+        return values;
+    }
+
+    private static long value(long[] wideTile, char[] compactTile, int index) {
+        return wideTile != null ? wideTile[index] : compactTile[index];
+    }
+}
@@ -0,0 +1,226 @@
+package backend.academy.models;
+
+import backend.academy.domain.PixelColor;
+
+/**
+ * Плоский буфер накопления без синхронизации.
+ * Значения пикселя (попадания и суммы каналов) лежат подряд в одном массиве {@code long[]},
+ * поэтому одно попадание затрагивает одну кэш-линию. Порядок пикселей задаёт {@link PixelLayout};
+ * при построчной раскладке строка копируется одним {@code arraycopy}.
+ * Экземпляр не потокобезопасен: писать в него должен один поток.
+ */
+public class DensityHistogram implements Histogram, WeightedHitSink {
+
+    private final PixelLayout layout;
+    private final long[] data;
+    private final BufferPool pool;
+    private boolean released;
+
+    /**
+     * Создаёт пустой буфер заданного размера с построчной раскладкой.
+     *
+     * @param width Ширина буфера в пикселях.
+     * @param height Высота буфера в пикселях.
+     */
+    public DensityHistogram(int width, int height) {
+        this(new RowMajorLayout(width, height));
+    }
+
+    /**
+     * Создаёт пустой буфер с заданной раскладкой пикселей.
+     *
+     * @param layout Раскладка пикселей.
+     */
+    public DensityHistogram(PixelLayout layout) {
+        this.layout = layout;
+        this.data = new long[Math.multiplyExact(layout.capacity(), CHANNELS)];
+        this.pool = null;
+    }
+
+    /**
+     * Создаёт пустой буфер с заданной раскладкой пикселей на массиве из пула.
+     * Массив возвращается в пул через {@link #release()}.
+     *
+     * @param layout Раскладка пикселей.
+     * @param pool Пул массивов.
+     */
+    public DensityHistogram(PixelLayout layout, BufferPool pool) {
+        this.layout = layout;
+        this.data = pool.acquireLongs(Math.multiplyExact(layout.capacity(), CHANNELS));
+        this.pool = pool;
+    }
+
+    @Override
+    public int width() {
+        return layout.width();
+    }
+
+    @Override
+    public int height() {
+        return layout.height();
+    }
+
+    /**
+     * Возвращает номер пикселя в буфере согласно раскладке.
+     *
+     * @param x Горизонтальная координата пикселя.
+     * @param y Вертикальная координата пикселя.
+     * @return номер пикселя для {@link #add(int, int, int, int)}.
+     */
+    public int indexOf(int x, int y) {
+        return layout.index(x, y);
+    }
+
+    @Override
+    public void add(int x, int y, PixelColor color) {
+        int base = layout.index(x, y) * CHANNELS;
+        data[base + HITS]++;
+        data[base + RED] += color.red();
+        data[base + GREEN] += color.green();
+        data[base + BLUE] += color.blue();
+    }
+
+    /**
+     * Возвращает значение канала пикселя.
+     *
+     * @param index Индекс пикселя ({@link #indexOf(int, int)}).
+     * @param channel Смещение канала: {@link #HITS}, {@link #RED}, {@link #GREEN} или {@link #BLUE}.
+     * @return количество попаданий или сумма канала.
+     */
+    public long value(int index, int channel) {
+        return data[index * CHANNELS + channel];
+    }
+
+    @Override
+    public void add(int x, int y, PixelColor color, long weight) {
+        addWeighted(layout.index(x, y) * CHANNELS, color, weight);
+    }
+
+    /**
+     * Распределяет попадание по четырём пикселям. При построчной раскладке два пикселя каждой строки
+     * лежат подряд: 8 значений, то есть одна или две кэш-линии на строку и одно вычисление номера.
+     */
+    @Override
+    public void splat(int x, int y, PixelColor color, int fractionX, int fractionY) {
+        long left = SUBPIXELS - fractionX;
+        long top = SUBPIXELS - fractionY;
+        int upper = layout.index(x, y) * CHANNELS;
+        int lower = layout.index(x, y + 1) * CHANNELS;
+        if (layout.rowMajor()) {
+            addWeighted(upper, color, left * top);
+            addWeighted(upper + CHANNELS, color, fractionX * top);
+            addWeighted(lower, color, left * fractionY);
+            addWeighted(lower + CHANNELS, color, (long) fractionX * fractionY);
+        } else {
+            addWeighted(upper, color, left * top);
+            addWeighted(layout.index(x + 1, y) * CHANNELS, color, fractionX * top);
+            addWeighted(lower, color, left * fractionY);
+            addWeighted(layout.index(x + 1, y + 1) * CHANNELS, color, (long) fractionX * fractionY);
+        }
+    }
+
+    private void addWeighted(int base, PixelColor color, long weight) {
+        data[base + HITS] += weight;
+        data[base + RED] += color.red() * weight;
+        data[base + GREEN] += color.green() * weight;
+        data[base + BLUE] += color.blue() * weight;
+    }
+
+    /**
+     * Регистрирует попадание в пиксель по его номеру в буфере ({@link #indexOf(int, int)}).
+     *
+     * @param index Индекс пикселя.
+     * @param red Красный компонент цвета.
+     * @param green Зелёный компонент цвета.
+     * @param blue Синий компонент цвета.
+     */
+    public void add(int index, int red, int green, int blue) {
+        int base = index * CHANNELS;
+        data[base + HITS]++;
+        data[base + RED] += red;
+        data[base + GREEN] += green;
+        data[base + BLUE] += blue;
+    }
+
+    /**
+     * Добавляет к пикселю попадания, накопленные вне буфера.
+     *
+     * @param index Индекс пикселя ({@link #indexOf(int, int)}).
+     * @param hits Количество попаданий.
+     * @param red Сумма красного канала.
+     * @param green Сумма зелёного канала.
+     * @param blue Сумма синего канала.
+     */
+    public void addPoints(int index, long hits, long red, long green, long blue) {
+        int base = index * CHANNELS;
+        data[base + HITS] += hits;
+        data[base + RED] += red;
+        data[base + GREEN] += green;
+        data[base + BLUE] += blue;
+    }
+
+    @Override
+    public void readRow(int y, long[] row) {
+        readRow(layout, data, y, row);
+    }
+
+    /**
+     * Копирует строку плоского буфера в построчный массив.
+     * Построчная раскладка копируется одним блоком, остальные — по пикселю через номер в раскладке.
+     *
+     * @param layout Раскладка пикселей буфера.
+     * @param data Плоский буфер по {@link #CHANNELS} значений на пиксель.
+     * @param y Номер строки.
+     * @param row Целевой массив.
+     */
+    static void readRow(PixelLayout layout, long[] data, int y, long[] row) {
+        int width = layout.width();
+        if (layout.rowMajor()) {
+            System.arraycopy(data, layout.index(0, y) * CHANNELS, row, 0, width * CHANNELS);
+            return;
+        }
+        for (int x = 0, target = 0; x < width; x++, target += CHANNELS) {
+            int source = layout.index(x, y) * CHANNELS;
+            row[target + HITS] = data[source + HITS];
+            row[target + RED] = data[source + RED];
+            row[target + GREEN] = data[source + GREEN];
+            row[target + BLUE] = data[source + BLUE];
+        }
+    }
+
+    /**
+     * Возвращает длину внутреннего массива: {@code capacity * CHANNELS}.
+     *
+     * @return количество значений в буфере.
+     */
+    public int length() {
+        return data.length;
+    }
+
+    /**
+     * Прибавляет к диапазону значений этого буфера соответствующий диапазон другого буфера.
+     * Простой цикл по массивам без зависимостей между итерациями векторизуется JIT-компилятором,
+     * поэтому слияние упирается в пропускную способность памяти.
+     *
+     * @param other Буфер того же размера.
+     * @param from Начальный индекс значения (включительно).
+     * @param to Конечный индекс значения (не включительно).
+     */
+    public void addRange(DensityHistogram other, int from, int to) {
+        long[] source = other.data;
+        for (int i = from; i < to; i++) {
+            data[i] += source[i];
+        }
+    }
+
+    /**
+     * Возвращает массив значений в пул, из которого он получен; для буфера без пула ничего не делает.
+     * После возврата буфер использовать нельзя. Повторные вызовы игнорируются.
+     */
+    public synchronized void release() {
+        if (pool != null && !released) {
+            released = true;
+            pool.release(data);
+        }
+    }
+}
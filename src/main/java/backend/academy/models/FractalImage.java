@@ -1,22 +1,30 @@
 package backend.academy.models;
 
 import backend.academy.domain.Pixel;
-import java.util.stream.IntStream;
+import backend.academy.domain.PixelColor;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import lombok.Getter;
 
 /**
  * Класс представляющий изображение фрактала.
  * Хранит массив пикселей и обеспечивает доступ к пикселям по координатам.
+ * Каждый пиксель защищён собственным монитором, поэтому попадания можно добавлять из нескольких потоков.
+ * Объекты пикселей создаются при первом попадании: неосвещённые пиксели остаются пустыми ссылками,
+ * и создание изображения не выделяет {@code width * height} объектов, которые иначе доживали бы
+ * до старого поколения.
  */
-public class FractalImage {
+public class FractalImage implements Histogram {
+
+    private static final VarHandle PIXELS = MethodHandles.arrayElementVarHandle(Pixel[].class);
 
     private final Pixel[] pixels;
-    private final int width;
+    @Getter private final int width;
     @Getter private final int height;
 
     /**
      * Конструктор класса FractalImage.
-     * Инициализирует изображение заданного размера, заполняя его пикселями с начальным цветом (черный).
+     * Инициализирует пустое (чёрное) изображение заданного размера.
      *
      * @param width Ширина изображения в пикселях.
      * @param height Высота изображения в пикселях.
@@ -24,8 +32,7 @@ public class FractalImage {
     public FractalImage(int width, int height) {
         this.width = width;
         this.height = height;
-        this.pixels = new Pixel[width * height];
-        IntStream.range(0, width * height).forEach(i -> this.pixels[i] = new Pixel(0, 0, 0));
+        this.pixels = new Pixel[Math.multiplyExact(width, height)];
     }
 
     /**
@@ -33,10 +40,64 @@ public class FractalImage {
      *
      * @param x Горизонтальная координата пикселя.
      * @param y Вертикальная координата пикселя.
-     * @return Объект {@link Pixel}, соответствующий указанным координатам.
+     * @return Объект {@link Pixel}, соответствующий указанным координатам; создаётся при первом обращении.
      */
     public Pixel getPixel(int x, int y) {
-        return this.pixels[y * width + x];
+        return pixel(y * width + x);
+    }
+
+    /**
+     * Возвращает пиксель по номеру, создавая его при первом обращении. Если два потока создают
+     * пиксель одновременно, сохраняется и возвращается обоим первый записанный объект.
+     */
+    private Pixel pixel(int index) {
+        Pixel pixel = (Pixel) PIXELS.getAcquire(pixels, index);
+        if (pixel != null) {
+            return pixel;
+        }
+        Pixel created = new Pixel(0, 0, 0);
+        Pixel witness = (Pixel) PIXELS.compareAndExchangeRelease(pixels, index, null, created);
+        return witness != null ? witness : created;
+    }
+
+    @Override
+    public void add(int x, int y, PixelColor color) {
+        Pixel pixel = getPixel(x, y);
+        synchronized (pixel) {
+            pixel.addPoint(color);
+        }
     }
 
+    /**
+     * Добавляет к пикселю попадания, накопленные вне изображения.
+     *
+     * @param index Индекс пикселя {@code y * width + x}.
+     * @param hits Количество попаданий.
+     * @param red Сумма красного канала.
+     * @param green Сумма зелёного канала.
+     * @param blue Сумма синего канала.
+     */
+    public void addPoints(int index, long hits, long red, long green, long blue) {
+        if (hits == 0) {
+            return;
+        }
+        Pixel pixel = pixel(index);
+        synchronized (pixel) {
+            pixel.addPoints(hits, red, green, blue);
+        }
+    }
+
+    @Override
+    public void readRow(int y, long[] row) {
+        int offset = y * width;
+        for (int x = 0; x < width; x++) {
+            Pixel pixel = (Pixel) PIXELS.getAcquire(pixels, offset + x);
+            int base = x * CHANNELS;
+            long hits = pixel == null ? 0 : pixel.pointsCount();
+            row[base + HITS] = hits;
+            row[base + RED] = hits == 0 ? 0 : pixel.red();
+            row[base + GREEN] = hits == 0 ? 0 : pixel.green();
+            row[base + BLUE] = hits == 0 ? 0 : pixel.blue();
+        }
+    }
 }
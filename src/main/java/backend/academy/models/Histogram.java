@@ -0,0 +1,57 @@
+package backend.academy.models;
+
+/**
+ * Буфер накопления попаданий фрактала.
+ * Для каждого пикселя хранит количество попаданий и суммы цветовых каналов, по которым
+ * проход тонирования восстанавливает плотность и средний цвет пикселя.
+ */
+public interface Histogram extends HitSink {
+
+    /**
+     * Количество значений на один пиксель в строке, заполняемой {@link #readRow(int, long[])}.
+     */
+    int CHANNELS = 4;
+
+    /**
+     * Смещение количества попаданий внутри пикселя.
+     */
+    int HITS = 0;
+
+    /**
+     * Смещение суммы красного канала внутри пикселя.
+     */
+    int RED = 1;
+
+    /**
+     * Смещение суммы зелёного канала внутри пикселя.
+     */
+    int GREEN = 2;
+
+    /**
+     * Смещение суммы синего канала внутри пикселя.
+     */
+    int BLUE = 3;
+
+    /**
+     * Возвращает ширину буфера в пикселях.
+     *
+     * @return ширина буфера.
+     */
+    int width();
+
+    /**
+     * Возвращает высоту буфера в пикселях.
+     *
+     * @return высота буфера.
+     */
+    int height();
+
+    /**
+     * Копирует строку буфера в массив по {@link #CHANNELS} значений на пиксель:
+     * количество попаданий и суммы красного, зелёного и синего каналов.
+     *
+     * @param y Номер строки.
+     * @param row Массив длиной не меньше {@code width() * CHANNELS}.
+     */
+    void readRow(int y, long[] row);
+}
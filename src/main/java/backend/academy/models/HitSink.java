@@ -0,0 +1,35 @@
+package backend.academy.models;
+
+import backend.academy.domain.PixelColor;
+
+/**
+ * Приёмник попаданий, в который рабочий поток генератора записывает точки.
+ * Взвешенные попадания билинейного распределения принимает расширение {@link WeightedHitSink};
+ * константы фиксированной точки весов объявлены здесь.
+ */
+public interface HitSink {
+
+    /**
+     * Количество бит дробной части субпиксельной координаты.
+     */
+    int SUBPIXEL_BITS = 8;
+
+    /**
+     * Единица субпиксельной координаты: {@code 1 << SUBPIXEL_BITS}.
+     */
+    int SUBPIXELS = 1 << SUBPIXEL_BITS;
+
+    /**
+     * Вес одного попадания при билинейном распределении: произведение единиц по обеим осям.
+     */
+    long SPLAT_WEIGHT = (long) SUBPIXELS * SUBPIXELS;
+
+    /**
+     * Регистрирует попадание в пиксель.
+     *
+     * @param x Горизонтальная координата пикселя.
+     * @param y Вертикальная координата пикселя.
+     * @param color Цвет попадания.
+     */
+    void add(int x, int y, PixelColor color);
+}
@@ -0,0 +1,71 @@
+package backend.academy.models;
+
+/**
+ * Тайловая раскладка с Z-порядком (Мортона) внутри тайла.
+ * Холст разбит на тайлы 32x32 пикселя, тайлы идут построчно, а пиксели внутри тайла — в порядке
+ * Мортона: биты {@code x} и {@code y} чередуются. Попадания фрактала группируются на плоскости,
+ * и в такой раскладке соседние по вертикали пиксели чаще оказываются в одной кэш-линии и странице,
+ * чем при построчной. Номер пикселя считается двумя табличными подстановками без циклов.
+ */
+public final class MortonLayout implements PixelLayout {
+
+    private static final int TILE_BITS = 5;
+    private static final int TILE_SIZE = 1 << TILE_BITS;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final int[] SPREAD = new int[TILE_SIZE];
+
+    static {
+        for (int value = 0; value < TILE_SIZE; value++) {
+            int spread = 0;
+            for (int bit = 0; bit < TILE_BITS; bit++) {
+                spread |= ((value >> bit) & 1) << (2 * bit);
+            }
+            SPREAD[value] = spread;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int tilesX;
+    private final int capacity;
+
+    /**
+     * Создаёт раскладку для холста заданного размера.
+     *
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     */
+    public MortonLayout(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_MASK) >> TILE_BITS;
+        int tilesY = (height + TILE_MASK) >> TILE_BITS;
+        this.capacity = Math.multiplyExact(Math.multiplyExact(tilesX, tilesY), TILE_SIZE * TILE_SIZE);
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public int index(int x, int y) {
+        int tile = (y >> TILE_BITS) * tilesX + (x >> TILE_BITS);
+        return (tile << (2 * TILE_BITS)) | SPREAD[x & TILE_MASK] | (SPREAD[y & TILE_MASK] << 1);
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean rowMajor() {
+        return false;
+    }
+}
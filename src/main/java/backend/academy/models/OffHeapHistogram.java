@@ -0,0 +1,79 @@
+package backend.academy.models;
+
+import backend.academy.domain.PixelColor;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Буфер накопления вне кучи на основе Foreign Function &amp; Memory API.
+ * Значения пикселя лежат подряд в сегменте общей арены, которая допускает доступ из всех потоков;
+ * попадания добавляются атомарным {@code getAndAdd}. Смещения считаются в {@code long}, поэтому
+ * число пикселей не ограничено размером массива Java, а многогигабайтный буфер не сканируется
+ * сборщиком мусора. Память освобождается детерминированно вызовом {@link #close()}.
+ */
+public class OffHeapHistogram implements Histogram, WeightedHitSink, AutoCloseable {
+
+    private static final VarHandle LONGS = ValueLayout.JAVA_LONG.varHandle();
+    private static final long PIXEL_BYTES = (long) CHANNELS * Long.BYTES;
+
+    private final int width;
+    private final int height;
+    private final Arena arena;
+    private final MemorySegment segment;
+
+    /**
+     * Выделяет обнулённый буфер заданного размера вне кучи.
+     *
+     * @param width Ширина буфера в пикселях.
+     * @param height Высота буфера в пикселях.
+     */
+    public OffHeapHistogram(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.arena = Arena.ofShared();
+        this.segment = arena.allocate(Math.multiplyExact((long) width * height, PIXEL_BYTES), Long.BYTES);
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public void add(int x, int y, PixelColor color) {
+        long offset = ((long) y * width + x) * PIXEL_BYTES;
+        LONGS.getAndAdd(segment, offset + HITS * Long.BYTES, 1L);
+        LONGS.getAndAdd(segment, offset + RED * Long.BYTES, (long) color.red());
+        LONGS.getAndAdd(segment, offset + GREEN * Long.BYTES, (long) color.green());
+        LONGS.getAndAdd(segment, offset + BLUE * Long.BYTES, (long) color.blue());
+    }
+
+    @Override
+    public void add(int x, int y, PixelColor color, long weight) {
+        long offset = ((long) y * width + x) * PIXEL_BYTES;
+        LONGS.getAndAdd(segment, offset + HITS * Long.BYTES, weight);
+        LONGS.getAndAdd(segment, offset + RED * Long.BYTES, color.red() * weight);
+        LONGS.getAndAdd(segment, offset + GREEN * Long.BYTES, color.green() * weight);
+        LONGS.getAndAdd(segment, offset + BLUE * Long.BYTES, color.blue() * weight);
+    }
+
+    @Override
+    public void readRow(int y, long[] row) {
+        MemorySegment.copy(segment, ValueLayout.JAVA_LONG, (long) y * width * PIXEL_BYTES, row, 0, width * CHANNELS);
+    }
+
+    /**
+     * Освобождает память буфера. После закрытия обращения к буферу завершаются исключением.
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
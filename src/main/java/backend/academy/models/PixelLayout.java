@@ -0,0 +1,45 @@
+package backend.academy.models;
+
+/**
+ * Раскладка пикселей в плоском буфере накопления: отображение координат пикселя в его номер в буфере.
+ */
+public interface PixelLayout {
+
+    /**
+     * Возвращает ширину холста в пикселях.
+     *
+     * @return ширина холста.
+     */
+    int width();
+
+    /**
+     * Возвращает высоту холста в пикселях.
+     *
+     * @return высота холста.
+     */
+    int height();
+
+    /**
+     * Возвращает номер пикселя в буфере.
+     *
+     * @param x Горизонтальная координата пикселя.
+     * @param y Вертикальная координата пикселя.
+     * @return номер пикселя в диапазоне {@code [0, capacity())}.
+     */
+    int index(int x, int y);
+
+    /**
+     * Возвращает количество ячеек буфера, включая выравнивание раскладки.
+     *
+     * @return количество ячеек.
+     */
+    int capacity();
+
+    /**
+     * Сообщает, лежат ли пиксели строки подряд в порядке возрастания {@code x}.
+     * Для таких раскладок строка копируется из буфера одним блоком.
+     *
+     * @return {@code true} для построчной раскладки.
+     */
+    boolean rowMajor();
+}
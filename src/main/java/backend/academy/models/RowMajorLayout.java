@@ -0,0 +1,25 @@
+package backend.academy.models;
+
+/**
+ * Построчная раскладка: номер пикселя {@code y * width + x}.
+ *
+ * @param width Ширина холста в пикселях.
+ * @param height Высота холста в пикселях.
+ */
+public record RowMajorLayout(int width, int height) implements PixelLayout {
+
+    @Override
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    @Override
+    public int capacity() {
+        return Math.multiplyExact(width, height);
+    }
+
+    @Override
+    public boolean rowMajor() {
+        return true;
+    }
+}
@@ -0,0 +1,195 @@
+package backend.academy.models;
+
+import backend.academy.domain.PixelColor;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import java.util.Arrays;
+
+/**
+ * Разреженный буфер накопления для холстов, освещённых лишь частично.
+ * Хранит только освещённые пиксели: хеш-таблица с открытой адресацией на примитивах сопоставляет номеру
+ * пикселя {@code y * width + x} слот, а значения слотов лежат подряд в плотных массивах в порядке
+ * первого попадания. Память пропорциональна числу освещённых пикселей, а не разрешению, и освещённые
+ * пиксели перебираются по слотам без обхода пустых областей холста.
+ * Экземпляр не потокобезопасен: писать в него должен один поток.
+ */
+public class SparseHistogram implements Histogram, WeightedHitSink {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int width;
+    private final int height;
+    private final Long2IntOpenHashMap slots = new Long2IntOpenHashMap(INITIAL_CAPACITY);
+    private long[] indices = new long[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY * CHANNELS];
+    private int size;
+    private volatile long[] sortedIndices;
+    private int[] sortedSlots;
+
+    /**
+     * Создаёт пустой буфер.
+     *
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     */
+    public SparseHistogram(int width, int height) {
+        this.width = width;
+        this.height = height;
+        slots.defaultReturnValue(-1);
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Возвращает количество освещённых пикселей.
+     *
+     * @return количество занятых слотов.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает номер пикселя {@code y * width + x}, хранимого в слоте.
+     *
+     * @param slot Слот от {@code 0} до {@link #size()} (не включительно).
+     * @return номер пикселя на холсте.
+     */
+    public long index(int slot) {
+        return indices[slot];
+    }
+
+    /**
+     * Возвращает значение канала пикселя в слоте.
+     *
+     * @param slot Слот от {@code 0} до {@link #size()} (не включительно).
+     * @param channel Смещение канала: {@link #HITS}, {@link #RED}, {@link #GREEN} или {@link #BLUE}.
+     * @return количество попаданий или сумма канала.
+     */
+    public long value(int slot, int channel) {
+        return values[slot * CHANNELS + channel];
+    }
+
+    @Override
+    public void add(int x, int y, PixelColor color) {
+        int base = slotOf((long) y * width + x) * CHANNELS;
+        values[base + HITS]++;
+        values[base + RED] += color.red();
+        values[base + GREEN] += color.green();
+        values[base + BLUE] += color.blue();
+    }
+
+    @Override
+    public void add(int x, int y, PixelColor color, long weight) {
+        int base = slotOf((long) y * width + x) * CHANNELS;
+        values[base + HITS] += weight;
+        values[base + RED] += color.red() * weight;
+        values[base + GREEN] += color.green() * weight;
+        values[base + BLUE] += color.blue() * weight;
+    }
+
+    /**
+     * Прибавляет к этому буферу все пиксели другого буфера того же размера.
+     *
+     * @param other Буфер, накопленный другим потоком.
+     */
+    public void addAll(SparseHistogram other) {
+        long[] source = other.values;
+        for (int slot = 0; slot < other.size; slot++) {
+            int base = slotOf(other.indices[slot]) * CHANNELS;
+            int from = slot * CHANNELS;
+            values[base + HITS] += source[from + HITS];
+            values[base + RED] += source[from + RED];
+            values[base + GREEN] += source[from + GREEN];
+            values[base + BLUE] += source[from + BLUE];
+        }
+        sortedIndices = null;
+    }
+
+    /**
+     * Копирует строку в плотный массив: пустые пиксели обнуляются, освещённые находятся бинарным поиском
+     * по отсортированным номерам пикселей. Упорядоченный индекс строится при первом чтении.
+     */
+    @Override
+    public void readRow(int y, long[] row) {
+        long[] sorted = sortedIndices();
+        Arrays.fill(row, 0, width * CHANNELS, 0);
+        long rowStart = (long) y * width;
+        int position = Arrays.binarySearch(sorted, rowStart);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        for (; position < sorted.length && sorted[position] < rowStart + width; position++) {
+            int target = (int) (sorted[position] - rowStart) * CHANNELS;
+            System.arraycopy(values, sortedSlots[position] * CHANNELS, row, target, CHANNELS);
+        }
+    }
+
+    /**
+     * Копирует подряд только освещённые пиксели строки: пустые промежутки не читаются и не обнуляются.
+     * Освещённые пиксели строки находятся одним бинарным поиском по отсортированным номерам пикселей.
+     *
+     * @param y Номер строки.
+     * @param columns Массив не короче ширины холста; в него пишутся столбцы освещённых пикселей по возрастанию.
+     * @param row Массив не короче {@code width * CHANNELS}; в него пишутся счётчики освещённых пикселей подряд,
+     *            по {@link #CHANNELS} значений на пиксель.
+     * @return количество освещённых пикселей строки.
+     */
+    public int readLitRow(int y, int[] columns, long[] row) {
+        long[] sorted = sortedIndices();
+        long rowStart = (long) y * width;
+        int position = Arrays.binarySearch(sorted, rowStart);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        int count = 0;
+        for (; position < sorted.length && sorted[position] < rowStart + width; position++, count++) {
+            columns[count] = (int) (sorted[position] - rowStart);
+            System.arraycopy(values, sortedSlots[position] * CHANNELS, row, count * CHANNELS, CHANNELS);
+        }
+        return count;
+    }
+
+    private int slotOf(long index) {
+        int slot = slots.putIfAbsent(index, size);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (size == indices.length) {
+            indices = Arrays.copyOf(indices, size * 2);
+            values = Arrays.copyOf(values, size * 2 * CHANNELS);
+        }
+        indices[size] = index;
+        if (sortedIndices != null) {
+            sortedIndices = null;
+        }
+        return size++;
+    }
+
+    private long[] sortedIndices() {
+        long[] sorted = sortedIndices;
+        if (sorted == null) {
+            synchronized (this) {
+                sorted = sortedIndices;
+                if (sorted == null) {
+                    sorted = Arrays.copyOf(indices, size);
+                    Arrays.parallelSort(sorted);
+                    int[] order = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        order[i] = slots.get(sorted[i]);
+                    }
+                    sortedSlots = order;
+                    sortedIndices = sorted;
+                }
+            }
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,41 @@
+package backend.academy.models;
+
+import backend.academy.domain.PixelColor;
+
+/**
+ * Приёмник, который принимает и взвешенные попадания билинейного распределения: попадание делится между
+ * четырьмя соседними пикселями с весами в фиксированной точке, сумма которых равна {@link #SPLAT_WEIGHT}.
+ * Его реализуют буферы с плоскими 64-битными счётчиками и разреженный буфер; приёмники, которые хранят
+ * попадания без веса, реализуют только {@link HitSink}, поэтому поддержку весов проверяет компилятор.
+ */
+public interface WeightedHitSink extends HitSink {
+
+    /**
+     * Регистрирует взвешенное попадание: к счётчику прибавляется вес, к суммам каналов — цвет, умноженный на вес.
+     *
+     * @param x Горизонтальная координата пикселя.
+     * @param y Вертикальная координата пикселя.
+     * @param color Цвет попадания.
+     * @param weight Вес попадания.
+     */
+    void add(int x, int y, PixelColor color, long weight);
+
+    /**
+     * Распределяет попадание билинейно между пикселями {@code (x, y)}, {@code (x + 1, y)}, {@code (x, y + 1)}
+     * и {@code (x + 1, y + 1)}; все четыре пикселя должны лежать в буфере.
+     *
+     * @param x Горизонтальная координата левого верхнего пикселя.
+     * @param y Вертикальная координата левого верхнего пикселя.
+     * @param color Цвет попадания.
+     * @param fractionX Дробная часть координаты по горизонтали в единицах {@code 1 / SUBPIXELS}.
+     * @param fractionY Дробная часть координаты по вертикали в единицах {@code 1 / SUBPIXELS}.
+     */
+    default void splat(int x, int y, PixelColor color, int fractionX, int fractionY) {
+        long left = SUBPIXELS - fractionX;
+        long top = SUBPIXELS - fractionY;
+        add(x, y, color, left * top);
+        add(x + 1, y, color, fractionX * top);
+        add(x, y + 1, color, left * fractionY);
+        add(x + 1, y + 1, color, (long) fractionX * fractionY);
+    }
+}
@@ -0,0 +1,154 @@
+package backend.academy.render;
+
+import backend.academy.models.Histogram;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.stream.IntStream;
+
+/**
+ * Изображение, собираемое из горизонтальных полос, накопленных по отдельности.
+ * Точка белого зависит от всего холста, поэтому полосу нельзя тонировать сразу. Вместо буфера
+ * накопления (32 байта на пиксель) для каждого пикселя сохраняются количество попаданий и средний цвет
+ * в {@code float} — те же значения, что даёт нормировка стандартного конвейера, поэтому цвет не теряет
+ * точности до тонирования, — а тонирование с общей точкой белого выполняется после последней полосы.
+ * Вместе с растром результата изображение занимает {@value #BYTES_PER_PIXEL} байт на пиксель.
+ * Полосы не пересекаются, поэтому их можно сохранять из разных потоков.
+ * Тонированные пиксели пишутся прямо в массив растра изображения параллельно блоками по
+ * {@value #STRIP_ROWS} строк, без {@link BufferedImage#setRGB} и его цветовой модели.
+ */
+public class BandedImage {
+
+    /**
+     * Память изображения на пиксель: попадания и три канала в {@code float} и пиксель итогового растра.
+     */
+    public static final long BYTES_PER_PIXEL = 4L * Float.BYTES + Integer.BYTES;
+
+    private static final double MAX_COLOR_VALUE = 255.0;
+    private static final int STRIP_ROWS = 16;
+
+    private final int width;
+    private final int height;
+    private final float[] densities;
+    private final float[] reds;
+    private final float[] greens;
+    private final float[] blues;
+    private final LongAccumulator maxHits = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Создаёт пустое изображение.
+     *
+     * @param width Ширина изображения в пикселях.
+     * @param height Высота изображения в пикселях.
+     */
+    public BandedImage(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int pixels = Math.multiplyExact(width, height);
+        this.densities = new float[pixels];
+        this.reds = new float[pixels];
+        this.greens = new float[pixels];
+        this.blues = new float[pixels];
+    }
+
+    /**
+     * Сохраняет средний цвет и плотность пикселей накопленной полосы.
+     *
+     * @param band Буфер полосы шириной с изображение.
+     * @param top Номер строки изображения, с которой начинается полоса.
+     */
+    public void storeBand(Histogram band, int top) {
+        long[] row = new long[width * Histogram.CHANNELS];
+        long bandMax = 0;
+        for (int y = 0; y < band.height(); y++) {
+            band.readRow(y, row);
+            int pixel = (top + y) * width;
+            for (int base = 0; base < row.length; base += Histogram.CHANNELS, pixel++) {
+                long hits = row[base + Histogram.HITS];
+                if (hits == 0) {
+                    continue;
+                }
+                bandMax = Math.max(bandMax, hits);
+                double scale = 1 / (hits * MAX_COLOR_VALUE);
+                densities[pixel] = hits;
+                reds[pixel] = (float) (row[base + Histogram.RED] * scale);
+                greens[pixel] = (float) (row[base + Histogram.GREEN] * scale);
+                blues[pixel] = (float) (row[base + Histogram.BLUE] * scale);
+            }
+        }
+        maxHits.accumulate(bandMax);
+    }
+
+    /**
+     * Тонирует изображение с точкой белого, вычисленной по всем сохранённым полосам.
+     *
+     * @param toneMapper Тонировщик.
+     * @return итоговое изображение.
+     */
+    public BufferedImage toneMap(ToneMapper toneMapper) {
+        return toneMap(toneMapper, new ToneSettings(toneMapper.gamma(), Renderer.DEFAULT_VIBRANCY));
+    }
+
+    /**
+     * Тонирует изображение с точкой белого, вычисленной по всем сохранённым полосам, теми же стадиями,
+     * что и стандартный конвейер: яркость, насыщенность и кодирование вывода учитываются так же,
+     * как при рендере целиком.
+     *
+     * @param toneMapper Тонировщик: вес попадания.
+     * @param settings Гамма, яркость, насыщенность и кодирование вывода.
+     * @return итоговое изображение.
+     */
+    public BufferedImage toneMap(ToneMapper toneMapper, ToneSettings settings) {
+        int[] pixels = new int[width * height];
+        long max = maxHits.get();
+        if (max == 0) {
+            return Renderer.rgbImage(pixels, width, height);
+        }
+        double logMax = Math.log1p(max);
+        long[] buckets = IntStream.range(0, height).parallel()
+            .collect(() -> new long[ToneMapper.PERCENTILE_BUCKETS],
+                (acc, y) -> countRowBuckets(y, acc, logMax),
+                (target, source) -> {
+                    for (int i = 0; i < target.length; i++) {
+                        target[i] += source[i];
+                    }
+                });
+        double logWhitePoint = toneMapper.logWhitePoint(max, buckets, logMax);
+        PostStage[] stages = {new LookupToneMapping(toneMapper.hitWeight(), logWhitePoint, settings),
+            settings.srgb() ? PostStages.toSrgb() : PostStages.toRgb()};
+        ThreadLocal<PixelRow> rows = ThreadLocal.withInitial(() -> new PixelRow(width));
+        IntStream.range(0, (height + STRIP_ROWS - 1) / STRIP_ROWS).parallel().forEach(strip -> {
+            PixelRow row = rows.get();
+            for (int y = strip * STRIP_ROWS; y < Math.min(height, (strip + 1) * STRIP_ROWS); y++) {
+                fillRow(row, y, toneMapper.hitWeight());
+                row.target(pixels, y);
+                for (PostStage stage : stages) {
+                    stage.apply(row);
+                }
+            }
+        });
+        return Renderer.rgbImage(pixels, width, height);
+    }
+
+    /**
+     * Заполняет рабочую строку так же, как нормировка стандартного конвейера: плотность — количество
+     * попаданий в долях веса попадания, каналы — средний цвет в [0, 1].
+     */
+    private void fillRow(PixelRow row, int y, long hitWeight) {
+        double densityScale = 1.0 / hitWeight;
+        int start = y * width;
+        for (int x = 0; x < width; x++) {
+            row.density()[x] = (float) (densities[start + x] * densityScale);
+        }
+        System.arraycopy(reds, start, row.red(), 0, width);
+        System.arraycopy(greens, start, row.green(), 0, width);
+        System.arraycopy(blues, start, row.blue(), 0, width);
+    }
+
+    private void countRowBuckets(int y, long[] buckets, double logMax) {
+        for (int pixel = y * width; pixel < (y + 1) * width; pixel++) {
+            if (densities[pixel] > 0) {
+                buckets[ToneMapper.densityBucket(Math.log1p(densities[pixel]), logMax)]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package backend.academy.render;
+
+import backend.academy.config.Bloom;
+import java.util.stream.IntStream;
+
+/**
+ * Свечение (bloom) ярких областей тонированного изображения.
+ * Из изображения выделяется превышение яркости над порогом, оно свёртывается с гауссовым ядром через
+ * двумерное преобразование Фурье ({@link FourierTransform}) и прибавляется к изображению в пространстве
+ * вывода. Стоимость свёртки не зависит от радиуса ядра, поэтому радиус в сотни пикселей обходится так же,
+ * как малый. Свечение — низкочастотная составляющая, поэтому яркие пиксели сначала усредняются блоками,
+ * пока радиус ядра остаётся не меньше {@value #MIN_SCALED_RADIUS} пикселей сетки, а сторона сетки не
+ * превосходит {@value #MAX_SCALED_SIDE}; при сложении свечение интерполируется билинейно.
+ * Красный и зелёный каналы преобразуются одной комплексной сеткой (действительная и мнимая части):
+ * спектр симметричного ядра действителен, и свёртка не смешивает части.
+ */
+public final class BloomFilter {
+
+    private static final double MIN_SCALED_RADIUS = 16;
+    private static final int MAX_SCALED_SIDE = 2048;
+    private static final double RADIUS_SIGMAS = 3;
+    private static final int STRIP_ROWS = 16;
+    private static final int RED_SHIFT = 16;
+    private static final int GREEN_SHIFT = 8;
+    private static final int CHANNEL_MASK = 0xFF;
+    private static final float MAX_CHANNEL = 255f;
+    private static final float RED_LUMA = 0.2126f;
+    private static final float GREEN_LUMA = 0.7152f;
+    private static final float BLUE_LUMA = 0.0722f;
+    private static final double HALF = 0.5;
+    private static final float ROUNDING = 0.5f;
+    // Спектр гауссианы exp(-x^2 / (2 sigma^2)) на частоте f: exp(-2 pi^2 sigma^2 f^2)
+    private static final double SPECTRUM_DECAY = -2 * Math.PI * Math.PI;
+
+    private final int width;
+    private final int height;
+    private final int factor;
+    private final int scaledWidth;
+    private final int scaledHeight;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final Bloom bloom;
+    private final float[] red;
+    private final float[] green;
+    private final float[] blue;
+    private final float[] blueImaginary;
+
+    private BloomFilter(int width, int height, Bloom bloom) {
+        this.width = width;
+        this.height = height;
+        this.bloom = bloom;
+        this.factor = Math.max(Math.max(1, (int) (bloom.radius() / MIN_SCALED_RADIUS)),
+            Math.ceilDiv(Math.max(width, height), MAX_SCALED_SIDE));
+        this.scaledWidth = Math.ceilDiv(width, factor);
+        this.scaledHeight = Math.ceilDiv(height, factor);
+        int reach = (int) Math.ceil(bloom.radius() / factor);
+        // Поля не меньше радиуса ядра: циклическая свёртка не переносит свечение с одного края на другой
+        this.gridWidth = FourierTransform.size(scaledWidth + reach);
+        this.gridHeight = FourierTransform.size(scaledHeight + reach);
+        int size = Math.multiplyExact(gridWidth, gridHeight);
+        this.red = new float[size];
+        this.green = new float[size];
+        this.blue = new float[size];
+        this.blueImaginary = new float[size];
+    }
+
+    /**
+     * Добавляет свечение к изображению на месте.
+     *
+     * @param pixels Пиксели {@code 0xRRGGBB} в построчном порядке.
+     * @param width Ширина изображения.
+     * @param height Высота изображения.
+     * @param bloom Параметры свечения; выключенное свечение изображение не меняет.
+     */
+    public static void apply(int[] pixels, int width, int height, Bloom bloom) {
+        if (bloom.enabled()) {
+            new BloomFilter(width, height, bloom).apply(pixels);
+        }
+    }
+
+    private void apply(int[] pixels) {
+        brightPass(pixels);
+        FourierTransform transform = new FourierTransform(gridWidth, gridHeight);
+        transform.forward(red, green);
+        transform.forward(blue, blueImaginary);
+        multiplySpectrum(bloom.intensity() * MAX_CHANNEL / transform.size());
+        transform.inverse(red, green);
+        transform.inverse(blue, blueImaginary);
+        composite(pixels);
+    }
+
+    /**
+     * Усредняет блоками {@code factor x factor} превышение яркости над порогом; оттенок пикселя сохраняется.
+     */
+    private void brightPass(int[] pixels) {
+        float threshold = (float) bloom.threshold() * MAX_CHANNEL;
+        IntStream.range(0, scaledHeight).parallel().forEach(scaledY -> {
+            int top = scaledY * factor;
+            int bottom = Math.min(height, top + factor);
+            int row = scaledY * gridWidth;
+            for (int y = top; y < bottom; y++) {
+                int index = y * width;
+                for (int scaledX = 0; scaledX < scaledWidth; scaledX++) {
+                    float r = 0;
+                    float g = 0;
+                    float b = 0;
+                    for (int end = Math.min(width, (scaledX + 1) * factor) + y * width; index < end; index++) {
+                        int rgb = pixels[index];
+                        float luma = RED_LUMA * ((rgb >>> RED_SHIFT) & CHANNEL_MASK)
+                            + GREEN_LUMA * ((rgb >>> GREEN_SHIFT) & CHANNEL_MASK) + BLUE_LUMA * (rgb & CHANNEL_MASK);
+                        if (luma > threshold) {
+                            float excess = (luma - threshold) / (luma * MAX_CHANNEL);
+                            r += ((rgb >>> RED_SHIFT) & CHANNEL_MASK) * excess;
+                            g += ((rgb >>> GREEN_SHIFT) & CHANNEL_MASK) * excess;
+                            b += (rgb & CHANNEL_MASK) * excess;
+                        }
+                    }
+                    red[row + scaledX] += r;
+                    green[row + scaledX] += g;
+                    blue[row + scaledX] += b;
+                }
+            }
+            for (int scaledX = 0; scaledX < scaledWidth; scaledX++) {
+                float area = (bottom - top) * (Math.min(width, (scaledX + 1) * factor) - scaledX * factor);
+                red[row + scaledX] /= area;
+                green[row + scaledX] /= area;
+                blue[row + scaledX] /= area;
+            }
+        });
+    }
+
+    /**
+     * Умножает спектры на спектр гауссова ядра. Ядро разделимо, и его двумерный спектр — произведение
+     * одномерных спектров по осям, которые вычисляются аналитически.
+     */
+    private void multiplySpectrum(double scale) {
+        double sigma = bloom.radius() / factor / RADIUS_SIGMAS;
+        float[] horizontal = gaussianSpectrum(gridWidth, sigma);
+        float[] vertical = gaussianSpectrum(gridHeight, sigma);
+        IntStream.range(0, gridHeight).parallel().forEach(v -> {
+            float rowScale = (float) (vertical[v] * scale);
+            for (int u = 0, index = v * gridWidth; u < gridWidth; u++, index++) {
+                float weight = horizontal[u] * rowScale;
+                red[index] *= weight;
+                green[index] *= weight;
+                blue[index] *= weight;
+                blueImaginary[index] *= weight;
+            }
+        });
+    }
+
+    private static float[] gaussianSpectrum(int length, double sigma) {
+        float[] spectrum = new float[length];
+        for (int u = 0; u < length; u++) {
+            double frequency = (double) Math.min(u, length - u) / length;
+            spectrum[u] = (float) Math.exp(SPECTRUM_DECAY * sigma * sigma * frequency * frequency);
+        }
+        return spectrum;
+    }
+
+    /**
+     * Прибавляет к пикселям свечение, билинейно интерполированное с сетки: для каждой строки изображения
+     * свечение сначала интерполируется между строками сетки, затем для каждого пикселя — между столбцами.
+     */
+    private void composite(int[] pixels) {
+        int[] columns = new int[width];
+        float[] columnWeights = new float[width];
+        for (int x = 0; x < width; x++) {
+            double position = Math.max(0, (x + HALF) / factor - HALF);
+            columns[x] = (int) position;
+            columnWeights[x] = (float) (position - columns[x]);
+        }
+        ThreadLocal<float[][]> rows = ThreadLocal.withInitial(() -> new float[][] {
+            new float[scaledWidth + 1], new float[scaledWidth + 1], new float[scaledWidth + 1]});
+        IntStream.range(0, (height + STRIP_ROWS - 1) / STRIP_ROWS).parallel().forEach(strip -> {
+            float[][] glow = rows.get();
+            for (int y = strip * STRIP_ROWS; y < Math.min(height, (strip + 1) * STRIP_ROWS); y++) {
+                double position = Math.max(0, (y + HALF) / factor - HALF);
+                int top = (int) position * gridWidth;
+                float rowWeight = (float) (position - (int) position);
+                interpolateRow(red, top, rowWeight, glow[0]);
+                interpolateRow(green, top, rowWeight, glow[1]);
+                interpolateRow(blue, top, rowWeight, glow[2]);
+                for (int x = 0, index = y * width; x < width; x++, index++) {
+                    int rgb = pixels[index];
+                    int column = columns[x];
+                    float weight = columnWeights[x];
+                    pixels[index] = (add((rgb >>> RED_SHIFT) & CHANNEL_MASK, glow[0], column, weight) << RED_SHIFT)
+                        | (add((rgb >>> GREEN_SHIFT) & CHANNEL_MASK, glow[1], column, weight) << GREEN_SHIFT)
+                        | add(rgb & CHANNEL_MASK, glow[2], column, weight);
+                }
+            }
+        });
+    }
+
+    private void interpolateRow(float[] grid, int top, float weight, float[] row) {
+        for (int x = 0, below = top + gridWidth; x < row.length; x++) {
+            row[x] = grid[top + x] + (grid[below + x] - grid[top + x]) * weight;
+        }
+    }
+
+    private static int add(int channel, float[] glow, int column, float weight) {
+        float value = glow[column] + (glow[column + 1] - glow[column]) * weight;
+        return Math.min(CHANNEL_MASK, channel + (int) (Math.max(0, value) + ROUNDING));
+    }
+}
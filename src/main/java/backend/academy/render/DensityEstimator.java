@@ -0,0 +1,246 @@
+package backend.academy.render;
+
+import backend.academy.config.DensityEstimation;
+import backend.academy.models.BufferPool;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.RowMajorLayout;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Адаптивная оценка плотности: счётчики каждого освещённого пикселя распределяются гауссовым ядром,
+ * радиус которого убывает с количеством попаданий пикселя ({@link DensityEstimation}).
+ * Одномерные веса ядер вычисляются один раз на рендер для радиусов с шагом {@code 1/}{@value #BUCKETS_PER_PIXEL}
+ * пикселя. Ядро сепарабельно, поэтому пиксели одной строки источника группируются по радиусу: группа
+ * распределяется по горизонтали во временную строку, а строка — по вертикали на отрезке, который группа
+ * занимает. Пиксель стоит {@code 2r + 1} отводов вместо {@code (2r + 1)^2}, а разреженные области
+ * с одинаковым радиусом у соседних пикселей обходятся в один вертикальный проход на строку.
+ * Выход обрабатывается параллельно полосами по {@value #STRIP_ROWS} строк: полоса читает строки
+ * источника со своим запасом на радиус ядра, накапливает вклады в буфере полосы своего потока и переносит
+ * в выход только свои строки, поэтому синхронизация не нужна. Веса ядра нормированы, сумма попаданий
+ * сохраняется с точностью округления (кроме вкладов за краем холста).
+ * Выход хранится в фиксированной точке с весом {@link #weight(long)} на попадание: множитель
+ * {@link #KERNEL_WEIGHT} применяется только к буферу с меньшим весом попадания, а счётчики, уже взвешенные
+ * уменьшением сетки или билинейным распределением, переносятся в прежнем масштабе, и веса стадий не копятся.
+ */
+public final class DensityEstimator {
+
+    /**
+     * Наименьшее значение счётчика выхода оценки плотности, соответствующее одному попаданию.
+     */
+    public static final long KERNEL_WEIGHT = 1024;
+
+    private static final int BUCKETS_PER_PIXEL = 4;
+    private static final int STRIP_ROWS = 64;
+    private static final double FALLOFF = 2.0;
+
+    private DensityEstimator() {
+        // Предотвращение создания экземпляра утилитного класса
+    }
+
+    /**
+     * Возвращает значение счётчика выхода, соответствующее одному попаданию.
+     *
+     * @param hitWeight Значение счётчика входного буфера, соответствующее одному попаданию.
+     * @return {@code hitWeight}, но не меньше {@link #KERNEL_WEIGHT}.
+     */
+    public static long weight(long hitWeight) {
+        return Math.max(hitWeight, KERNEL_WEIGHT);
+    }
+
+    /**
+     * Фильтрует буфер накопления.
+     *
+     * @param histogram Буфер выходного разрешения.
+     * @param estimation Параметры оценки плотности; фильтр должен быть включён.
+     * @param hitWeight Значение счётчика, соответствующее одному попаданию.
+     * @return буфер того же размера со счётчиками в единицах {@code 1 / weight(hitWeight)} попадания на массиве
+     *     общего пула; возвращается в пул через {@link DensityHistogram#release()}.
+     * @throws ArithmeticException если счётчик выхода не помещается в {@code long}.
+     */
+    public static DensityHistogram filter(Histogram histogram, DensityEstimation estimation, long hitWeight) {
+        int width = histogram.width();
+        int height = histogram.height();
+        double[][] kernels = kernels(estimation.maxRadius());
+        int reach = kernels[kernels.length - 1].length / 2;
+        DensityHistogram output = new DensityHistogram(new RowMajorLayout(width, height), BufferPool.shared());
+        double scale = (double) weight(hitWeight) / hitWeight;
+        ThreadLocal<Strip> strips = ThreadLocal.withInitial(() -> new Strip(width, kernels.length));
+        IntStream.range(0, (height + STRIP_ROWS - 1) / STRIP_ROWS).parallel().forEach(index -> {
+            Strip strip = strips.get();
+            int first = index * STRIP_ROWS;
+            int last = Math.min(height, first + STRIP_ROWS);
+            for (int sourceY = Math.max(0, first - reach); sourceY < Math.min(height, last + reach); sourceY++) {
+                histogram.readRow(sourceY, strip.row);
+                strip.groupByRadius(estimation, hitWeight);
+                for (int bucket = 0; bucket < kernels.length; bucket++) {
+                    strip.spread(bucket, kernels[bucket], sourceY - first, last - first);
+                }
+            }
+            strip.moveTo(output, first, last, scale);
+        });
+        return output;
+    }
+
+    private static int bucket(DensityEstimation estimation, double density, int buckets) {
+        double radius = Math.max(estimation.minRadius(),
+            estimation.maxRadius() / Math.pow(Math.max(1.0, density), estimation.curve()));
+        return Math.min(buckets - 1, (int) Math.round(radius * BUCKETS_PER_PIXEL));
+    }
+
+    /**
+     * Вычисляет одномерные веса {@code exp(-2 d^2 / r^2)} для {@code |d| <= r}, нормированные на единицу.
+     */
+    private static double[][] kernels(double maxRadius) {
+        double[][] kernels = new double[(int) Math.round(maxRadius * BUCKETS_PER_PIXEL) + 1][];
+        for (int bucket = 0; bucket < kernels.length; bucket++) {
+            double radius = (double) bucket / BUCKETS_PER_PIXEL;
+            int reach = (int) Math.floor(radius);
+            double[] weights = new double[2 * reach + 1];
+            double sum = 0;
+            for (int d = -reach; d <= reach; d++) {
+                weights[d + reach] = radius == 0 ? 1 : Math.exp(-FALLOFF * d * d / (radius * radius));
+                sum += weights[d + reach];
+            }
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= sum;
+            }
+            kernels[bucket] = weights;
+        }
+        return kernels;
+    }
+
+    /**
+     * Рабочие буферы полосы одного потока.
+     */
+    private static final class Strip {
+
+        private final long[] row;
+        private final int[] buckets;
+        private final int[] starts;
+        private final int[] order;
+        private final double[] horizontal;
+        private final double[] target;
+        private final int width;
+
+        Strip(int width, int bucketCount) {
+            this.width = width;
+            this.row = new long[width * Histogram.CHANNELS];
+            this.buckets = new int[width];
+            this.starts = new int[bucketCount + 1];
+            this.order = new int[width];
+            this.horizontal = new double[width * Histogram.CHANNELS];
+            this.target = new double[STRIP_ROWS * width * Histogram.CHANNELS];
+        }
+
+        /**
+         * Сортирует освещённые пиксели строки подсчётом по корзине радиуса, сохраняя порядок по {@code x}.
+         */
+        void groupByRadius(DensityEstimation estimation, long hitWeight) {
+            Arrays.fill(starts, 0);
+            int bucketCount = starts.length - 1;
+            for (int x = 0; x < width; x++) {
+                long hits = row[x * Histogram.CHANNELS + Histogram.HITS];
+                if (hits == 0) {
+                    buckets[x] = -1;
+                } else {
+                    buckets[x] = bucket(estimation, (double) hits / hitWeight, bucketCount);
+                    starts[buckets[x] + 1]++;
+                }
+            }
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                starts[bucket + 1] += starts[bucket];
+            }
+            int[] next = Arrays.copyOf(starts, bucketCount);
+            for (int x = 0; x < width; x++) {
+                if (buckets[x] >= 0) {
+                    order[next[buckets[x]]++] = x;
+                }
+            }
+        }
+
+        /**
+         * Распределяет пиксели одной корзины строки источника {@code y} (относительно полосы) в буфер полосы.
+         * Пиксели, горизонтальные отводы которых перекрываются или соприкасаются, образуют отрезок
+         * с общим вертикальным проходом; промежутки между отрезками не обрабатываются.
+         */
+        void spread(int bucket, double[] weights, int y, int stripRows) {
+            int from = starts[bucket];
+            int to = starts[bucket + 1];
+            int reach = weights.length / 2;
+            if (from == to || y + reach < 0 || y - reach >= stripRows) {
+                return;
+            }
+            int left = Math.max(0, order[from] - reach);
+            for (int i = from; i < to; i++) {
+                int x = order[i];
+                spreadHorizontally(x, weights);
+                if (i + 1 == to || order[i + 1] - x > 2 * reach + 1) {
+                    int right = Math.min(width, x + reach + 1);
+                    spreadVertically(left * Histogram.CHANNELS, right * Histogram.CHANNELS, weights, y, stripRows);
+                    if (i + 1 < to) {
+                        left = order[i + 1] - reach;
+                    }
+                }
+            }
+        }
+
+        private void spreadHorizontally(int x, double[] weights) {
+            int reach = weights.length / 2;
+            int base = x * Histogram.CHANNELS;
+            int dx = Math.max(-reach, -x);
+            for (int index = (x + dx) * Histogram.CHANNELS; dx <= Math.min(reach, width - 1 - x);
+                dx++, index += Histogram.CHANNELS) {
+                double weight = weights[dx + reach];
+                horizontal[index + Histogram.HITS] += row[base + Histogram.HITS] * weight;
+                horizontal[index + Histogram.RED] += row[base + Histogram.RED] * weight;
+                horizontal[index + Histogram.GREEN] += row[base + Histogram.GREEN] * weight;
+                horizontal[index + Histogram.BLUE] += row[base + Histogram.BLUE] * weight;
+            }
+        }
+
+        /**
+         * Прибавляет отрезок временной строки к строкам полосы с вертикальными весами и очищает его.
+         */
+        private void spreadVertically(int left, int right, double[] weights, int y, int stripRows) {
+            int reach = weights.length / 2;
+            int rowValues = width * Histogram.CHANNELS;
+            for (int dy = Math.max(-reach, -y); dy <= Math.min(reach, stripRows - 1 - y); dy++) {
+                double weight = weights[dy + reach];
+                int offset = (y + dy) * rowValues;
+                for (int i = left; i < right; i++) {
+                    target[offset + i] += horizontal[i] * weight;
+                }
+            }
+            Arrays.fill(horizontal, left, right, 0);
+        }
+
+        /**
+         * Переносит строки полосы в выход в фиксированной точке и очищает буфер полосы.
+         */
+        void moveTo(DensityHistogram output, int first, int last, double scale) {
+            for (int y = first; y < last; y++) {
+                int offset = (y - first) * width * Histogram.CHANNELS;
+                for (int x = 0, base = offset; x < width; x++, base += Histogram.CHANNELS) {
+                    output.addPoints(output.indexOf(x, y), fixed(target[base + Histogram.HITS], scale),
+                        fixed(target[base + Histogram.RED], scale), fixed(target[base + Histogram.GREEN], scale),
+                        fixed(target[base + Histogram.BLUE], scale));
+                }
+            }
+            Arrays.fill(target, 0);
+        }
+
+        /**
+         * Переводит вклад в фиксированную точку. {@link Math#round(double)} насыщается на
+         * {@code Long.MAX_VALUE}, поэтому переполнение проверяется явно.
+         */
+        private static long fixed(double value, double scale) {
+            double scaled = value * scale;
+            if (scaled >= Long.MAX_VALUE) {
+                throw new ArithmeticException("Счётчик оценки плотности не помещается в long: " + scaled);
+            }
+            return Math.round(scaled);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package backend.academy.render;
+
+import backend.academy.config.DownsampleFilter;
+import backend.academy.models.BufferPool;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.RowMajorLayout;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Уменьшение суперсэмплированного буфера накопления до выходного разрешения сепарабельным фильтром.
+ * Фильтруются линейные счётчики (попадания и суммы каналов), а не тонированное изображение, поэтому
+ * логарифмическое тонирование видит сглаженную плотность, как в классических рендерерах пламени.
+ * Все выходные пиксели имеют одну фазу относительно сетки субпикселей, и одномерные веса вычисляются
+ * один раз. Выход обрабатывается параллельно полосами по {@value #STRIP_ROWS} строк: строки буфера,
+ * нужные полосе, один раз фильтруются по горизонтали во временный буфер полосы, после чего каждая
+ * строка выхода собирается вертикальным проходом. Горизонтальный проход повторяется только для
+ * строк на стыке полос, а память ограничена буфером полосы на поток. Веса нормированы так,
+ * что квадратный фильтр даёт ровно сумму попаданий субпикселей.
+ * Счётчики выхода хранятся в фиксированной точке с весом {@link #weight(long)} на попадание: дробные
+ * доли попадания нужны только буферу с единичным весом, поэтому счётчики, уже взвешенные не меньше
+ * {@link #FILTER_WEIGHT} (например, билинейным распределением), не домножаются и веса стадий не копятся.
+ */
+public final class Downsampler {
+
+    /**
+     * Наименьшее значение счётчика выходного буфера, соответствующее одному попаданию.
+     */
+    public static final long FILTER_WEIGHT = 256;
+
+    private static final int STRIP_ROWS = 16;
+    private static final double BOX_RADIUS = 0.5;
+    private static final double GAUSSIAN_RADIUS = 1.5;
+    private static final double GAUSSIAN_SIGMA = 0.5;
+    private static final double MITCHELL_RADIUS = 2.0;
+    private static final double MITCHELL_B = 1.0 / 3;
+    private static final double MITCHELL_C = 1.0 / 3;
+    private static final double HALF = 0.5;
+    private static final int MITCHELL_DIVISOR = 6;
+    private static final int CUBIC_6 = 6;
+    private static final int CUBIC_8 = 8;
+    private static final int CUBIC_9 = 9;
+    private static final int CUBIC_12 = 12;
+    private static final int CUBIC_18 = 18;
+    private static final int CUBIC_24 = 24;
+    private static final int CUBIC_30 = 30;
+    private static final int CUBIC_48 = 48;
+
+    private Downsampler() {
+        // Предотвращение создания экземпляра утилитного класса
+    }
+
+    /**
+     * Возвращает значение счётчика выхода, соответствующее одному попаданию.
+     *
+     * @param hitWeight Значение счётчика входного буфера, соответствующее одному попаданию.
+     * @return {@code hitWeight}, но не меньше {@link #FILTER_WEIGHT}.
+     */
+    public static long weight(long hitWeight) {
+        return Math.max(hitWeight, FILTER_WEIGHT);
+    }
+
+    /**
+     * Уменьшает буфер с единичным весом попадания в заданное число раз по каждой стороне.
+     *
+     * @param grid Суперсэмплированный буфер, стороны которого кратны {@code factor}.
+     * @param factor Коэффициент суперсэмплинга.
+     * @param filter Фильтр.
+     * @return буфер выходного разрешения со счётчиками в единицах {@code 1 / FILTER_WEIGHT} попадания
+     *     на массиве общего пула; возвращается в пул через {@link DensityHistogram#release()}.
+     */
+    public static DensityHistogram downsample(Histogram grid, int factor, DownsampleFilter filter) {
+        return downsample(grid, factor, filter, 1);
+    }
+
+    /**
+     * Уменьшает буфер в заданное число раз по каждой стороне.
+     *
+     * @param grid Суперсэмплированный буфер, стороны которого кратны {@code factor}.
+     * @param factor Коэффициент суперсэмплинга.
+     * @param filter Фильтр.
+     * @param hitWeight Значение счётчика буфера, соответствующее одному попаданию.
+     * @return буфер выходного разрешения со счётчиками в единицах {@code 1 / weight(hitWeight)} попадания
+     *     на массиве общего пула; возвращается в пул через {@link DensityHistogram#release()}.
+     * @throws ArithmeticException если счётчик выхода не помещается в {@code long}.
+     */
+    public static DensityHistogram downsample(Histogram grid, int factor, DownsampleFilter filter, long hitWeight) {
+        double scale = (double) weight(hitWeight) / hitWeight;
+        int width = grid.width() / factor;
+        int height = grid.height() / factor;
+        double[] taps = taps(factor, filter);
+        int margin = (taps.length - factor) / 2;
+        int rowValues = width * Histogram.CHANNELS;
+        DensityHistogram output = new DensityHistogram(new RowMajorLayout(width, height), BufferPool.shared());
+        ThreadLocal<long[]> rows = ThreadLocal.withInitial(() -> new long[grid.width() * Histogram.CHANNELS]);
+        ThreadLocal<double[]> strips = ThreadLocal.withInitial(
+            () -> new double[(STRIP_ROWS * factor + 2 * margin) * rowValues]);
+        int stripCount = (height + STRIP_ROWS - 1) / STRIP_ROWS;
+        IntStream.range(0, stripCount).parallel().forEach(strip -> {
+            int first = strip * STRIP_ROWS;
+            int last = Math.min(height, first + STRIP_ROWS);
+            int gridTop = Math.max(0, first * factor - margin);
+            int gridBottom = Math.min(grid.height(), last * factor + margin);
+            long[] row = rows.get();
+            double[] horizontal = strips.get();
+            for (int gridY = gridTop; gridY < gridBottom; gridY++) {
+                grid.readRow(gridY, row);
+                filterRow(row, grid.width(), taps, factor, margin, horizontal, (gridY - gridTop) * rowValues);
+            }
+            double[] sum = new double[rowValues];
+            for (int y = first; y < last; y++) {
+                filterColumn(horizontal, gridTop, gridBottom, y * factor - margin, taps, sum);
+                store(sum, output, y, scale);
+            }
+        });
+        return output;
+    }
+
+    /**
+     * Вычисляет одномерные веса субпикселей выходного пикселя с учётом полей по обе стороны.
+     *
+     * @param factor Коэффициент суперсэмплинга.
+     * @param filter Фильтр.
+     * @return веса субпикселей от {@code -margin} до {@code factor + margin}; сумма равна {@code factor}.
+     */
+    static double[] taps(int factor, DownsampleFilter filter) {
+        double radius = switch (filter) {
+            case BOX -> BOX_RADIUS;
+            case GAUSSIAN -> GAUSSIAN_RADIUS;
+            case MITCHELL -> MITCHELL_RADIUS;
+        };
+        int margin = (int) Math.ceil((radius - HALF) * factor);
+        double[] taps = new double[factor + 2 * margin];
+        double total = 0;
+        for (int tap = 0; tap < taps.length; tap++) {
+            double distance = Math.abs((tap - margin + HALF) / factor - HALF);
+            taps[tap] = distance < radius ? kernel(filter, distance) : 0;
+            total += taps[tap];
+        }
+        for (int tap = 0; tap < taps.length; tap++) {
+            taps[tap] *= factor / total;
+        }
+        return taps;
+    }
+
+    private static double kernel(DownsampleFilter filter, double distance) {
+        return switch (filter) {
+            case BOX -> 1;
+            case GAUSSIAN -> Math.exp(-distance * distance / (2 * GAUSSIAN_SIGMA * GAUSSIAN_SIGMA));
+            case MITCHELL -> mitchell(distance);
+        };
+    }
+
+    private static double mitchell(double t) {
+        double b = MITCHELL_B;
+        double c = MITCHELL_C;
+        double value;
+        if (t < 1) {
+            value = (CUBIC_12 - CUBIC_9 * b - CUBIC_6 * c) * t * t * t
+                + (-CUBIC_18 + CUBIC_12 * b + CUBIC_6 * c) * t * t + (CUBIC_6 - 2 * b);
+        } else {
+            value = (-b - CUBIC_6 * c) * t * t * t + (CUBIC_6 * b + CUBIC_30 * c) * t * t
+                + (-CUBIC_12 * b - CUBIC_48 * c) * t + (CUBIC_8 * b + CUBIC_24 * c);
+        }
+        return value / MITCHELL_DIVISOR;
+    }
+
+    private static void filterRow(long[] row, int gridWidth, double[] taps, int factor, int margin, double[] out,
+        int offset) {
+        int end = offset + gridWidth / factor * Histogram.CHANNELS;
+        for (int x = 0, target = offset; target < end; x++, target += Histogram.CHANNELS) {
+            double hits = 0;
+            double red = 0;
+            double green = 0;
+            double blue = 0;
+            int first = x * factor - margin;
+            for (int tap = Math.max(0, -first); tap < taps.length && first + tap < gridWidth; tap++) {
+                int source = (first + tap) * Histogram.CHANNELS;
+                double weight = taps[tap];
+                hits += weight * row[source + Histogram.HITS];
+                red += weight * row[source + Histogram.RED];
+                green += weight * row[source + Histogram.GREEN];
+                blue += weight * row[source + Histogram.BLUE];
+            }
+            out[target + Histogram.HITS] = hits;
+            out[target + Histogram.RED] = red;
+            out[target + Histogram.GREEN] = green;
+            out[target + Histogram.BLUE] = blue;
+        }
+    }
+
+    /**
+     * Складывает отфильтрованные по горизонтали строки полосы с вертикальными весами.
+     * Строки за краем буфера пропускаются.
+     */
+    private static void filterColumn(double[] horizontal, int gridTop, int gridBottom, int first, double[] taps,
+        double[] sum) {
+        Arrays.fill(sum, 0);
+        int from = Math.max(first, gridTop);
+        int to = Math.min(first + taps.length, gridBottom);
+        for (int gridY = from; gridY < to; gridY++) {
+            double weight = taps[gridY - first];
+            int offset = (gridY - gridTop) * sum.length;
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += weight * horizontal[offset + i];
+            }
+        }
+    }
+
+    /**
+     * Записывает строку выхода в фиксированной точке. Отрицательные лепестки фильтра Митчелла
+     * могут дать отрицательные суммы у резких краёв; такие значения обнуляются.
+     */
+    private static void store(double[] sum, DensityHistogram output, int y, double scale) {
+        int index = output.indexOf(0, y);
+        for (int base = 0; base < sum.length; base += Histogram.CHANNELS, index++) {
+            long hits = fixed(sum[base + Histogram.HITS], scale);
+            if (hits > 0) {
+                output.addPoints(index, hits, fixed(sum[base + Histogram.RED], scale),
+                    fixed(sum[base + Histogram.GREEN], scale), fixed(sum[base + Histogram.BLUE], scale));
+            }
+        }
+    }
+
+    /**
+     * Переводит сумму в фиксированную точку. {@link Math#round(double)} насыщается на {@code Long.MAX_VALUE},
+     * поэтому переполнение проверяется явно.
+     */
+    private static long fixed(double value, double scale) {
+        double scaled = value * scale;
+        if (scaled >= Long.MAX_VALUE) {
+            throw new ArithmeticException("Счётчик уменьшенного буфера не помещается в long: " + scaled);
+        }
+        return Math.max(0, Math.round(scaled));
+    }
+}
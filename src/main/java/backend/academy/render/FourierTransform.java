@@ -0,0 +1,166 @@
+package backend.academy.render;
+
+import java.util.stream.IntStream;
+
+/**
+ * Двумерное быстрое преобразование Фурье комплексной сетки, размеры которой — степени двойки.
+ * Сетка хранится построчно двумя массивами: действительные и мнимые части. Преобразование выполняется
+ * по строкам, затем по столбцам; строки обрабатываются параллельными блоками на месте, а столбцы —
+ * блоками по {@value #BLOCK_COLUMNS}: блок копируется в непрерывный буфер потока, преобразуется и
+ * копируется обратно, поэтому одномерные преобразования всегда идут по подряд лежащим значениям.
+ * Обратное преобразование не нормируется: результат нужно разделить на {@link #size()}.
+ */
+final class FourierTransform {
+
+    private static final int BLOCK_ROWS = 16;
+    private static final int BLOCK_COLUMNS = 16;
+
+    private final int width;
+    private final int height;
+    private final Plan rows;
+    private final Plan columns;
+
+    /**
+     * Создаёт преобразование сетки заданного размера.
+     *
+     * @param width Ширина сетки, степень двойки.
+     * @param height Высота сетки, степень двойки.
+     */
+    FourierTransform(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.rows = new Plan(width);
+        this.columns = new Plan(height);
+    }
+
+    /**
+     * Возвращает наименьшую степень двойки, не меньшую заданного размера.
+     *
+     * @param minimum Наименьший допустимый размер.
+     * @return размер сетки.
+     */
+    static int size(int minimum) {
+        return minimum <= 1 ? 1 : Integer.highestOneBit(minimum - 1) << 1;
+    }
+
+    int size() {
+        return width * height;
+    }
+
+    void forward(float[] re, float[] im) {
+        transform(re, im, false);
+    }
+
+    void inverse(float[] re, float[] im) {
+        transform(re, im, true);
+    }
+
+    private void transform(float[] re, float[] im, boolean inverse) {
+        IntStream.range(0, (height + BLOCK_ROWS - 1) / BLOCK_ROWS).parallel().forEach(block -> {
+            for (int y = block * BLOCK_ROWS; y < Math.min(height, (block + 1) * BLOCK_ROWS); y++) {
+                rows.transform(re, im, y * width, inverse);
+            }
+        });
+        int blockColumns = Math.min(BLOCK_COLUMNS, width);
+        ThreadLocal<float[][]> buffers = ThreadLocal.withInitial(
+            () -> new float[][] {new float[blockColumns * height], new float[blockColumns * height]});
+        IntStream.range(0, width / blockColumns).parallel().forEach(block -> {
+            float[][] buffer = buffers.get();
+            int left = block * blockColumns;
+            copyColumns(re, im, buffer, left, blockColumns, true);
+            for (int column = 0; column < blockColumns; column++) {
+                columns.transform(buffer[0], buffer[1], column * height, inverse);
+            }
+            copyColumns(re, im, buffer, left, blockColumns, false);
+        });
+    }
+
+    /**
+     * Копирует блок столбцов сетки в буфер, где каждый столбец лежит подряд, или обратно.
+     */
+    private void copyColumns(float[] re, float[] im, float[][] buffer, int left, int count, boolean gather) {
+        for (int y = 0; y < height; y++) {
+            int row = y * width + left;
+            for (int column = 0; column < count; column++) {
+                int index = column * height + y;
+                if (gather) {
+                    buffer[0][index] = re[row + column];
+                    buffer[1][index] = im[row + column];
+                } else {
+                    re[row + column] = buffer[0][index];
+                    im[row + column] = buffer[1][index];
+                }
+            }
+        }
+    }
+
+    /**
+     * Одномерное преобразование по основанию 2 с заранее вычисленными перестановкой и поворачивающими множителями.
+     */
+    private static final class Plan {
+
+        private final int length;
+        private final int[] reversed;
+        private final float[] cos;
+        private final float[] sin;
+
+        Plan(int length) {
+            if (Integer.bitCount(length) != 1) {
+                throw new IllegalArgumentException("Размер преобразования должен быть степенью двойки: " + length);
+            }
+            this.length = length;
+            this.reversed = new int[length];
+            int bits = Integer.numberOfTrailingZeros(length);
+            for (int i = 1; i < length; i++) {
+                reversed[i] = Integer.reverse(i) >>> (Integer.SIZE - bits);
+            }
+            this.cos = new float[length / 2];
+            this.sin = new float[length / 2];
+            for (int k = 0; k < length / 2; k++) {
+                double angle = 2 * Math.PI * k / length;
+                cos[k] = (float) Math.cos(angle);
+                sin[k] = (float) Math.sin(angle);
+            }
+        }
+
+        void transform(float[] re, float[] im, int offset, boolean inverse) {
+            for (int i = 0; i < length; i++) {
+                int j = reversed[i];
+                if (i < j) {
+                    swap(re, offset + i, offset + j);
+                    swap(im, offset + i, offset + j);
+                }
+            }
+            float sign = inverse ? 1 : -1;
+            for (int half = 1; half < length; half <<= 1) {
+                butterflies(re, im, offset, half, sign);
+            }
+        }
+
+        /**
+         * Выполняет все бабочки одного уровня: пары значений на расстоянии {@code half}.
+         */
+        private void butterflies(float[] re, float[] im, int offset, int half, float sign) {
+            int step = length / (2 * half);
+            for (int k = 0; k < half; k++) {
+                float wr = cos[k * step];
+                float wi = sign * sin[k * step];
+                for (int i = offset + k; i < offset + length; i += 2 * half) {
+                    int j = i + half;
+                    float tr = wr * re[j] - wi * im[j];
+                    float ti = wr * im[j] + wi * re[j];
+                    re[j] = re[i] - tr;
+                    im[j] = im[i] - ti;
+                    re[i] += tr;
+                    im[i] += ti;
+                }
+            }
+        }
+
+        private static void swap(float[] values, int i, int j) {
+            float value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+}
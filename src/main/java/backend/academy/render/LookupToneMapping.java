@@ -0,0 +1,95 @@
+package backend.academy.render;
+
+/**
+ * Стадия тонирования по таблицам: логарифм плотности с точкой белого и яркостью, гамма и насыщенность
+ * вычисляются один раз на рендер для нескольких тысяч уровней, а к пикселям применяются поиском в таблице.
+ * Индекс таблицы — показатель и старшие {@value #MANTISSA_BITS} бит мантиссы {@code float}: уровни
+ * логарифмически равномерны, относительная ошибка аргумента не больше {@code 2^-7}, а целые количества
+ * попаданий до 255 попадают в узлы таблицы точно. Таблицы занимают десятки килобайт и остаются в кэше.
+ * Плотность выше точки белого даёт яркость {@code 1}, нулевая — {@code 0}.
+ */
+public final class LookupToneMapping implements PostStage {
+
+    private static final int MANTISSA_BITS = 7;
+    private static final int INDEX_SHIFT = 23 - MANTISSA_BITS;
+    private static final int SUBNORMAL_GUARD = 8;
+    private static final int GAMMA_RANGE_BITS = 24;
+
+    private final float[] alpha;
+    private final float[] linear;
+    private final float[] channelGamma;
+    private final int densityBase;
+    private final int channelBase;
+    private final float vibrancy;
+
+    /**
+     * Строит таблицы для одного рендера.
+     *
+     * @param hitWeight Значение счётчика, соответствующее одному попаданию.
+     * @param logWhitePoint Логарифм плотности точки белого.
+     * @param settings Гамма, яркость и насыщенность.
+     */
+    public LookupToneMapping(long hitWeight, double logWhitePoint, ToneSettings settings) {
+        this.vibrancy = (float) settings.vibrancy();
+        double power = 1.0 / settings.gamma();
+        float smallest = Math.scalb(1f, -Long.SIZE + Long.numberOfLeadingZeros(hitWeight) - SUBNORMAL_GUARD);
+        float white = logWhitePoint > 0 ? (float) (Math.expm1(logWhitePoint) / settings.brightness()) : smallest;
+        this.densityBase = index(smallest) - 1;
+        int size = index(Math.max(white, smallest)) - densityBase + 2;
+        this.alpha = new float[size];
+        this.linear = new float[size];
+        for (int i = 1; i < size; i++) {
+            double density = node(densityBase + i);
+            double tone = logWhitePoint > 0
+                ? Math.min(1.0, Math.log1p(density * settings.brightness()) / logWhitePoint) : 0;
+            linear[i] = (float) tone;
+            alpha[i] = (float) Math.pow(tone, power);
+        }
+        this.channelBase = index(Math.scalb(1f, -GAMMA_RANGE_BITS)) - 1;
+        this.channelGamma = new float[index(1f) - channelBase + 1];
+        for (int i = 1; i < channelGamma.length; i++) {
+            channelGamma[i] = (float) Math.pow(node(channelBase + i), power);
+        }
+    }
+
+    @Override
+    public void apply(PixelRow row) {
+        float[] density = row.density();
+        float[] red = row.red();
+        float[] green = row.green();
+        float[] blue = row.blue();
+        for (int x = 0; x < row.length(); x++) {
+            int slot = lookup(density[x], densityBase, alpha.length);
+            float brightness = alpha[slot];
+            row.alpha()[x] = brightness;
+            if (vibrancy == 1) {
+                red[x] *= brightness;
+                green[x] *= brightness;
+                blue[x] *= brightness;
+            } else {
+                float tone = linear[slot];
+                density[x] = tone;
+                red[x] = mix(brightness, red[x], tone);
+                green[x] = mix(brightness, green[x], tone);
+                blue[x] = mix(brightness, blue[x], tone);
+            }
+        }
+    }
+
+    private float mix(float brightness, float color, float tone) {
+        float perChannel = channelGamma[lookup(tone * color, channelBase, channelGamma.length)];
+        return vibrancy * brightness * color + (1 - vibrancy) * perChannel;
+    }
+
+    private static int lookup(float value, int base, int size) {
+        return Math.clamp(index(value) - base, 0, size - 1);
+    }
+
+    private static int index(float value) {
+        return Float.floatToRawIntBits(value) >> INDEX_SHIFT;
+    }
+
+    private static double node(int index) {
+        return Float.intBitsToFloat(index << INDEX_SHIFT);
+    }
+}
@@ -0,0 +1,159 @@
+package backend.academy.render;
+
+import backend.academy.models.BufferPool;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.RowMajorLayout;
+import java.util.List;
+
+/**
+ * Цепочка уменьшенных копий буфера накопления: 1/2, 1/4 и миниатюра.
+ * Уменьшаются счётчики, а не тонированное изображение: пиксель уровня суммирует попадания и каналы блока
+ * исходных пикселей, а тонировщик уровня считает попаданием {@code factor²} исходных, поэтому плотность
+ * каждого уровня — средняя плотность блока и экспозиция уровней совпадает с полным изображением.
+ * Уровни 1/2 и 1/4 накапливаются стадией ({@link #stage()}) того же прохода постобработки, который
+ * тонирует полное изображение, так что буфер полного разрешения читается один раз. Полосы прохода
+ * ({@link PostProcessor#STRIP_ROWS} строк) кратны 4, поэтому строку уровня пишет одна полоса и блокировки
+ * не нужны. Миниатюра собирается из уровня 1/4. Строки и столбцы, не вошедшие в целый блок, отбрасываются.
+ */
+public final class MipmapChain {
+
+    /**
+     * Наибольшая сторона миниатюры в пикселях.
+     */
+    public static final int THUMBNAIL_SIDE = 256;
+
+    /**
+     * Окончания имён файлов уровней после полного изображения: 1/2, 1/4 и миниатюра.
+     */
+    public static final List<String> LEVEL_SUFFIXES = List.of("-half", "-quarter", "-thumbnail");
+
+    private static final int HALF = 2;
+    private static final int QUARTER = 4;
+    private static final int MIN_THUMBNAIL_FACTOR = 8;
+
+    private final DensityHistogram half;
+    private final DensityHistogram quarter;
+    private final int thumbnailFactor;
+
+    /**
+     * Создаёт пустые уровни для изображения заданного размера на массивах из общего пула.
+     *
+     * @param width Ширина полного изображения.
+     * @param height Высота полного изображения.
+     */
+    public MipmapChain(int width, int height) {
+        int factor = thumbnailFactor(width, height);
+        if (Math.min(width, height) < factor) {
+            throw new IllegalArgumentException("Изображение " + width + "x" + height
+                + " слишком мало для миниатюры с уменьшением в " + factor + " раз");
+        }
+        this.half = level(width / HALF, height / HALF);
+        this.quarter = level(width / QUARTER, height / QUARTER);
+        this.thumbnailFactor = factor;
+    }
+
+    private static DensityHistogram level(int width, int height) {
+        return new DensityHistogram(new RowMajorLayout(width, height), BufferPool.shared());
+    }
+
+    /**
+     * Возвращает коэффициент уменьшения миниатюры: наименьшую степень двойки не меньше 8, при которой
+     * большая сторона миниатюры не превосходит {@value #THUMBNAIL_SIDE}.
+     *
+     * @param width Ширина полного изображения.
+     * @param height Высота полного изображения.
+     * @return коэффициент уменьшения.
+     */
+    public static int thumbnailFactor(int width, int height) {
+        int factor = MIN_THUMBNAIL_FACTOR;
+        while (Math.max(width, height) / factor > THUMBNAIL_SIDE) {
+            factor *= 2;
+        }
+        return factor;
+    }
+
+    /**
+     * Возвращает коэффициенты уменьшения уровней в порядке {@link #LEVEL_SUFFIXES}.
+     *
+     * @return коэффициенты 2, 4 и коэффициент миниатюры.
+     */
+    public List<Integer> factors() {
+        return List.of(HALF, QUARTER, thumbnailFactor);
+    }
+
+    /**
+     * Возвращает стадию постобработки, которая прибавляет строку счётчиков к уровням 1/2 и 1/4.
+     * Стадия не меняет строку и должна стоять в конвейере первой, пока счётчики не нормированы.
+     *
+     * @return стадия.
+     */
+    public PostStage stage() {
+        return row -> {
+            if (row.gathered()) {
+                addGathered(row, half, HALF);
+                addGathered(row, quarter, QUARTER);
+            } else {
+                add(row.raw(), row.y(), half, HALF);
+                add(row.raw(), row.y(), quarter, QUARTER);
+            }
+        };
+    }
+
+    /**
+     * Прибавляет к уровню освещённые пиксели собранной строки разреженного буфера по их столбцам.
+     */
+    private static void addGathered(PixelRow row, DensityHistogram level, int factor) {
+        int levelY = row.y() / factor;
+        if (levelY >= level.height()) {
+            return;
+        }
+        long[] raw = row.raw();
+        for (int i = 0, base = 0; i < row.length(); i++, base += Histogram.CHANNELS) {
+            int levelX = row.columns()[i] / factor;
+            if (levelX < level.width()) {
+                level.addPoints(level.indexOf(levelX, levelY), raw[base + Histogram.HITS], raw[base + Histogram.RED],
+                    raw[base + Histogram.GREEN], raw[base + Histogram.BLUE]);
+            }
+        }
+    }
+
+    private static void add(long[] raw, int y, DensityHistogram level, int factor) {
+        int levelY = y / factor;
+        if (levelY >= level.height()) {
+            return;
+        }
+        int index = level.indexOf(0, levelY);
+        for (int x = 0; x < level.width(); x++, index++) {
+            long hits = 0;
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            for (int base = x * factor * Histogram.CHANNELS, end = base + factor * Histogram.CHANNELS; base < end;
+                base += Histogram.CHANNELS) {
+                hits += raw[base + Histogram.HITS];
+                red += raw[base + Histogram.RED];
+                green += raw[base + Histogram.GREEN];
+                blue += raw[base + Histogram.BLUE];
+            }
+            level.addPoints(index, hits, red, green, blue);
+        }
+    }
+
+    /**
+     * Возвращает накопленные уровни; миниатюра собирается из уровня 1/4 при вызове.
+     * Вызывается после прохода постобработки.
+     *
+     * @return буферы уровней в порядке {@link #LEVEL_SUFFIXES}.
+     */
+    public List<DensityHistogram> levels() {
+        int factor = thumbnailFactor / QUARTER;
+        DensityHistogram thumbnail = level(quarter.width() / factor, quarter.height() / factor);
+        long[] row = new long[quarter.width() * Histogram.CHANNELS];
+        for (int y = 0; y < thumbnail.height() * factor; y++) {
+            quarter.readRow(y, row);
+            add(row, y, thumbnail, factor);
+        }
+        return List.of(half, quarter, thumbnail);
+    }
+}
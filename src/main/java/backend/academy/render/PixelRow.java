@@ -0,0 +1,181 @@
+package backend.academy.render;
+
+import backend.academy.models.Histogram;
+
+/**
+ * Рабочая строка постобработки: значения одной строки изображения, которые стадии ({@link PostStage})
+ * преобразуют на месте. Счётчики буфера читаются в {@link #raw()} один раз, промежуточные величины
+ * хранятся отдельными массивами по каналам (структура массивов), поэтому циклы стадий независимы
+ * по пикселям и векторизуются. Строка целиком помещается в кэш, и все стадии проходят её, пока она горячая.
+ * Строка разреженного буфера собирается только из освещённых пикселей ({@link #gathered()}): стадии проходят
+ * {@link #length()} пикселей подряд, последняя пишет их во временный массив, а конвейер раскладывает его
+ * по столбцам {@link #columns()}. Экземпляр используется одним потоком.
+ */
+public final class PixelRow {
+
+    private final long[] raw;
+    private final float[] density;
+    private final float[] alpha;
+    private final float[] red;
+    private final float[] green;
+    private final float[] blue;
+    private final int[] columns;
+    private final int[] packed;
+    private final int width;
+    private int[] output;
+    private int outputOffset;
+    private int length;
+    private boolean gathered;
+    private int y;
+
+    /**
+     * Создаёт рабочую строку.
+     *
+     * @param width Ширина строки в пикселях.
+     */
+    public PixelRow(int width) {
+        this.width = width;
+        this.raw = new long[width * Histogram.CHANNELS];
+        this.density = new float[width];
+        this.alpha = new float[width];
+        this.red = new float[width];
+        this.green = new float[width];
+        this.blue = new float[width];
+        this.columns = new int[width];
+        this.packed = new int[width];
+        this.length = width;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Возвращает количество пикселей в строке, которые обрабатывают стадии: ширину строки или, для
+     * собранной строки, количество освещённых пикселей.
+     *
+     * @return количество пикселей.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Проверяет, собрана ли строка только из освещённых пикселей; тогда пиксель {@code i} стоит
+     * в столбце {@code columns()[i]}.
+     *
+     * @return {@code true} для собранной строки.
+     */
+    public boolean gathered() {
+        return gathered;
+    }
+
+    /**
+     * Возвращает столбцы пикселей собранной строки по возрастанию.
+     *
+     * @return столбцы первых {@link #length()} пикселей.
+     */
+    public int[] columns() {
+        return columns;
+    }
+
+    /**
+     * Возвращает счётчики строки буфера накопления в формате {@link Histogram#readRow(int, long[])}.
+     *
+     * @return попадания и суммы каналов, по {@link Histogram#CHANNELS} значений на пиксель.
+     */
+    public long[] raw() {
+        return raw;
+    }
+
+    /**
+     * Возвращает плотность пикселей: после нормировки — попадания, после тонирования — яркость в [0, 1].
+     *
+     * @return плотность по пикселям.
+     */
+    public float[] density() {
+        return density;
+    }
+
+    /**
+     * Возвращает яркость пикселей после гамма-коррекции.
+     *
+     * @return яркость по пикселям в [0, 1].
+     */
+    public float[] alpha() {
+        return alpha;
+    }
+
+    public float[] red() {
+        return red;
+    }
+
+    public float[] green() {
+        return green;
+    }
+
+    public float[] blue() {
+        return blue;
+    }
+
+    /**
+     * Возвращает номер строки изображения, которая сейчас находится в рабочей строке.
+     *
+     * @return номер строки.
+     */
+    public int y() {
+        return y;
+    }
+
+    /**
+     * Возвращает массив упакованных пикселей {@code 0xRRGGBB}, в который пишет последняя стадия.
+     *
+     * @return массив пикселей изображения.
+     */
+    public int[] output() {
+        return output;
+    }
+
+    /**
+     * Возвращает номер первого пикселя строки в {@link #output()}.
+     *
+     * @return смещение строки в массиве пикселей изображения.
+     */
+    public int outputOffset() {
+        return outputOffset;
+    }
+
+    /**
+     * Направляет строку с заданным номером в её место в массиве пикселей изображения.
+     * Смещение считается с проверкой переполнения: растр больше {@code int} не адресуется молча по модулю.
+     */
+    void target(int[] pixels, int row) {
+        this.output = pixels;
+        this.outputOffset = Math.multiplyExact(row, width);
+        this.length = width;
+        this.gathered = false;
+        this.y = row;
+    }
+
+    /**
+     * Отмечает строку с заданным номером как собранную из {@code count} освещённых пикселей; последняя
+     * стадия пишет их во временный массив, который раскладывает {@link #scatter(int[])}.
+     */
+    void gather(int row, int count) {
+        this.output = packed;
+        this.outputOffset = 0;
+        this.length = count;
+        this.gathered = true;
+        this.y = row;
+    }
+
+    /**
+     * Раскладывает пиксели собранной строки по её столбцам в массиве пикселей изображения.
+     */
+    void scatter(int[] pixels) {
+        int offset = Math.multiplyExact(y, width);
+        for (int i = 0; i < length; i++) {
+            pixels[offset + columns[i]] = packed[i];
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package backend.academy.render;
+
+import backend.academy.models.Histogram;
+import backend.academy.models.SparseHistogram;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Слитный конвейер постобработки. Упорядоченные стадии ({@link PostStage}) выполняются одним
+ * параллельным проходом по полосам строк: строка буфера накопления читается один раз, все стадии
+ * применяются к ней, пока она в кэше, и последняя стадия один раз пишет пиксели в массив изображения.
+ * Промежуточных буферов размером с изображение нет.
+ * Строки разреженного буфера ({@link SparseHistogram}) собираются только из освещённых пикселей: пустые
+ * строки и промежутки не читаются и не пишутся, а остаются чёрным фоном массива изображения, поэтому
+ * стоимость прохода пропорциональна освещённым пикселям, а не разрешению.
+ */
+public final class PostProcessor {
+
+    /**
+     * Количество строк в полосе одного потока; полосы начинаются со строк, кратных этому числу.
+     */
+    static final int STRIP_ROWS = 16;
+
+    private final List<PostStage> stages;
+
+    /**
+     * Создаёт конвейер.
+     *
+     * @param stages Стадии в порядке применения; последняя должна записать строку в массив изображения.
+     */
+    public PostProcessor(PostStage... stages) {
+        this.stages = List.of(stages);
+    }
+
+    /**
+     * Обрабатывает буфер накопления и записывает пиксели изображения.
+     *
+     * @param histogram Буфер накопления.
+     * @param pixels Массив {@code width * height} пикселей {@code 0xRRGGBB} в построчном порядке; для
+     *               разреженного буфера он должен быть заполнен нулями (чёрным фоном).
+     */
+    public void process(Histogram histogram, int[] pixels) {
+        if (histogram instanceof SparseHistogram sparse) {
+            processLit(sparse, pixels);
+            return;
+        }
+        int width = histogram.width();
+        int height = histogram.height();
+        ThreadLocal<PixelRow> rows = ThreadLocal.withInitial(() -> new PixelRow(width));
+        IntStream.range(0, (height + STRIP_ROWS - 1) / STRIP_ROWS).parallel().forEach(strip -> {
+            PixelRow row = rows.get();
+            for (int y = strip * STRIP_ROWS; y < Math.min(height, (strip + 1) * STRIP_ROWS); y++) {
+                histogram.readRow(y, row.raw());
+                row.target(pixels, y);
+                for (PostStage stage : stages) {
+                    stage.apply(row);
+                }
+            }
+        });
+    }
+
+    private void processLit(SparseHistogram histogram, int[] pixels) {
+        int height = histogram.height();
+        ThreadLocal<PixelRow> rows = ThreadLocal.withInitial(() -> new PixelRow(histogram.width()));
+        IntStream.range(0, (height + STRIP_ROWS - 1) / STRIP_ROWS).parallel().forEach(strip -> {
+            PixelRow row = rows.get();
+            for (int y = strip * STRIP_ROWS; y < Math.min(height, (strip + 1) * STRIP_ROWS); y++) {
+                int count = histogram.readLitRow(y, row.columns(), row.raw());
+                if (count == 0) {
+                    continue;
+                }
+                row.gather(y, count);
+                for (PostStage stage : stages) {
+                    stage.apply(row);
+                }
+                row.scatter(pixels);
+            }
+        });
+    }
+}
@@ -0,0 +1,17 @@
+package backend.academy.render;
+
+/**
+ * Стадия постобработки: преобразует рабочую строку на месте.
+ * Стадии выполняются по порядку над одной строкой, пока она в кэше ({@link PostProcessor});
+ * стандартные стадии создаёт {@link PostStages}.
+ */
+@FunctionalInterface
+public interface PostStage {
+
+    /**
+     * Применяет стадию ко всем пикселям строки.
+     *
+     * @param row Рабочая строка.
+     */
+    void apply(PixelRow row);
+}
@@ -0,0 +1,272 @@
+package backend.academy.render;
+
+import backend.academy.models.Histogram;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Стандартные стадии постобработки в порядке применения: нормировка счётчиков, логарифмическое
+ * тонирование, гамма-коррекция, насыщенность (vibrancy) и перевод в 8-битный RGB.
+ * Стандартный конвейер выполняет тонирование, гамму и насыщенность одной стадией по таблицам
+ * ({@link LookupToneMapping}); стадии с вычислением на каждый пиксель остаются эталоном.
+ * Из стадий только нормировка имеет векторный вариант ({@link #vectorized()}); остальные скалярные.
+ */
+public final class PostStages {
+
+    private static final double MAX_COLOR_VALUE = 255.0;
+    private static final int RED_SHIFT = 16;
+    private static final int GREEN_SHIFT = 8;
+    private static final int SRGB_LEVELS = 4096;
+    private static final double SRGB_LINEAR_LIMIT = 0.0031308;
+    private static final double SRGB_LINEAR_SLOPE = 12.92;
+    private static final double SRGB_SCALE = 1.055;
+    private static final double SRGB_OFFSET = 0.055;
+    private static final double SRGB_POWER = 1 / 2.4;
+    private static final int[] SRGB = srgbTable();
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_STAGES = "backend.academy.render.VectorPostStages";
+    private static final MethodHandle VECTOR_NORMALIZE = vectorNormalize();
+
+    private PostStages() {
+        // Предотвращение создания экземпляра утилитного класса
+    }
+
+    /**
+     * Находит векторную нормировку {@code VectorPostStages#normalize(long)}. Класс ищется по имени: без
+     * профиля Maven {@code vector} он не компилируется, а без модуля {@code jdk.incubator.vector}
+     * не загружается.
+     */
+    private static MethodHandle vectorNormalize() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            Class<?> stages = Class.forName(VECTOR_STAGES);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            boolean supported = (boolean) lookup.findStatic(stages, "supported", MethodType.methodType(boolean.class))
+                .invokeExact();
+            return supported
+                ? lookup.findStatic(stages, "normalize", MethodType.methodType(PostStage.class, long.class)) : null;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        } catch (Throwable e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Стандартный конвейер с единичной яркостью и линейным выводом: совпадает с {@link ToneMapper}
+     * при насыщенности {@code 1} с точностью до единицы младшего разряда канала.
+     *
+     * @param toneMapper Тонировщик: вес попадания и гамма.
+     * @param logWhitePoint Логарифм плотности точки белого.
+     * @param vibrancy Насыщенность в [0, 1].
+     * @return стадии в порядке применения.
+     */
+    public static PostStage[] standard(ToneMapper toneMapper, double logWhitePoint, double vibrancy) {
+        return standard(toneMapper, logWhitePoint, new ToneSettings(toneMapper.gamma(), vibrancy));
+    }
+
+    /**
+     * Стандартный конвейер: нормировка, тонирование по таблицам и перевод в 8-битный RGB или sRGB.
+     * Если векторная нормировка доступна ({@link #vectorized()}), она выполняется на Vector API
+     * ({@code VectorPostStages}), иначе — скалярно ({@link #scalar(ToneMapper, double, ToneSettings)}).
+     *
+     * @param toneMapper Тонировщик: вес попадания.
+     * @param logWhitePoint Логарифм плотности точки белого.
+     * @param settings Гамма, яркость, насыщенность и кодирование вывода.
+     * @return стадии в порядке применения.
+     */
+    public static PostStage[] standard(ToneMapper toneMapper, double logWhitePoint, ToneSettings settings) {
+        PostStage[] stages = scalar(toneMapper, logWhitePoint, settings);
+        if (VECTOR_NORMALIZE != null) {
+            try {
+                stages[0] = (PostStage) VECTOR_NORMALIZE.invokeExact(toneMapper.hitWeight());
+            } catch (Throwable e) {
+                throw new IllegalStateException("Ошибка векторной нормировки", e);
+            }
+        }
+        return stages;
+    }
+
+    /**
+     * Скалярный вариант стандартного конвейера.
+     *
+     * @param toneMapper Тонировщик: вес попадания.
+     * @param logWhitePoint Логарифм плотности точки белого.
+     * @param settings Гамма, яркость, насыщенность и кодирование вывода.
+     * @return стадии в порядке применения.
+     */
+    public static PostStage[] scalar(ToneMapper toneMapper, double logWhitePoint, ToneSettings settings) {
+        return new PostStage[] {normalize(toneMapper.hitWeight()),
+            new LookupToneMapping(toneMapper.hitWeight(), logWhitePoint, settings),
+            settings.srgb() ? toSrgb() : toRgb()};
+    }
+
+    /**
+     * Проверяет, выполняет ли стандартный конвейер нормировку на Vector API: класс собран в профиле
+     * {@code vector}, JVM запущена с модулем {@code jdk.incubator.vector}, и на машине есть вектор
+     * {@code float} нужной длины.
+     *
+     * @return {@code true}, если нормировка векторная.
+     */
+    public static boolean vectorized() {
+        return VECTOR_NORMALIZE != null;
+    }
+
+    /**
+     * Эталонный конвейер с вычислением логарифма и степеней для каждого пикселя.
+     *
+     * @param toneMapper Тонировщик: вес попадания и гамма.
+     * @param logWhitePoint Логарифм плотности точки белого.
+     * @param vibrancy Насыщенность в [0, 1].
+     * @return стадии в порядке применения.
+     */
+    public static PostStage[] exact(ToneMapper toneMapper, double logWhitePoint, double vibrancy) {
+        return new PostStage[] {normalize(toneMapper.hitWeight()), toneMap(logWhitePoint),
+            gamma(toneMapper.gamma()), vibrancy(vibrancy, toneMapper.gamma()), toRgb()};
+    }
+
+    /**
+     * Нормировка: плотность — количество попаданий с учётом веса попадания, каналы — средний цвет в [0, 1].
+     *
+     * @param hitWeight Значение счётчика, соответствующее одному попаданию.
+     * @return стадия.
+     */
+    public static PostStage normalize(long hitWeight) {
+        double densityScale = 1.0 / hitWeight;
+        return row -> normalize(row, 0, densityScale);
+    }
+
+    /**
+     * Логарифмическое тонирование: {@code log1p} плотности, нормированный на точку белого и ограниченный единицей.
+     *
+     * @param logWhitePoint Логарифм плотности точки белого; неположительное значение даёт чёрную строку.
+     * @return стадия.
+     */
+    public static PostStage toneMap(double logWhitePoint) {
+        return row -> {
+            float[] density = row.density();
+            for (int x = 0; x < row.length(); x++) {
+                density[x] = logWhitePoint > 0 ? (float) Math.min(1.0, Math.log1p(density[x]) / logWhitePoint) : 0;
+            }
+        };
+    }
+
+    /**
+     * Гамма-коррекция яркости: {@code alpha = density^(1 / gamma)}.
+     *
+     * @param gamma Коэффициент гаммы.
+     * @return стадия.
+     */
+    public static PostStage gamma(double gamma) {
+        double power = 1.0 / gamma;
+        return row -> {
+            float[] density = row.density();
+            float[] alpha = row.alpha();
+            for (int x = 0; x < row.length(); x++) {
+                alpha[x] = (float) Math.pow(density[x], power);
+            }
+        };
+    }
+
+    /**
+     * Насыщенность в духе flam3: при {@code 1} средний цвет умножается на яркость после гаммы и сохраняет
+     * оттенок, при {@code 0} гамма применяется к каждому каналу отдельно и яркие области уходят в белый.
+     * Промежуточные значения смешиваются линейно.
+     *
+     * @param vibrancy Насыщенность в [0, 1].
+     * @param gamma Коэффициент гаммы для поканальной части.
+     * @return стадия.
+     */
+    public static PostStage vibrancy(double vibrancy, double gamma) {
+        if (vibrancy < 0 || vibrancy > 1) {
+            throw new IllegalArgumentException("Насыщенность должна быть в [0, 1]: " + vibrancy);
+        }
+        float weight = (float) vibrancy;
+        double power = 1.0 / gamma;
+        return row -> {
+            for (int x = 0; x < row.length(); x++) {
+                float alpha = row.alpha()[x];
+                if (weight == 1) {
+                    row.red()[x] *= alpha;
+                    row.green()[x] *= alpha;
+                    row.blue()[x] *= alpha;
+                } else {
+                    float density = row.density()[x];
+                    row.red()[x] = mix(weight, alpha, row.red()[x], density, power);
+                    row.green()[x] = mix(weight, alpha, row.green()[x], density, power);
+                    row.blue()[x] = mix(weight, alpha, row.blue()[x], density, power);
+                }
+            }
+        };
+    }
+
+    private static float mix(float weight, float alpha, float color, float density, double power) {
+        return weight * alpha * color + (1 - weight) * (float) Math.pow(density * color, power);
+    }
+
+    /**
+     * Перевод каналов в 8-битный RGB с округлением и запись в массив пикселей изображения.
+     *
+     * @return стадия.
+     */
+    public static PostStage toRgb() {
+        return row -> {
+            int[] output = row.output();
+            int offset = row.outputOffset();
+            for (int x = 0; x < row.length(); x++) {
+                output[offset + x] = (Renderer.toChannel(row.red()[x]) << RED_SHIFT)
+                    | (Renderer.toChannel(row.green()[x]) << GREEN_SHIFT) | Renderer.toChannel(row.blue()[x]);
+            }
+        };
+    }
+
+    /**
+     * Нормирует пиксели строки, начиная с {@code from}; векторная нормировка досчитывает так хвост строки.
+     */
+    static void normalize(PixelRow row, int from, double densityScale) {
+        long[] raw = row.raw();
+        float[] density = row.density();
+        for (int x = from, base = from * Histogram.CHANNELS; x < row.length(); x++, base += Histogram.CHANNELS) {
+            long hits = raw[base + Histogram.HITS];
+            double scale = hits == 0 ? 0 : 1 / (hits * MAX_COLOR_VALUE);
+            density[x] = (float) (hits * densityScale);
+            row.red()[x] = (float) (raw[base + Histogram.RED] * scale);
+            row.green()[x] = (float) (raw[base + Histogram.GREEN] * scale);
+            row.blue()[x] = (float) (raw[base + Histogram.BLUE] * scale);
+        }
+    }
+
+    /**
+     * Перевод линейных каналов в 8-битный sRGB по таблице из {@value #SRGB_LEVELS} уровней.
+     *
+     * @return стадия.
+     */
+    public static PostStage toSrgb() {
+        return row -> {
+            int[] output = row.output();
+            int offset = row.outputOffset();
+            for (int x = 0; x < row.length(); x++) {
+                output[offset + x] = (srgb(row.red()[x]) << RED_SHIFT) | (srgb(row.green()[x]) << GREEN_SHIFT)
+                    | srgb(row.blue()[x]);
+            }
+        };
+    }
+
+    private static int srgb(float value) {
+        return SRGB[Math.round(Math.clamp(value, 0f, 1f) * (SRGB_LEVELS - 1))];
+    }
+
+    private static int[] srgbTable() {
+        int[] table = new int[SRGB_LEVELS];
+        for (int i = 0; i < SRGB_LEVELS; i++) {
+            double linear = (double) i / (SRGB_LEVELS - 1);
+            double encoded = linear <= SRGB_LINEAR_LIMIT ? linear * SRGB_LINEAR_SLOPE
+                : SRGB_SCALE * Math.pow(linear, SRGB_POWER) - SRGB_OFFSET;
+            table[i] = Renderer.toChannel((float) encoded);
+        }
+        return table;
+    }
+}
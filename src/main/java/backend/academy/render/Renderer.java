@@ -1,11 +1,28 @@
 package backend.academy.render;
 
-import backend.academy.domain.Pixel;
+import backend.academy.accumulate.Accumulator;
+import backend.academy.accumulate.Accumulators;
+import backend.academy.accumulate.TileSpillAccumulator;
+import backend.academy.accumulate.WeightedAccumulator;
+import backend.academy.config.AccumulationMode;
+import backend.academy.config.Bloom;
+import backend.academy.config.DensityEstimation;
+import backend.academy.config.HistogramLayout;
+import backend.academy.config.InputConfig;
+import backend.academy.config.Supersampling;
 import backend.academy.domain.PixelColor;
 import backend.academy.domain.Point;
-import backend.academy.models.FractalImage;
+import backend.academy.models.BufferPool;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+import backend.academy.models.WeightedHitSink;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.IntStream;
@@ -14,36 +31,292 @@ import javax.imageio.ImageIO;
 /**
  * Класс Renderer используется для рендеринга фрактальных изображений.
  * Он поддерживает рендеринг с учётом симметрии и применяет гамма-коррекцию.
+ * Итоговое изображение получается логарифмическим тонированием буфера накопления ({@link ToneMapper}).
+ * Если рендерер сам создаёт плотный буфер накопления в куче, симметрия откладывается до тонирования
+ * ({@link SymmetryResampler}): каждое попадание записывается один раз, без поворотных копий.
+ * С переданным извне накопителем, в разреженном, компактном и внекучевом режимах и при накоплении вне памяти
+ * копии пишутся на каждое попадание: эти режимы выбираются ради памяти кучи, а поля и плотный холст сборки
+ * в куче её съедают.
+ * При билинейном распределении (splatting) попадание делится между четырьмя ближайшими центрами пикселей
+ * с весами в фиксированной точке вместо округления к одному пикселю.
+ * При суперсэмплинге попадания накапливаются на сетке, в заданное число раз более мелкой по каждой стороне,
+ * и перед тонированием буфер уменьшается до размера изображения сепарабельным фильтром ({@link Downsampler}).
+ * Холст, накопленный по тайлам вне памяти, тонируется и сохраняется по тайлам ({@link TiledImageWriter}).
+ * Промежуточные буферы и растры изображений берутся из общего пула ({@link BufferPool}): промежуточные
+ * возвращаются сразу после тонирования, растры — в {@link #close()}, после сохранения изображения.
  */
-public class Renderer {
+public class Renderer implements AutoCloseable {
+
+    /**
+     * Доля освещённых пикселей, плотность которых не превышает точку белого.
+     */
+    public static final double WHITE_POINT_PERCENTILE = 0.999;
+
+    /**
+     * Насыщенность по умолчанию: средний цвет пикселя умножается на яркость без смещения оттенка.
+     */
+    public static final double DEFAULT_VIBRANCY = 1.0;
 
     private static final int MAX_COLOR_VALUE = 255;
-    private static final double FULL_CIRCLE_DEGREE = 360.0;
     private static final int COLOR_MASK = 0xFF;
-    private static final int ALPHA_CHANNEL_SHIFT = 24;
     private static final int RED_CHANNEL_SHIFT = 16;
     private static final int GREEN_CHANNEL_SHIFT = 8;
+    private static final double LINEAR_GAMMA = 1.0;
+    private static final float ROUNDING = 0.5f;
+    private static final String TILES_DIRECTORY = "src/main/resources/fractal-tiles";
+    private static final String IMAGE_FILE = "src/main/resources/fractal";
+    private static final String IMAGE_EXTENSION = ".png";
+    private static final String SAVE_ERROR = "Ошибка сохранения изображения: ";
+    private static final double PIXEL_CENTER = 0.5;
+    private static final int SUBPIXEL_MASK = HitSink.SUBPIXELS - 1;
+    private static final int SPLAT_TAPS = 2;
+    private static final int RGB_BITS = 24;
+    private static final int[] RGB_MASKS = {COLOR_MASK << RED_CHANNEL_SHIFT, COLOR_MASK << GREEN_CHANNEL_SHIFT,
+        COLOR_MASK};
+    private static final DirectColorModel RGB_MODEL = new DirectColorModel(RGB_BITS, RGB_MASKS[0], RGB_MASKS[1],
+        RGB_MASKS[2]);
 
-    private final BufferedImage image;
-    private final FractalImage fractalImage;
-    private final List<double[]> precomputedAngles;
+    private final int width;
+    private final int height;
+    private final SymmetryGroup symmetry;
+    private final Accumulator accumulator;
+    private final boolean deferredSymmetry;
+    private final int canvasWidth;
+    private final int canvasHeight;
+    private final int offsetX;
+    private final int offsetY;
+    private final double halfWidth;
+    private final double halfHeight;
+    private final boolean splatting;
+    private final Supersampling supersampling;
+    private final List<int[]> rasters = new ArrayList<>();
+    private BufferedImage image;
+    private TiledImageWriter tiledWriter;
 
     /**
-     * Создаёт экземпляр Renderer с заданными параметрами.
+     * Создаёт экземпляр Renderer с заданными параметрами и накоплением в общий буфер пикселей.
      *
      * @param width Ширина изображения.
      * @param height Высота изображения.
      * @param axesCount Количество осей симметрии.
      */
     public Renderer(int width, int height, int axesCount) {
-        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        this.fractalImage = new FractalImage(width, height);
-        this.precomputedAngles = new ArrayList<>();
-        double angleStep = FULL_CIRCLE_DEGREE / axesCount;
-        for (int i = 0; i < axesCount; i++) {
-            double angle = Math.toRadians(i * angleStep);
-            precomputedAngles.add(new double[]{Math.cos(angle), Math.sin(angle)});
+        this(width, height, axesCount, AccumulationMode.LOCKED);
+    }
+
+    /**
+     * Создаёт экземпляр Renderer с заданными параметрами.
+     *
+     * @param width Ширина изображения.
+     * @param height Высота изображения.
+     * @param axesCount Количество осей симметрии.
+     * @param accumulationMode Режим накопления попаданий.
+     */
+    public Renderer(int width, int height, int axesCount, AccumulationMode accumulationMode) {
+        this(width, height, axesCount, accumulationMode, HistogramLayout.ROW_MAJOR);
+    }
+
+    /**
+     * Создаёт экземпляр Renderer по параметрам изображения и генерации из конфигурации.
+     *
+     * @param config Конфигурация генерации фракталов.
+     */
+    public Renderer(InputConfig config) {
+        this(config.width(), config.height(), SymmetryGroup.of(config.symmetry(), config.axesCount()),
+            createAccumulator(config), defersSymmetry(config.accumulationMode()), config.splatting(),
+            config.supersampling());
+    }
+
+    /**
+     * Создаёт экземпляр Renderer с заданными параметрами.
+     * Для режимов накопления в памяти буфер покрывает все поворотные копии холста, а симметрия
+     * строится при тонировании; режимы {@code OUT_OF_CORE} и неразрешённый {@code AUTO} пишут копии
+     * на каждое попадание.
+     *
+     * @param width Ширина изображения.
+     * @param height Высота изображения.
+     * @param axesCount Количество осей симметрии.
+     * @param accumulationMode Режим накопления попаданий.
+     * @param histogramLayout Раскладка пикселей в плоских буферах накопления.
+     */
+    public Renderer(int width, int height, int axesCount, AccumulationMode accumulationMode,
+        HistogramLayout histogramLayout) {
+        this(width, height, SymmetryGroup.rotational(axesCount), accumulationMode, histogramLayout);
+    }
+
+    /**
+     * Создаёт экземпляр Renderer с заданной группой симметрии.
+     * Для режимов накопления в памяти симметрия строится при тонировании.
+     *
+     * @param width Ширина изображения.
+     * @param height Высота изображения.
+     * @param symmetry Группа симметрии.
+     * @param accumulationMode Режим накопления попаданий.
+     * @param histogramLayout Раскладка пикселей в плоских буферах накопления.
+     */
+    public Renderer(int width, int height, SymmetryGroup symmetry, AccumulationMode accumulationMode,
+        HistogramLayout histogramLayout) {
+        this(width, height, symmetry, accumulationMode, histogramLayout, false);
+    }
+
+    /**
+     * Создаёт экземпляр Renderer с заданной группой симметрии и способом записи попаданий.
+     * Билинейное распределение поддерживают только режимы с плоскими счётчиками, накопители которых
+     * реализуют {@link WeightedAccumulator} ({@link Accumulators#supportsWeightedHits(AccumulationMode)}).
+     *
+     * @param width Ширина изображения.
+     * @param height Высота изображения.
+     * @param symmetry Группа симметрии.
+     * @param accumulationMode Режим накопления попаданий.
+     * @param histogramLayout Раскладка пикселей в плоских буферах накопления.
+     * @param splatting {@code true} для билинейного распределения попаданий по четырём пикселям.
+     */
+    public Renderer(int width, int height, SymmetryGroup symmetry, AccumulationMode accumulationMode,
+        HistogramLayout histogramLayout, boolean splatting) {
+        this(width, height, symmetry, accumulationMode, histogramLayout, splatting, Supersampling.NONE);
+    }
+
+    /**
+     * Создаёт экземпляр Renderer с суперсэмплингом.
+     * Буфер накопления в {@code factor²} раз больше изображения; чтобы коэффициент 3 не требовал
+     * девятикратной кучи, его стоит сочетать с компактным режимом {@code COMPACT}
+     * или автоматическим выбором режима по размеру сетки. Сетка уменьшается до построения
+     * отложенной симметрии, поэтому плотной копии сетки не создаётся.
+     *
+     * @param width Ширина изображения.
+     * @param height Высота изображения.
+     * @param symmetry Группа симметрии.
+     * @param accumulationMode Режим накопления попаданий; {@code OUT_OF_CORE} не поддерживает суперсэмплинг.
+     * @param histogramLayout Раскладка пикселей в плоских буферах накопления.
+     * @param splatting {@code true} для билинейного распределения попаданий по четырём пикселям.
+     * @param supersampling Коэффициент суперсэмплинга и фильтр уменьшения сетки до размера изображения.
+     */
+    public Renderer(int width, int height, SymmetryGroup symmetry, AccumulationMode accumulationMode,
+        HistogramLayout histogramLayout, boolean splatting, Supersampling supersampling) {
+        this(width, height, symmetry, Accumulators.create(accumulationMode,
+            canvasSize(width, symmetry, defersSymmetry(accumulationMode)) * supersampling.factor(),
+            canvasSize(height, symmetry, defersSymmetry(accumulationMode)) * supersampling.factor(), histogramLayout),
+            defersSymmetry(accumulationMode), splatting, supersampling);
+    }
+
+    /**
+     * Создаёт экземпляр Renderer с заданной стратегией накопления.
+     *
+     * @param width Ширина изображения.
+     * @param height Высота изображения.
+     * @param axesCount Количество осей симметрии.
+     * @param accumulator Накопитель попаданий.
+     */
+    public Renderer(int width, int height, int axesCount, Accumulator accumulator) {
+        this(width, height, SymmetryGroup.rotational(axesCount), accumulator);
+    }
+
+    /**
+     * Создаёт экземпляр Renderer с заданной группой симметрии и стратегией накопления.
+     * Симметричные копии записываются в накопитель на каждое попадание.
+     *
+     * @param width Ширина изображения.
+     * @param height Высота изображения.
+     * @param symmetry Группа симметрии.
+     * @param accumulator Накопитель попаданий размером с изображение.
+     */
+    public Renderer(int width, int height, SymmetryGroup symmetry, Accumulator accumulator) {
+        this(width, height, symmetry, accumulator, false, false, Supersampling.NONE);
+    }
+
+    private Renderer(int width, int height, SymmetryGroup symmetry, Accumulator accumulator,
+        boolean deferredSymmetry, boolean splatting, Supersampling supersampling) {
+        if (supersampling.enabled() && accumulator instanceof TileSpillAccumulator) {
+            accumulator.close();
+            throw new IllegalArgumentException("Накопление вне памяти не поддерживает суперсэмплинг");
         }
+        checkSplatting(accumulator, splatting);
+        this.width = width;
+        this.height = height;
+        this.symmetry = symmetry;
+        this.accumulator = accumulator;
+        this.deferredSymmetry = deferredSymmetry;
+        int factor = supersampling.factor();
+        this.canvasWidth = canvasSize(width, symmetry, deferredSymmetry) * factor;
+        this.canvasHeight = canvasSize(height, symmetry, deferredSymmetry) * factor;
+        this.offsetX = (canvasSize(width, symmetry, deferredSymmetry) - width) / 2 * factor;
+        this.offsetY = (canvasSize(height, symmetry, deferredSymmetry) - height) / 2 * factor;
+        this.halfWidth = width * factor / 2.0;
+        this.halfHeight = height * factor / 2.0;
+        this.splatting = splatting;
+        this.supersampling = supersampling;
+    }
+
+    /**
+     * Создаёт накопитель по конфигурации: размер холста учитывает симметрию и суперсэмплинг,
+     * а число потоков генерации передаётся накопителю, чтобы его собственные потоки не превысили ядра.
+     */
+    private static Accumulator createAccumulator(InputConfig config) {
+        SymmetryGroup symmetry = SymmetryGroup.of(config.symmetry(), config.axesCount());
+        boolean deferred = defersSymmetry(config.accumulationMode());
+        int factor = config.supersampling().factor();
+        return Accumulators.create(config.accumulationMode(), canvasSize(config.width(), symmetry, deferred) * factor,
+            canvasSize(config.height(), symmetry, deferred) * factor, config.histogramLayout(),
+            config.multithreaded() ? config.threads() : 1);
+    }
+
+    /**
+     * Проверяет, откладывается ли симметрия до тонирования: для этого буфер должен быть плотным и в куче.
+     * Внекучевой буфер не откладывает её: сборка скопировала бы буфер с полями в плотный холст в куче.
+     */
+    private static boolean defersSymmetry(AccumulationMode accumulationMode) {
+        return switch (accumulationMode) {
+            case OUT_OF_CORE, AUTO, SPARSE, COMPACT, OFF_HEAP -> false;
+            default -> true;
+        };
+    }
+
+    /**
+     * Возвращает сторону буфера накопления в пикселях изображения. При суперсэмплинге она умножается
+     * на коэффициент, поэтому поля отложенной симметрии кратны пикселю изображения и после уменьшения
+     * центр буфера совпадает с центром холста.
+     */
+    private static int canvasSize(int size, SymmetryGroup symmetry, boolean deferredSymmetry) {
+        return deferredSymmetry ? SymmetryResampler.sourceSize(size, symmetry) : size;
+    }
+
+    /**
+     * Проверяет, что буферы накопителя принимают взвешенные попадания билинейного распределения, то есть
+     * накопитель реализует {@link WeightedAccumulator}; иначе закрывает накопитель и отклоняет его.
+     */
+    private static void checkSplatting(Accumulator accumulator, boolean splatting) {
+        if (splatting && !(accumulator instanceof WeightedAccumulator)) {
+            accumulator.close();
+            throw new IllegalArgumentException("Накопитель " + accumulator.getClass().getSimpleName()
+                + " не поддерживает билинейное распределение попаданий");
+        }
+    }
+
+    /**
+     * Возвращает стратегию накопления попаданий.
+     *
+     * @return накопитель рендерера.
+     */
+    public Accumulator accumulator() {
+        return accumulator;
+    }
+
+    /**
+     * Возвращает изображение, выведенное последним вызовом {@link #render(double)}.
+     *
+     * @return изображение или {@code null}, если оно ещё не выведено или холст накоплен по тайлам.
+     */
+    public BufferedImage image() {
+        return image;
+    }
+
+    /**
+     * Возвращает буфер, в который вызывающий поток должен рендерить точки.
+     *
+     * @return буфер накопления для текущего потока.
+     */
+    public HitSink sink() {
+        return accumulator.sink();
     }
 
     /**
@@ -53,96 +326,385 @@ public class Renderer {
      * @param pixelColor Цвет точки.
      */
     public void renderPoint(Point point, PixelColor pixelColor) {
-        List<Point> points = applySymmetry(point);
-        points.add(point);
-        points.forEach(p -> setPixel(p.x(), p.y(), pixelColor));
+        renderPoint(point, pixelColor, accumulator.sink());
     }
 
     /**
-     * Выводит окончательное изображение.
+     * Рендерит точку и её симметричные отображения в заданный буфер.
+     * При отложенной симметрии записывается только сама точка.
+     *
+     * @param point Точка для рендеринга.
+     * @param pixelColor Цвет точки.
+     * @param sink Буфер накопления, полученный через {@link #sink()}.
      */
-    public void render() {
-        IntStream.range(0, image.getHeight()).parallel().forEach(y -> {
-            for (int x = 0; x < image.getWidth(); x++) {
-                Pixel pixel = fractalImage.getPixel(x, y);
-                image.setRGB(x, y, pixel.getColor().getRGB());
+    public void renderPoint(Point point, PixelColor pixelColor, HitSink sink) {
+        double x = point.x();
+        double y = point.y();
+        setPixel(x, y, pixelColor, sink);
+        if (!deferredSymmetry) {
+            int images = symmetry.images(x, y, halfWidth, halfHeight);
+            for (int element = 1; element < images; element++) {
+                setPixel(symmetry.x(element, x, y), symmetry.y(element, x, y), pixelColor, sink);
             }
-        });
+        }
+    }
+
+    /**
+     * Выводит окончательное изображение без гамма-коррекции.
+     */
+    public void render() {
+        render(LINEAR_GAMMA);
     }
 
     /**
-     * Применяет гамма-коррекцию к изображению.
+     * Выводит окончательное изображение, тонируя логарифм плотности попаданий с заданной гаммой.
+     * Для накопления по тайлам вне памяти здесь вычисляется только общая точка белого,
+     * а тайлы тонируются при сохранении.
      *
      * @param gammaCoefficient Коэффициент гаммы.
      */
-    public void applyGamma(double gammaCoefficient) {
-        double power = 1.0 / gammaCoefficient;
+    public void render(double gammaCoefficient) {
+        render(gammaCoefficient, symmetry);
+    }
 
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                int pixel = image.getRGB(x, y);
+    /**
+     * Выводит окончательное изображение с другим количеством осей той же группы симметрии
+     * без повторной генерации.
+     *
+     * @param gammaCoefficient Коэффициент гаммы.
+     * @param axesCount Количество осей симметрии.
+     */
+    public void render(double gammaCoefficient, int axesCount) {
+        render(gammaCoefficient, SymmetryGroup.of(symmetry.type(), axesCount));
+    }
 
-                int alpha = (pixel >> ALPHA_CHANNEL_SHIFT) & COLOR_MASK;
-                int red = (pixel >> RED_CHANNEL_SHIFT) & COLOR_MASK;
-                int green = (pixel >> GREEN_CHANNEL_SHIFT) & COLOR_MASK;
-                int blue = pixel & COLOR_MASK;
+    /**
+     * Выводит окончательное изображение с другой группой симметрии без повторной генерации.
+     * Доступно только при отложенной симметрии; повороты на углы, не кратные 90°, требуют
+     * расширенного буфера, который создаётся, если такая группа была задана при создании рендерера.
+     *
+     * @param gammaCoefficient Коэффициент гаммы.
+     * @param group Группа симметрии.
+     */
+    public void render(double gammaCoefficient, SymmetryGroup group) {
+        render(gammaCoefficient, DEFAULT_VIBRANCY, group);
+    }
 
-                red = (int) (MAX_COLOR_VALUE * Math.pow(red / (double) MAX_COLOR_VALUE, power));
-                green = (int) (MAX_COLOR_VALUE * Math.pow(green / (double) MAX_COLOR_VALUE, power));
-                blue = (int) (MAX_COLOR_VALUE * Math.pow(blue / (double) MAX_COLOR_VALUE, power));
+    /**
+     * Выводит окончательное изображение с заданными гаммой, насыщенностью и группой симметрии,
+     * единичной яркостью и линейным выводом.
+     *
+     * @param gammaCoefficient Коэффициент гаммы.
+     * @param vibrancy Насыщенность в [0, 1]; {@code 1} сохраняет оттенок средних цветов пикселей.
+     * @param group Группа симметрии.
+     */
+    public void render(double gammaCoefficient, double vibrancy, SymmetryGroup group) {
+        render(new ToneSettings(gammaCoefficient, vibrancy), group);
+    }
 
-                int newPixel = (alpha << ALPHA_CHANNEL_SHIFT) | (red << RED_CHANNEL_SHIFT)
-                    | (green << GREEN_CHANNEL_SHIFT) | blue;
-                image.setRGB(x, y, newPixel);
-            }
+    /**
+     * Выводит окончательное изображение с заданными параметрами тонирования и группой симметрии.
+     * Постобработка выполняется слитным конвейером ({@link PostProcessor}): после вычисления точки белого
+     * каждая строка буфера читается один раз, тонируется по таблицам и пишется прямо в растр изображения.
+     *
+     * @param settings Гамма, яркость, насыщенность и кодирование вывода.
+     * @param group Группа симметрии.
+     */
+    public void render(ToneSettings settings, SymmetryGroup group) {
+        render(settings, DensityEstimation.NONE, group);
+    }
+
+    /**
+     * Выводит окончательное изображение с адаптивной оценкой плотности ({@link DensityEstimator}).
+     * Фильтр применяется к буферу выходного разрешения после уменьшения и сборки копий симметрии,
+     * до вычисления точки белого. Накопление по тайлам вне памяти фильтр не поддерживает.
+     *
+     * @param settings Гамма, яркость, насыщенность и кодирование вывода.
+     * @param estimation Параметры оценки плотности.
+     * @param group Группа симметрии.
+     */
+    public void render(ToneSettings settings, DensityEstimation estimation, SymmetryGroup group) {
+        render(settings, estimation, Bloom.NONE, group);
+    }
+
+    /**
+     * Выводит окончательное изображение с оценкой плотности и свечением ярких областей ({@link BloomFilter}).
+     * Свечение вычисляется по тонированному изображению и прибавляется к нему после постобработки.
+     * Накопление по тайлам вне памяти не поддерживает ни фильтр плотности, ни свечение.
+     *
+     * @param settings Гамма, яркость, насыщенность и кодирование вывода.
+     * @param estimation Параметры оценки плотности.
+     * @param bloom Параметры свечения.
+     * @param group Группа симметрии.
+     */
+    public void render(ToneSettings settings, DensityEstimation estimation, Bloom bloom, SymmetryGroup group) {
+        render(settings, estimation, bloom, group, null);
+    }
+
+    /**
+     * Выводит окончательное изображение и цепочку его уменьшенных копий ({@link MipmapChain}): 1/2, 1/4
+     * и миниатюру. Уменьшается буфер накопления в том же проходе постобработки, который тонирует полное
+     * изображение; уровни тонируются с той же точкой белого, а радиус свечения уменьшается вместе с ними.
+     * Накопление по тайлам вне памяти уменьшенные копии не поддерживает.
+     *
+     * @param settings Гамма, яркость, насыщенность и кодирование вывода.
+     * @param estimation Параметры оценки плотности.
+     * @param bloom Параметры свечения.
+     * @param group Группа симметрии.
+     * @return полное изображение и уровни в порядке {@link MipmapChain#LEVEL_SUFFIXES}.
+     */
+    public List<BufferedImage> renderMipmaps(ToneSettings settings, DensityEstimation estimation, Bloom bloom,
+        SymmetryGroup group) {
+        return render(settings, estimation, bloom, group, new MipmapChain(width, height));
+    }
+
+    /**
+     * Проверяет до генерации, что постобработка доступна в режиме накопления. Холст, накопленный
+     * по тайлам вне памяти, тонируется по тайлам: оценке плотности, свечению и уменьшенным копиям нужен
+     * весь буфер.
+     *
+     * @param accumulationMode Конкретный режим накопления, после разрешения {@code AUTO}.
+     * @param estimation Оценка плотности.
+     * @param bloom Параметры свечения.
+     * @param mipmaps {@code true}, если запрошены уменьшенные копии.
+     */
+    public static void checkPostProcessing(AccumulationMode accumulationMode, DensityEstimation estimation,
+        Bloom bloom, boolean mipmaps) {
+        checkPostProcessing(accumulationMode == AccumulationMode.OUT_OF_CORE, estimation, bloom, mipmaps);
+    }
+
+    private static void checkPostProcessing(boolean outOfCore, DensityEstimation estimation, Bloom bloom,
+        boolean mipmaps) {
+        if (!outOfCore) {
+            return;
+        }
+        if (estimation.enabled()) {
+            throw new IllegalArgumentException("Накопление вне памяти не поддерживает оценку плотности");
+        }
+        if (bloom.enabled()) {
+            throw new IllegalArgumentException("Накопление вне памяти не поддерживает свечение");
+        }
+        if (mipmaps) {
+            throw new IllegalArgumentException("Накопление вне памяти не поддерживает уменьшенные копии");
         }
     }
 
+    private List<BufferedImage> render(ToneSettings settings, DensityEstimation estimation, Bloom bloom,
+        SymmetryGroup group, MipmapChain mipmaps) {
+        checkPostProcessing(accumulator instanceof TileSpillAccumulator, estimation, bloom, mipmaps != null);
+        if (!group.equals(symmetry) && !deferredSymmetry) {
+            throw new IllegalStateException("Симметрия уже записана в буфер накопления: " + symmetry.type()
+                + ", осей " + symmetry.axesCount());
+        }
+        // Каждая стадия домножает счётчики только до своего наименьшего веса попадания, а не поверх предыдущих
+        long hitWeight = splatting ? HitSink.SPLAT_WEIGHT : 1;
+        long sampledWeight = supersampling.enabled() ? Downsampler.weight(hitWeight) : hitWeight;
+        ToneMapper toneMapper = new ToneMapper(settings.gamma(), WHITE_POINT_PERCENTILE,
+            estimation.enabled() ? DensityEstimator.weight(sampledWeight) : sampledWeight);
+        if (accumulator instanceof TileSpillAccumulator tiles) {
+            tiledWriter = new TiledImageWriter(tiles, toneMapper, settings);
+            tiledWriter.measure();
+            return List.of();
+        }
+        Histogram accumulated = accumulator.result();
+        Histogram histogram = accumulated;
+        if (supersampling.enabled()) {
+            // Уменьшение до симметрии: копии собираются в разрешении изображения, без плотной копии сетки
+            histogram = Downsampler.downsample(histogram, supersampling.factor(), supersampling.filter(), hitWeight);
+        }
+        histogram = applySymmetry(histogram, accumulated, group);
+        if (estimation.enabled()) {
+            Histogram sharp = histogram;
+            histogram = DensityEstimator.filter(sharp, estimation, sampledWeight);
+            releaseIntermediate(sharp, accumulated);
+        }
+        double logWhitePoint = toneMapper.logWhitePoint(histogram);
+        List<PostStage> stages = new ArrayList<>();
+        if (mipmaps != null) {
+            stages.add(mipmaps.stage());
+        }
+        stages.addAll(List.of(PostStages.standard(toneMapper, logWhitePoint, settings)));
+        int[] pixels = BufferPool.shared().acquireInts(Math.multiplyExact(width, height));
+        rasters.add(pixels);
+        new PostProcessor(stages.toArray(PostStage[]::new)).process(histogram, pixels);
+        releaseIntermediate(histogram, accumulated);
+        BloomFilter.apply(pixels, width, height, bloom);
+        image = rgbImage(pixels, width, height);
+        List<BufferedImage> images = new ArrayList<>(List.of(image));
+        if (mipmaps != null) {
+            images.addAll(toneMapLevels(mipmaps, toneMapper.hitWeight(), logWhitePoint, settings, bloom));
+        }
+        return images;
+    }
+
+    /**
+     * Тонирует уровни уменьшенных копий: попаданием уровня считается {@code factor²} попаданий полного
+     * изображения, поэтому средняя плотность и экспозиция уровней совпадают с полным изображением.
+     */
+    private List<BufferedImage> toneMapLevels(MipmapChain mipmaps, long hitWeight, double logWhitePoint,
+        ToneSettings settings, Bloom bloom) {
+        List<DensityHistogram> levels = mipmaps.levels();
+        List<BufferedImage> images = new ArrayList<>();
+        for (int level = 0; level < levels.size(); level++) {
+            DensityHistogram histogram = levels.get(level);
+            int factor = mipmaps.factors().get(level);
+            ToneMapper toneMapper = new ToneMapper(settings.gamma(), WHITE_POINT_PERCENTILE,
+                hitWeight * factor * factor);
+            int[] pixels = BufferPool.shared().acquireInts(Math.multiplyExact(histogram.width(), histogram.height()));
+            rasters.add(pixels);
+            new PostProcessor(PostStages.standard(toneMapper, logWhitePoint, settings)).process(histogram, pixels);
+            histogram.release();
+            BloomFilter.apply(pixels, histogram.width(), histogram.height(),
+                new Bloom(bloom.threshold(), bloom.radius() / factor, bloom.intensity()));
+            images.add(rgbImage(pixels, histogram.width(), histogram.height()));
+        }
+        return images;
+    }
+
+    /**
+     * Собирает отложенную симметрию; буфер, который уже является холстом, возвращается без копии.
+     */
+    private Histogram applySymmetry(Histogram histogram, Histogram accumulated, SymmetryGroup group) {
+        if (!deferredSymmetry || !SymmetryResampler.needed(histogram, width, height, group)) {
+            return histogram;
+        }
+        Histogram canvas = SymmetryResampler.resample(histogram, width, height, group);
+        releaseIntermediate(histogram, accumulated);
+        return canvas;
+    }
+
+    private static void releaseIntermediate(Histogram histogram, Histogram accumulated) {
+        if (histogram != accumulated && histogram instanceof DensityHistogram intermediate) {
+            intermediate.release();
+        }
+    }
+
+    /**
+     * Создаёт изображение поверх массива пикселей без копирования.
+     * Цветовая модель та же, что у {@link BufferedImage#TYPE_INT_RGB}.
+     *
+     * @param pixels Пиксели {@code 0xRRGGBB} в построчном порядке.
+     * @param width Ширина изображения.
+     * @param height Высота изображения.
+     * @return изображение, разделяющее массив пикселей.
+     */
+    static BufferedImage rgbImage(int[] pixels, int width, int height) {
+        return new BufferedImage(RGB_MODEL, Raster.createPackedRaster(new DataBufferInt(pixels, pixels.length),
+            width, height, width, RGB_MASKS, null), false, null);
+    }
+
+    static int toChannel(float value) {
+        return (int) Math.min(MAX_COLOR_VALUE, value * MAX_COLOR_VALUE + ROUNDING);
+    }
+
     /**
      * Устанавливает цвет пикселя.
      *
      * @param x Горизонтальная координата пикселя.
      * @param y Вертикальная координата пикселя.
      * @param pixelColor Цвет пикселя.
+     * @param sink Буфер накопления.
      */
-    private void setPixel(double x, double y, PixelColor pixelColor) {
-        int xInt = (int) ((x + 1) * image.getWidth() / 2);
-        int yInt = (int) ((y + 1) * image.getHeight() / 2);
+    private void setPixel(double x, double y, PixelColor pixelColor, HitSink sink) {
+        if (splatting) {
+            // Буферы накопителя рендерера с билинейным распределением взвешенные: checkSplatting
+            splat(x, y, pixelColor, (WeightedHitSink) sink);
+        } else {
+            int xInt = (int) Math.floor((x + 1) * halfWidth) + offsetX;
+            int yInt = (int) Math.floor((y + 1) * halfHeight) + offsetY;
+            if (xInt >= 0 && xInt < canvasWidth && yInt >= 0 && yInt < canvasHeight) {
+                sink.add(xInt, yInt, pixelColor);
+            }
+        }
+    }
 
-        if (xInt < 0 || xInt >= image.getWidth() || yInt < 0 || yInt >= image.getHeight()) {
-            return;
+    /**
+     * Распределяет попадание между четырьмя пикселями, центры которых окружают точку.
+     * Координата переводится в фиксированную точку с {@link HitSink#SUBPIXEL_BITS} битами дробной части;
+     * если все четыре пикселя внутри буфера, они записываются одним вызовом {@link WeightedHitSink#splat},
+     * у края буфера — по отдельности, без пикселей за краем.
+     */
+    private void splat(double x, double y, PixelColor pixelColor, WeightedHitSink sink) {
+        long fixedX = (long) Math.floor(((x + 1) * halfWidth + offsetX - PIXEL_CENTER) * HitSink.SUBPIXELS);
+        long fixedY = (long) Math.floor(((y + 1) * halfHeight + offsetY - PIXEL_CENTER) * HitSink.SUBPIXELS);
+        long left = fixedX >> HitSink.SUBPIXEL_BITS;
+        long top = fixedY >> HitSink.SUBPIXEL_BITS;
+        int fractionX = (int) fixedX & SUBPIXEL_MASK;
+        int fractionY = (int) fixedY & SUBPIXEL_MASK;
+        if (left >= 0 && top >= 0 && left + 1 < canvasWidth && top + 1 < canvasHeight) {
+            sink.splat((int) left, (int) top, pixelColor, fractionX, fractionY);
+        } else if (left >= -1 && top >= -1 && left < canvasWidth && top < canvasHeight) {
+            splatEdge(left, top, fractionX, fractionY, pixelColor, sink);
         }
+    }
 
-        Pixel pixel = fractalImage.getPixel(xInt, yInt);
-        synchronized (pixel) {
-            pixel.addPoint(pixelColor);
+    private void splatEdge(long left, long top, int fractionX, int fractionY, PixelColor pixelColor,
+        WeightedHitSink sink) {
+        for (int dy = 0; dy < SPLAT_TAPS; dy++) {
+            for (int dx = 0; dx < SPLAT_TAPS; dx++) {
+                long weight = (long) (dx == 0 ? HitSink.SUBPIXELS - fractionX : fractionX)
+                    * (dy == 0 ? HitSink.SUBPIXELS - fractionY : fractionY);
+                long pixelX = left + dx;
+                long pixelY = top + dy;
+                if (weight != 0 && pixelX >= 0 && pixelX < canvasWidth && pixelY >= 0 && pixelY < canvasHeight) {
+                    sink.add((int) pixelX, (int) pixelY, pixelColor, weight);
+                }
+            }
         }
     }
 
     /**
-     * Генерирует симметричные точки для заданной точки.
-     *
-     * @param point Исходная точка.
-     * @return Список симметричных точек.
+     * Освобождает ресурсы буферов накопления, например память вне кучи, и возвращает в пул
+     * буферы и растры изображений. После закрытия изображения рендерера использовать нельзя.
      */
-    private List<Point> applySymmetry(Point point) {
-        List<Point> points = new ArrayList<>();
-        for (double[] angle : precomputedAngles) {
-            double newX = point.x() * angle[0] + point.y() * angle[1];
-            double newY = -point.x() * angle[1] + point.y() * angle[0];
-            points.add(new Point(newX, newY));
-        }
-        return points;
+    @Override
+    public void close() {
+        accumulator.close();
+        rasters.forEach(BufferPool.shared()::release);
+        rasters.clear();
+        image = null;
     }
 
     /**
-     * Сохраняет изображение в файл.
+     * Сохраняет изображение в файл, а холст, накопленный по тайлам, — в каталог файлов тайлов.
      */
     public void saveImage() {
+        if (tiledWriter == null) {
+            saveImage(image);
+            return;
+        }
+        try {
+            tiledWriter.write(Path.of(TILES_DIRECTORY));
+        } catch (Exception e) {
+            System.err.println(SAVE_ERROR + e.getMessage());
+        }
+    }
+
+    /**
+     * Сохраняет готовое изображение в файл.
+     *
+     * @param image Изображение.
+     */
+    public static void saveImage(BufferedImage image) {
+        write(image, IMAGE_FILE + IMAGE_EXTENSION);
+    }
+
+    /**
+     * Сохраняет полное изображение и его уменьшенные копии ({@link #renderMipmaps}) в отдельные файлы.
+     * Уровни кодируются в PNG параллельно.
+     *
+     * @param images Полное изображение и уровни в порядке {@link MipmapChain#LEVEL_SUFFIXES}.
+     */
+    public static void saveImages(List<BufferedImage> images) {
+        IntStream.range(0, images.size()).parallel().forEach(level -> write(images.get(level),
+            IMAGE_FILE + (level == 0 ? "" : MipmapChain.LEVEL_SUFFIXES.get(level - 1)) + IMAGE_EXTENSION));
+    }
+
+    private static void write(BufferedImage image, String file) {
         try {
-            ImageIO.write(image, "png", new File("src/main/resources/fractal.png"));
+            ImageIO.write(image, "png", new File(file));
         } catch (Exception e) {
-            System.err.println("Ошибка сохранения изображения: " + e.getMessage());
+            System.err.println(SAVE_ERROR + e.getMessage());
         }
     }
 }
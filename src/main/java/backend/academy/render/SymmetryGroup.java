@@ -0,0 +1,170 @@
+package backend.academy.render;
+
+import backend.academy.config.SymmetryType;
+import java.util.Objects;
+
+/**
+ * Группа симметрии изображения в виде заранее вычисленных матриц 2x2.
+ * Элементы хранятся подряд в одном массиве по четыре коэффициента: сначала повороты (первый — тождественный),
+ * затем отражения. Образ точки вычисляется по координатам без создания объектов, поэтому применение
+ * группы на каждое попадание не выделяет память.
+ * Точка на зеркальной оси совпадает со своим отражением, и тогда образы отражений повторяют образы
+ * поворотов; {@link #images(double, double, double, double)} отбрасывает такие повторы на уровне пикселей.
+ */
+public final class SymmetryGroup {
+
+    private static final int COEFFICIENTS = 4;
+    private static final int QUARTER_TURNS = 4;
+    private static final double FULL_CIRCLE = 2 * Math.PI;
+
+    private final SymmetryType type;
+    private final int axesCount;
+    private final int rotations;
+    private final double[] matrices;
+
+    private SymmetryGroup(SymmetryType type, int axesCount, int rotations, boolean reflections) {
+        this.type = type;
+        this.axesCount = axesCount;
+        this.rotations = rotations;
+        int size = reflections ? 2 * rotations : rotations;
+        this.matrices = new double[size * COEFFICIENTS];
+        for (int i = 0; i < rotations; i++) {
+            double cos = Math.cos(FULL_CIRCLE * i / rotations);
+            double sin = Math.sin(FULL_CIRCLE * i / rotations);
+            set(i, cos, -sin, sin, cos);
+            if (reflections) {
+                // Поворот после отражения x -> -x
+                set(rotations + i, -cos, -sin, -sin, cos);
+            }
+        }
+    }
+
+    /**
+     * Создаёт группу симметрии.
+     *
+     * @param type Вид группы.
+     * @param axesCount Количество осей; для {@link SymmetryType#MIRROR} не учитывается.
+     * @return группа симметрии.
+     */
+    public static SymmetryGroup of(SymmetryType type, int axesCount) {
+        int axes = Math.max(1, axesCount);
+        return switch (type) {
+            case ROTATIONAL -> new SymmetryGroup(type, axes, axes, false);
+            case MIRROR -> new SymmetryGroup(type, 1, 1, true);
+            case DIHEDRAL -> new SymmetryGroup(type, axes, axes, true);
+        };
+    }
+
+    /**
+     * Создаёт группу поворотов.
+     *
+     * @param axesCount Количество осей симметрии.
+     * @return группа поворотов на углы, кратные {@code 360° / axesCount}.
+     */
+    public static SymmetryGroup rotational(int axesCount) {
+        return of(SymmetryType.ROTATIONAL, axesCount);
+    }
+
+    public SymmetryType type() {
+        return type;
+    }
+
+    public int axesCount() {
+        return axesCount;
+    }
+
+    /**
+     * Возвращает количество элементов группы.
+     *
+     * @return количество образов точки, включая её саму.
+     */
+    public int size() {
+        return matrices.length / COEFFICIENTS;
+    }
+
+    /**
+     * Возвращает количество поворотов: элементы с меньшими номерами — повороты, остальные — отражения.
+     *
+     * @return количество поворотов, включая тождественный.
+     */
+    public int rotations() {
+        return rotations;
+    }
+
+    /**
+     * Проверяет, что все элементы группы переводят квадрат {@code [-1, 1]²} в себя, то есть повороты
+     * кратны 90°; иначе на холст попадают точки из-за его краёв.
+     *
+     * @return {@code true}, если образы точек холста остаются на холсте.
+     */
+    public boolean preservesSquare() {
+        return QUARTER_TURNS % rotations == 0;
+    }
+
+    /**
+     * Возвращает количество различных образов точки: все элементы группы или, если точка лежит на
+     * зеркальной оси с точностью до пикселя, только повороты.
+     *
+     * @param x Координата точки по горизонтали в {@code [-1, 1]}.
+     * @param y Координата точки по вертикали в {@code [-1, 1]}.
+     * @param halfWidth Половина ширины холста в пикселях.
+     * @param halfHeight Половина высоты холста в пикселях.
+     * @return количество первых элементов группы, образы которых нужно записать.
+     */
+    public int images(double x, double y, double halfWidth, double halfHeight) {
+        int size = size();
+        long pixelX = (long) Math.floor((x + 1) * halfWidth);
+        long pixelY = (long) Math.floor((y + 1) * halfHeight);
+        for (int element = rotations; element < size; element++) {
+            if ((long) Math.floor((x(element, x, y) + 1) * halfWidth) == pixelX
+                && (long) Math.floor((y(element, x, y) + 1) * halfHeight) == pixelY) {
+                size = rotations;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Вычисляет горизонтальную координату образа точки.
+     *
+     * @param element Номер элемента группы.
+     * @param x Координата точки по горизонтали.
+     * @param y Координата точки по вертикали.
+     * @return координата образа по горизонтали.
+     */
+    public double x(int element, double x, double y) {
+        int base = element * COEFFICIENTS;
+        return matrices[base] * x + matrices[base + 1] * y;
+    }
+
+    /**
+     * Вычисляет вертикальную координату образа точки.
+     *
+     * @param element Номер элемента группы.
+     * @param x Координата точки по горизонтали.
+     * @param y Координата точки по вертикали.
+     * @return координата образа по вертикали.
+     */
+    public double y(int element, double x, double y) {
+        int base = element * COEFFICIENTS + 2;
+        return matrices[base] * x + matrices[base + 1] * y;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SymmetryGroup group && group.type == type && group.axesCount == axesCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, axesCount);
+    }
+
+    private void set(int element, double a, double b, double c, double d) {
+        int base = element * COEFFICIENTS;
+        matrices[base++] = a;
+        matrices[base++] = b;
+        matrices[base++] = c;
+        matrices[base] = d;
+    }
+}
@@ -0,0 +1,216 @@
+package backend.academy.render;
+
+import backend.academy.models.BufferPool;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.RowMajorLayout;
+import java.util.stream.IntStream;
+
+/**
+ * Отложенная симметрия: симметричные копии строятся при тонировании, а не на каждое попадание.
+ * Генератор накапливает только исходные точки в буфер, который покрывает всё, что после преобразований
+ * группы может попасть на холст: при поворотах на углы, кратные 90°, это сам холст, иначе — квадрат
+ * со стороной в {@code √2} раз больше, описанный вокруг круга, в который вписан холст.
+ * Холст собирается рассеиванием: строки исходного буфера читаются через {@link Histogram#readRow},
+ * без плотной копии, и центр каждого освещённого пикселя переносится каждым элементом группы.
+ * Значения пикселя делятся между четырьмя пикселями холста вокруг образа билинейно с округлением
+ * накопленных долей, поэтому сумма попаданий и каналов сохраняется точно, а повороты на углы,
+ * не кратные 90°, не дают муара. Пиксель на зеркальной оси переносится только поворотами,
+ * чтобы не учитывать его дважды.
+ * Элементы группы обрабатываются по очереди, а полосы исходных строк — параллельно в два прохода,
+ * чётные и нечётные: образы полос одного прохода не пересекаются, и запись в холст обходится без
+ * синхронизации. Горячий цикл делает одну запись на итерацию вместо размера группы, а группу можно
+ * сменить после генерации.
+ */
+public final class SymmetryResampler {
+
+    private static final double PADDED_EXTENT = Math.sqrt(2);
+    private static final double PIXEL_CENTER = 0.5;
+    private static final int STRIP_ROWS = 64;
+    private static final int CORNERS = 4;
+    private static final int PHASES = 2;
+
+    private final Histogram source;
+    private final DensityHistogram canvas;
+    private final SymmetryGroup symmetry;
+    private final int offsetX;
+    private final int offsetY;
+    private final double halfWidth;
+    private final double halfHeight;
+    private final int stripRows;
+    private final ThreadLocal<long[]> rows;
+
+    private SymmetryResampler(Histogram source, DensityHistogram canvas, SymmetryGroup symmetry) {
+        this.source = source;
+        this.canvas = canvas;
+        this.symmetry = symmetry;
+        this.offsetX = (source.width() - canvas.width()) / 2;
+        this.offsetY = (source.height() - canvas.height()) / 2;
+        this.halfWidth = canvas.width() / 2.0;
+        this.halfHeight = canvas.height() / 2.0;
+        // Растяжение осей у неквадратного холста сближает образы полос не более чем в отношение сторон
+        this.stripRows = STRIP_ROWS * Math.ceilDiv(Math.max(canvas.width(), canvas.height()),
+            Math.min(canvas.width(), canvas.height()));
+        this.rows = ThreadLocal.withInitial(() -> new long[source.width() * Histogram.CHANNELS]);
+    }
+
+    /**
+     * Возвращает размер исходного буфера по одной стороне холста.
+     *
+     * @param size Ширина или высота холста в пикселях.
+     * @param symmetry Группа симметрии.
+     * @return ширина или высота буфера исходных точек в пикселях.
+     */
+    public static int sourceSize(int size, SymmetryGroup symmetry) {
+        return symmetry.preservesSquare() ? size : (int) Math.ceil(size * PADDED_EXTENT);
+    }
+
+    /**
+     * Проверяет, нужно ли собирать холст: буфер, совпадающий с холстом, в тождественной группе
+     * уже является холстом.
+     *
+     * @param source Буфер исходных точек.
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     * @param symmetry Группа симметрии.
+     * @return {@code true}, если нужен {@link #resample}.
+     */
+    public static boolean needed(Histogram source, int width, int height, SymmetryGroup symmetry) {
+        return symmetry.size() > 1 || source.width() != width || source.height() != height;
+    }
+
+    /**
+     * Оценивает память промежуточных буферов сборки холста: сам холст и, при суперсэмплинге,
+     * уменьшенный буфер исходных точек. Используется при выборе режима накопления.
+     *
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     * @param symmetry Группа симметрии.
+     * @param factor Коэффициент суперсэмплинга.
+     * @return размер промежуточных буферов в байтах; {@code 0}, если сборка не нужна.
+     */
+    public static long intermediateBytes(int width, int height, SymmetryGroup symmetry, int factor) {
+        if (symmetry.size() == 1) {
+            return 0;
+        }
+        long pixelBytes = (long) Histogram.CHANNELS * Long.BYTES;
+        long downsampled = factor > 1 ? (long) sourceSize(width, symmetry) * sourceSize(height, symmetry) : 0;
+        return ((long) width * height + downsampled) * pixelBytes;
+    }
+
+    /**
+     * Собирает симметричный холст из буфера исходных точек.
+     *
+     * @param source Буфер исходных точек размером {@link #sourceSize(int, SymmetryGroup)} по каждой стороне.
+     * @param width Ширина холста в пикселях.
+     * @param height Высота холста в пикселях.
+     * @param symmetry Группа симметрии.
+     * @return буфер холста с попаданиями всех симметричных копий на массиве общего пула;
+     *     возвращается в пул через {@link DensityHistogram#release()}.
+     */
+    public static DensityHistogram resample(Histogram source, int width, int height, SymmetryGroup symmetry) {
+        if (source.width() < sourceSize(width, symmetry) || source.height() < sourceSize(height, symmetry)) {
+            throw new IllegalArgumentException("Буфер " + source.width() + "x" + source.height()
+                + " не покрывает образы холста " + width + "x" + height + " в группе " + symmetry.type()
+                + " на " + symmetry.axesCount() + " осей");
+        }
+        DensityHistogram canvas = new DensityHistogram(new RowMajorLayout(width, height), BufferPool.shared());
+        new SymmetryResampler(source, canvas, symmetry).scatter();
+        return canvas;
+    }
+
+    private void scatter() {
+        int strips = Math.ceilDiv(source.height(), stripRows);
+        for (int element = 0; element < symmetry.size(); element++) {
+            int current = element;
+            for (int phase = 0; phase < PHASES; phase++) {
+                int first = phase;
+                IntStream.range(0, (strips - phase + 1) / PHASES).parallel()
+                    .forEach(index -> scatterStrip(current, index * PHASES + first));
+            }
+        }
+    }
+
+    private void scatterStrip(int element, int strip) {
+        long[] row = rows.get();
+        // Образ линеен по координатам: шаг вдоль строки исходного буфера постоянен
+        double stepX = symmetry.x(element, 1, 0);
+        double stepY = symmetry.y(element, 1, 0) * halfHeight / halfWidth;
+        boolean reflection = element >= symmetry.rotations();
+        for (int y = strip * stripRows; y < Math.min(source.height(), (strip + 1) * stripRows); y++) {
+            source.readRow(y, row);
+            double v = (y - offsetY + PIXEL_CENTER) / halfHeight - 1;
+            double u = (PIXEL_CENTER - offsetX) / halfWidth - 1;
+            double imageX = (symmetry.x(element, u, v) + 1) * halfWidth - PIXEL_CENTER;
+            double imageY = (symmetry.y(element, u, v) + 1) * halfHeight - PIXEL_CENTER;
+            for (int x = 0, base = 0; x < source.width();
+                x++, base += Histogram.CHANNELS, imageX += stepX, imageY += stepY) {
+                if (row[base + Histogram.HITS] != 0 && !(reflection && onMirrorAxis(element, x, v))) {
+                    spread(row, base, imageX, imageY);
+                }
+            }
+        }
+    }
+
+    private boolean onMirrorAxis(int element, int x, double v) {
+        double u = (x - offsetX + PIXEL_CENTER) / halfWidth - 1;
+        return element >= symmetry.images(u, v, halfWidth, halfHeight);
+    }
+
+    /**
+     * Делит значения пикселя между четырьмя пикселями холста вокруг образа. Попадания делятся по
+     * билинейным весам с округлением накопленных сумм, каналы — в тех же долях, что попадания, поэтому
+     * суммы сохраняются точно, а пиксель без попаданий не получает цвета.
+     */
+    private void spread(long[] row, int base, double imageX, double imageY) {
+        int left = (int) Math.floor(imageX);
+        int top = (int) Math.floor(imageY);
+        double fractionX = imageX - left;
+        double fractionY = imageY - top;
+        long hits = row[base + Histogram.HITS];
+        long hitsBefore = 0;
+        long redBefore = 0;
+        long greenBefore = 0;
+        long blueBefore = 0;
+        for (int corner = 0; corner < CORNERS && hitsBefore < hits; corner++) {
+            long hitsUpTo = round(hits * cumulativeWeight(corner, fractionX, fractionY));
+            if (hitsUpTo == hitsBefore) {
+                continue;
+            }
+            long redUpTo = share(row[base + Histogram.RED], hitsUpTo, hits);
+            long greenUpTo = share(row[base + Histogram.GREEN], hitsUpTo, hits);
+            long blueUpTo = share(row[base + Histogram.BLUE], hitsUpTo, hits);
+            int x = left + (corner & 1);
+            int y = top + (corner >> 1);
+            if (x >= 0 && x < canvas.width() && y >= 0 && y < canvas.height()) {
+                canvas.addPoints(canvas.indexOf(x, y), hitsUpTo - hitsBefore, redUpTo - redBefore,
+                    greenUpTo - greenBefore, blueUpTo - blueBefore);
+            }
+            hitsBefore = hitsUpTo;
+            redBefore = redUpTo;
+            greenBefore = greenUpTo;
+            blueBefore = blueUpTo;
+        }
+    }
+
+    private static long share(long value, long hitsUpTo, long hits) {
+        return hitsUpTo == hits ? value : round(value * ((double) hitsUpTo / hits));
+    }
+
+    private static long round(double value) {
+        return (long) (value + PIXEL_CENTER);
+    }
+
+    /**
+     * Возвращает сумму билинейных весов углов до заданного включительно в порядке: левый верхний,
+     * правый верхний, левый нижний, правый нижний.
+     */
+    private static double cumulativeWeight(int corner, double fractionX, double fractionY) {
+        return switch (corner) {
+            case 0 -> (1 - fractionX) * (1 - fractionY);
+            case 1 -> 1 - fractionY;
+            case 2 -> 1 - fractionX * fractionY;
+            default -> 1;
+        };
+    }
+}
@@ -0,0 +1,167 @@
+package backend.academy.render;
+
+import backend.academy.accumulate.TileSpillAccumulator;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import javax.imageio.ImageIO;
+
+/**
+ * Тонирование и запись холста, накопленного по тайлам вне памяти ({@link TileSpillAccumulator}).
+ * Первый проход загружает тайлы и собирает общую статистику плотности: максимум попаданий и
+ * гистограмму логарифмов на шкале до {@code log1p} общего числа попаданий. Второй проход снова
+ * загружает каждый тайл, тонирует его с общей точкой белого слитным конвейером ({@link PostProcessor})
+ * и сохраняет отдельным PNG, поэтому тайлы стыкуются без швов, а в памяти находятся только
+ * обрабатываемые в данный момент тайлы. Их число ограничено не только числом ядер, но и половиной кучи
+ * ({@link #concurrentTiles(int, long, int)}): плотный буфер тайла по умолчанию занимает 32 МиБ.
+ */
+public class TiledImageWriter {
+
+    private static final double HEAP_SHARE = 0.5;
+
+    private final TileSpillAccumulator tiles;
+    private final ToneMapper toneMapper;
+    private final ToneSettings settings;
+    private final Semaphore loads;
+    private double logWhitePoint = Double.NaN;
+
+    /**
+     * Создаёт writer для накопленного по тайлам холста.
+     *
+     * @param tiles Накопитель с завершённой генерацией.
+     * @param toneMapper Тонировщик с параметрами гаммы и точки белого.
+     */
+    public TiledImageWriter(TileSpillAccumulator tiles, ToneMapper toneMapper) {
+        this(tiles, toneMapper, new ToneSettings(toneMapper.gamma(), Renderer.DEFAULT_VIBRANCY));
+    }
+
+    /**
+     * Создаёт writer для накопленного по тайлам холста с заданными параметрами тонирования.
+     *
+     * @param tiles Накопитель с завершённой генерацией.
+     * @param toneMapper Тонировщик с параметрами точки белого.
+     * @param settings Гамма, яркость, насыщенность и кодирование вывода.
+     */
+    public TiledImageWriter(TileSpillAccumulator tiles, ToneMapper toneMapper, ToneSettings settings) {
+        this.tiles = tiles;
+        this.toneMapper = toneMapper;
+        this.settings = settings;
+        Runtime runtime = Runtime.getRuntime();
+        this.loads = new Semaphore(concurrentTiles(tiles.tileSize(), runtime.maxMemory(),
+            runtime.availableProcessors()));
+    }
+
+    /**
+     * Возвращает, сколько тайлов можно одновременно держать в памяти: плотный буфер и растр каждого
+     * должны уместиться в половину кучи, а больше тайлов, чем ядер, обрабатывать незачем.
+     *
+     * @param tileSize Сторона тайла в пикселях.
+     * @param maxMemory Наибольший объём кучи в байтах.
+     * @param cores Количество ядер.
+     * @return количество одновременно загруженных тайлов, не меньше одного.
+     */
+    public static int concurrentTiles(int tileSize, long maxMemory, int cores) {
+        long tileBytes = (long) tileSize * tileSize * (Histogram.CHANNELS * Long.BYTES + Integer.BYTES);
+        return (int) Math.clamp((long) (maxMemory * HEAP_SHARE) / tileBytes, 1, Math.max(1, cores));
+    }
+
+    /**
+     * Вычисляет общую точку белого первым проходом по тайлам.
+     *
+     * @return {@code log1p} плотности точки белого.
+     */
+    public double measure() {
+        if (Double.isNaN(logWhitePoint)) {
+            double logScale = Math.log1p(tiles.totalHits());
+            Statistics statistics = IntStream.range(0, tiles.tilesX() * tiles.tilesY()).parallel()
+                .collect(Statistics::new, (acc, tile) -> withTile(tile, histogram -> {
+                    acc.add(histogram, logScale);
+                    return null;
+                }), Statistics::merge);
+            logWhitePoint = toneMapper.logWhitePoint(statistics.maxHits, statistics.buckets, logScale);
+        }
+        return logWhitePoint;
+    }
+
+    /**
+     * Тонирует тайлы вторым проходом и сохраняет каждый в файл {@code tile_<строка>_<столбец>.png}.
+     *
+     * @param directory Каталог для файлов тайлов; создаётся при необходимости.
+     * @throws IOException если каталог не удалось создать или тайл не удалось записать.
+     */
+    public void write(Path directory) throws IOException {
+        double whitePoint = measure();
+        Files.createDirectories(directory);
+        try {
+            IntStream.range(0, tiles.tilesX() * tiles.tilesY()).parallel()
+                .forEach(tile -> writeTile(tile, whitePoint, directory));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Загружает тайл и обрабатывает его, дождавшись, пока число загруженных тайлов опустится ниже предела.
+     */
+    private <T> T withTile(int tile, Function<DensityHistogram, T> action) {
+        loads.acquireUninterruptibly();
+        try {
+            return action.apply(tiles.tile(tile % tiles.tilesX(), tile / tiles.tilesX()));
+        } finally {
+            loads.release();
+        }
+    }
+
+    private void writeTile(int tile, double whitePoint, Path directory) {
+        BufferedImage image = withTile(tile, histogram -> {
+            int[] pixels = new int[histogram.width() * histogram.height()];
+            new PostProcessor(PostStages.standard(toneMapper, whitePoint, settings)).process(histogram, pixels);
+            return Renderer.rgbImage(pixels, histogram.width(), histogram.height());
+        });
+        Path file = directory.resolve("tile_" + tile / tiles.tilesX() + "_" + tile % tiles.tilesX() + ".png");
+        try {
+            ImageIO.write(image, "png", file.toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Статистика плотности, накапливаемая по тайлам.
+     */
+    private final class Statistics {
+
+        private long maxHits;
+        private long[] buckets;
+
+        private void add(DensityHistogram tile, double logScale) {
+            maxHits = Math.max(maxHits, toneMapper.maxHits(tile));
+            long[] tileBuckets = toneMapper.densityBuckets(tile, logScale);
+            if (buckets == null) {
+                buckets = tileBuckets;
+            } else {
+                for (int i = 0; i < buckets.length; i++) {
+                    buckets[i] += tileBuckets[i];
+                }
+            }
+        }
+
+        private void merge(Statistics other) {
+            maxHits = Math.max(maxHits, other.maxHits);
+            if (buckets == null) {
+                buckets = other.buckets;
+            } else if (other.buckets != null) {
+                for (int i = 0; i < buckets.length; i++) {
+                    buckets[i] += other.buckets[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package backend.academy.render;
+
+import backend.academy.models.Histogram;
+import backend.academy.models.SparseHistogram;
+import java.util.stream.IntStream;
+
+/**
+ * Тонирование буфера накопления в духе flam3.
+ * Яркость пикселя пропорциональна логарифму плотности попаданий, нормированному на точку белого —
+ * максимум или заданный перцентиль плотности среди освещённых пикселей. Все проходы и редукции
+ * выполняются параллельно по строкам, результат хранится во float-буфере без потери точности на 8 битах.
+ * Разреженный буфер ({@link SparseHistogram}) обходится по освещённым пикселям, минуя пустые области:
+ * результат заполнен чёрным фоном, и тонируются только занятые слоты. Плотный float-буфер результата годится
+ * только для небольших изображений: большие холсты тонируются построчно ({@link PostProcessor}) в упакованный
+ * растр без промежуточного буфера.
+ * Счётчики буфера с взвешенными попаданиями делятся на вес одного попадания, поэтому плотность
+ * сравнима с накоплением по точкам.
+ */
+public class ToneMapper {
+
+    /**
+     * Количество значений на пиксель в выходном буфере: красный, зелёный и синий каналы.
+     */
+    public static final int RGB = 3;
+
+    /**
+     * Количество корзин гистограммы логарифмов плотности, по которой ищется перцентиль точки белого.
+     */
+    public static final int PERCENTILE_BUCKETS = 4096;
+
+    private static final double MAX_COLOR_VALUE = 255.0;
+    private static final double FULL_PERCENTILE = 1.0;
+
+    private final double gamma;
+    private final double whitePointPercentile;
+    private final long hitWeight;
+
+    /**
+     * Создаёт тонировщик.
+     *
+     * @param gamma Коэффициент гаммы, применяемый к логарифмической плотности.
+     * @param whitePointPercentile Доля освещённых пикселей, плотность которых не превышает точку белого.
+     *                             Значение {@code 1.0} соответствует глобальному максимуму.
+     */
+    public ToneMapper(double gamma, double whitePointPercentile) {
+        this(gamma, whitePointPercentile, 1);
+    }
+
+    /**
+     * Создаёт тонировщик для буфера с взвешенными попаданиями.
+     *
+     * @param gamma Коэффициент гаммы, применяемый к логарифмической плотности.
+     * @param whitePointPercentile Доля освещённых пикселей, плотность которых не превышает точку белого.
+     * @param hitWeight Значение счётчика, соответствующее одному попаданию.
+     */
+    public ToneMapper(double gamma, double whitePointPercentile, long hitWeight) {
+        if (gamma <= 0) {
+            throw new IllegalArgumentException("Гамма должна быть положительной: " + gamma);
+        }
+        if (whitePointPercentile <= 0 || whitePointPercentile > FULL_PERCENTILE) {
+            throw new IllegalArgumentException("Перцентиль точки белого должен быть в (0, 1]: " + whitePointPercentile);
+        }
+        this.gamma = gamma;
+        this.whitePointPercentile = whitePointPercentile;
+        this.hitWeight = hitWeight;
+    }
+
+    /**
+     * Тонирует буфер накопления, вычислив точку белого по нему же.
+     *
+     * @param histogram Буфер накопления.
+     * @return Массив {@code width * height * RGB} значений каналов в диапазоне [0, 1].
+     */
+    public float[] map(Histogram histogram) {
+        return map(histogram, logWhitePoint(histogram));
+    }
+
+    public double gamma() {
+        return gamma;
+    }
+
+    /**
+     * Возвращает значение счётчика, соответствующее одному попаданию.
+     *
+     * @return вес попадания.
+     */
+    public long hitWeight() {
+        return hitWeight;
+    }
+
+    /**
+     * Вычисляет логарифм плотности точки белого по буферу накопления: максимум попаданий
+     * и, если точка белого задана перцентилем, гистограмма плотностей. Буфер читается
+     * только по счётчикам попаданий.
+     *
+     * @param histogram Буфер накопления.
+     * @return {@code log1p} плотности точки белого; {@code 0} для пустого буфера.
+     */
+    public double logWhitePoint(Histogram histogram) {
+        long maxHits = maxHits(histogram);
+        if (maxHits == 0 || whitePointPercentile >= FULL_PERCENTILE) {
+            return logDensity(maxHits);
+        }
+        double logMax = logDensity(maxHits);
+        return logWhitePoint(maxHits, densityBuckets(histogram, logMax), logMax);
+    }
+
+    /**
+     * Тонирует буфер накопления с заданной точкой белого.
+     * Позволяет тонировать части большого холста по отдельности с общей точкой белого, без швов.
+     *
+     * @param histogram Буфер накопления.
+     * @param logWhitePoint Логарифм плотности точки белого, {@code log1p(hits)}.
+     * @return Массив {@code width * height * RGB} значений каналов в диапазоне [0, 1].
+     * @throws ArithmeticException если размер результата не помещается в массив.
+     */
+    public float[] map(Histogram histogram, double logWhitePoint) {
+        int width = histogram.width();
+        int height = histogram.height();
+        float[] rgb = new float[Math.multiplyExact(Math.multiplyExact(width, height), RGB)];
+        if (logWhitePoint <= 0) {
+            return rgb;
+        }
+        if (histogram instanceof SparseHistogram sparse) {
+            IntStream.range(0, sparse.size()).parallel().forEach(slot -> mapPixel(sparse.value(slot, Histogram.HITS),
+                sparse.value(slot, Histogram.RED), sparse.value(slot, Histogram.GREEN),
+                sparse.value(slot, Histogram.BLUE), rgb, Math.toIntExact(sparse.index(slot) * RGB), logWhitePoint));
+            return rgb;
+        }
+        ThreadLocal<long[]> rows = rowBuffers(histogram);
+        IntStream.range(0, height).parallel()
+            .forEach(y -> mapRow(histogram, y, rows.get(), rgb, logWhitePoint));
+        return rgb;
+    }
+
+    /**
+     * Вычисляет логарифм плотности пикселя.
+     *
+     * @param hits Счётчик попаданий пикселя.
+     * @return {@code log1p} количества попаданий с учётом веса попадания.
+     */
+    public double logDensity(long hits) {
+        return Math.log1p((double) hits / hitWeight);
+    }
+
+    /**
+     * Вычисляет яркость пикселя: логарифм плотности, нормированный на точку белого, в степени {@code 1 / gamma}.
+     *
+     * @param logDensity Логарифм плотности пикселя, {@code log1p(hits)}.
+     * @param logWhitePoint Логарифм плотности точки белого.
+     * @return яркость в диапазоне [0, 1].
+     */
+    public double brightness(double logDensity, double logWhitePoint) {
+        return Math.pow(Math.min(1.0, logDensity / logWhitePoint), 1.0 / gamma);
+    }
+
+    /**
+     * Возвращает корзину гистограммы плотностей для логарифма плотности освещённого пикселя.
+     *
+     * @param logDensity Логарифм плотности пикселя, {@code log1p(hits)}.
+     * @param logScale Верхняя граница шкалы гистограммы.
+     * @return номер корзины от {@code 0} до {@code PERCENTILE_BUCKETS - 1}.
+     */
+    public static int densityBucket(double logDensity, double logScale) {
+        return Math.min((int) (logDensity / logScale * PERCENTILE_BUCKETS), PERCENTILE_BUCKETS - 1);
+    }
+
+    /**
+     * Находит наибольшее количество попаданий в пиксель буфера.
+     *
+     * @param histogram Буфер накопления.
+     * @return максимум попаданий или {@code 0} для пустого буфера.
+     */
+    public long maxHits(Histogram histogram) {
+        if (histogram instanceof SparseHistogram sparse) {
+            return IntStream.range(0, sparse.size()).parallel()
+                .mapToLong(slot -> sparse.value(slot, Histogram.HITS))
+                .max()
+                .orElse(0);
+        }
+        ThreadLocal<long[]> rows = rowBuffers(histogram);
+        return IntStream.range(0, histogram.height()).parallel()
+            .mapToLong(y -> rowMaxHits(histogram, y, rows.get()))
+            .max()
+            .orElse(0);
+    }
+
+    /**
+     * Строит гистограмму логарифмов плотности освещённых пикселей буфера.
+     * Гистограммы частей холста с одинаковой шкалой складываются поэлементно.
+     *
+     * @param histogram Буфер накопления.
+     * @param logScale Верхняя граница шкалы, {@code log1p} от оценки сверху максимума попаданий.
+     * @return количество освещённых пикселей в каждом из корзин шкалы.
+     */
+    public long[] densityBuckets(Histogram histogram, double logScale) {
+        if (histogram instanceof SparseHistogram sparse) {
+            return IntStream.range(0, sparse.size()).parallel()
+                .collect(() -> new long[PERCENTILE_BUCKETS],
+                    (acc, slot) -> acc[densityBucket(logDensity(sparse.value(slot, Histogram.HITS)), logScale)]++,
+                    ToneMapper::mergeBuckets);
+        }
+        ThreadLocal<long[]> rows = rowBuffers(histogram);
+        return IntStream.range(0, histogram.height()).parallel()
+            .collect(() -> new long[PERCENTILE_BUCKETS],
+                (acc, y) -> countRowBuckets(histogram, y, rows.get(), acc, logScale),
+                ToneMapper::mergeBuckets);
+    }
+
+    /**
+     * Вычисляет логарифм плотности точки белого по гистограмме плотностей.
+     *
+     * @param maxHits Максимум попаданий в пиксель.
+     * @param buckets Гистограмма плотностей из {@link #densityBuckets(Histogram, double)}.
+     * @param logScale Верхняя граница шкалы, с которой строилась гистограмма.
+     * @return {@code log1p} плотности точки белого.
+     */
+    public double logWhitePoint(long maxHits, long[] buckets, double logScale) {
+        if (whitePointPercentile >= FULL_PERCENTILE) {
+            return logDensity(maxHits);
+        }
+        long lit = 0;
+        for (long count : buckets) {
+            lit += count;
+        }
+        long target = (long) Math.ceil(lit * whitePointPercentile);
+        long cumulative = 0;
+        for (int bucket = 0; bucket < PERCENTILE_BUCKETS; bucket++) {
+            cumulative += buckets[bucket];
+            if (cumulative >= target) {
+                double upper = (bucket + 1) * logScale / PERCENTILE_BUCKETS;
+                return Math.log1p(Math.min((double) maxHits / hitWeight, Math.expm1(upper)));
+            }
+        }
+        return logDensity(maxHits);
+    }
+
+    private static ThreadLocal<long[]> rowBuffers(Histogram histogram) {
+        int length = histogram.width() * Histogram.CHANNELS;
+        return ThreadLocal.withInitial(() -> new long[length]);
+    }
+
+    private static long rowMaxHits(Histogram histogram, int y, long[] row) {
+        histogram.readRow(y, row);
+        long max = 0;
+        for (int i = Histogram.HITS; i < histogram.width() * Histogram.CHANNELS; i += Histogram.CHANNELS) {
+            max = Math.max(max, row[i]);
+        }
+        return max;
+    }
+
+    private void countRowBuckets(Histogram histogram, int y, long[] row, long[] buckets, double logMax) {
+        histogram.readRow(y, row);
+        for (int i = Histogram.HITS; i < histogram.width() * Histogram.CHANNELS; i += Histogram.CHANNELS) {
+            long hits = row[i];
+            if (hits > 0) {
+                buckets[densityBucket(logDensity(hits), logMax)]++;
+            }
+        }
+    }
+
+    private static void mergeBuckets(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    private void mapRow(Histogram histogram, int y, long[] row, float[] rgb, double logWhitePoint) {
+        histogram.readRow(y, row);
+        int width = histogram.width();
+        int out = y * width * RGB;
+        for (int x = 0; x < width; x++, out += RGB) {
+            int base = x * Histogram.CHANNELS;
+            long hits = row[base + Histogram.HITS];
+            if (hits != 0) {
+                mapPixel(hits, row[base + Histogram.RED], row[base + Histogram.GREEN], row[base + Histogram.BLUE],
+                    rgb, out, logWhitePoint);
+            }
+        }
+    }
+
+    private void mapPixel(long hits, long red, long green, long blue, float[] rgb, int out, double logWhitePoint) {
+        double scale = brightness(logDensity(hits), logWhitePoint) / (hits * MAX_COLOR_VALUE);
+        rgb[out] = (float) (red * scale);
+        rgb[out + 1] = (float) (green * scale);
+        rgb[out + 2] = (float) (blue * scale);
+    }
+}
@@ -0,0 +1,31 @@
+package backend.academy.render;
+
+/**
+ * Параметры тонирования изображения.
+ *
+ * @param gamma коэффициент гаммы, применяемый к логарифмической плотности
+ * @param brightness множитель плотности перед логарифмом; {@code 1} — без изменения
+ * @param vibrancy насыщенность в [0, 1]; {@code 1} сохраняет оттенок средних цветов пикселей
+ * @param srgb {@code true}, чтобы кодировать каналы кривой sRGB вместо линейного перевода в 8 бит
+ */
+public record ToneSettings(double gamma, double brightness, double vibrancy, boolean srgb) {
+
+    public ToneSettings {
+        if (brightness <= 0) {
+            throw new IllegalArgumentException("Яркость должна быть положительной: " + brightness);
+        }
+        if (vibrancy < 0 || vibrancy > 1) {
+            throw new IllegalArgumentException("Насыщенность должна быть в [0, 1]: " + vibrancy);
+        }
+    }
+
+    /**
+     * Создаёт параметры с заданными гаммой и насыщенностью, единичной яркостью и линейным выводом.
+     *
+     * @param gamma Коэффициент гаммы.
+     * @param vibrancy Насыщенность в [0, 1].
+     */
+    public ToneSettings(double gamma, double vibrancy) {
+        this(gamma, 1.0, vibrancy, false);
+    }
+}
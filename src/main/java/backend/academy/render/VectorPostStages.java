@@ -0,0 +1,90 @@
+package backend.academy.render;
+
+import backend.academy.models.Histogram;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Стадии постобработки на Vector API ({@code jdk.incubator.vector}).
+ * Векторной сделана нормировка: счётчики пикселя хранятся подряд, поэтому каждый канал выбирается
+ * по шагу {@link Histogram#CHANNELS} (gather), 64-битные счётчики переводятся в {@code float} той же
+ * длины вектора, и деление на количество попаданий выполняется по вектору пикселей за инструкцию.
+ * Автовекторизатор C2 такой цикл не векторизует. Тонирование по таблицам ({@link LookupToneMapping})
+ * и упаковка каналов остаются скалярными: выборка из таблицы по вектору индексов медленнее скалярной,
+ * а цикл упаковки C2 векторизует сам. Класс компилируется в профиле Maven {@code vector} и загружается
+ * по имени, только если модуль доступен ({@link PostStages#vectorized()}); если предпочтительный вектор
+ * {@code long} занимает 64 бита, вектора {@code float} той же длины нет и нормировка остаётся скалярной.
+ */
+final class VectorPostStages {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final int MIN_FLOAT_VECTOR_BITS = 64;
+    private static final VectorSpecies<Float> FLOATS = floats();
+    private static final float MAX_COLOR_VALUE = 255f;
+    private static final int[] CHANNEL_STRIDE = channelStride();
+
+    private VectorPostStages() {
+        // Предотвращение создания экземпляра утилитного класса
+    }
+
+    /**
+     * Возвращает вектор {@code float} той же длины, что предпочтительный вектор {@code long};
+     * если он короче наименьшей формы Vector API (64 бита), векторная нормировка недоступна.
+     */
+    private static VectorSpecies<Float> floats() {
+        int bits = LONGS.vectorBitSize() / 2;
+        return bits < MIN_FLOAT_VECTOR_BITS ? null : VectorSpecies.of(float.class, VectorShape.forBitSize(bits));
+    }
+
+    /**
+     * Проверяет, что на этой машине есть вектор {@code float} для нормировки.
+     *
+     * @return {@code true}, если {@link #normalize(long)} можно использовать.
+     */
+    static boolean supported() {
+        return FLOATS != null;
+    }
+
+    /**
+     * Векторная нормировка: тот же результат, что {@link PostStages#normalize(long)}, с точностью {@code float}.
+     * Хвост строки короче вектора нормируется скалярно.
+     *
+     * @param hitWeight Значение счётчика, соответствующее одному попаданию.
+     * @return стадия.
+     */
+    static PostStage normalize(long hitWeight) {
+        double densityScale = 1.0 / hitWeight;
+        float vectorScale = (float) densityScale;
+        return row -> {
+            long[] raw = row.raw();
+            int bound = FLOATS.loopBound(row.length());
+            for (int x = 0; x < bound; x += FLOATS.length()) {
+                int base = x * Histogram.CHANNELS;
+                FloatVector hits = channel(raw, base + Histogram.HITS);
+                FloatVector scale = FloatVector.broadcast(FLOATS, 1f).div(hits.mul(MAX_COLOR_VALUE))
+                    .blend(0f, hits.compare(VectorOperators.EQ, 0f));
+                hits.mul(vectorScale).intoArray(row.density(), x);
+                channel(raw, base + Histogram.RED).mul(scale).intoArray(row.red(), x);
+                channel(raw, base + Histogram.GREEN).mul(scale).intoArray(row.green(), x);
+                channel(raw, base + Histogram.BLUE).mul(scale).intoArray(row.blue(), x);
+            }
+            PostStages.normalize(row, bound, densityScale);
+        };
+    }
+
+    private static FloatVector channel(long[] raw, int offset) {
+        return (FloatVector) LongVector.fromArray(LONGS, raw, offset, CHANNEL_STRIDE, 0)
+            .convertShape(VectorOperators.L2F, FLOATS, 0);
+    }
+
+    private static int[] channelStride() {
+        int[] stride = new int[LONGS.length()];
+        for (int lane = 0; lane < stride.length; lane++) {
+            stride[lane] = lane * Histogram.CHANNELS;
+        }
+        return stride;
+    }
+}
@@ -3,6 +3,7 @@ package backend.academy.transformation;
 import backend.academy.domain.Point;
 import backend.academy.models.AffineCoefficient;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Класс для выполнения аффинного преобразования точек.
@@ -16,7 +17,16 @@ public class AffineTransformation implements Transformation {
      * Конструктор, инициализирующий аффинное преобразование с случайно сгенерированными коэффициентами.
      */
     public AffineTransformation() {
-        this.affineCoefficient = AffineCoefficient.generate(ThreadLocalRandom.current());
+        this(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Конструктор, инициализирующий аффинное преобразование коэффициентами из заданного генератора.
+     *
+     * @param random Генератор случайных чисел.
+     */
+    public AffineTransformation(RandomGenerator random) {
+        this.affineCoefficient = AffineCoefficient.generate(random);
     }
 
     /**
@@ -0,0 +1,338 @@
+package backend.academy.samples;
+
+import backend.academy.accumulate.AccumulationSelector;
+import backend.academy.accumulate.Accumulator;
+import backend.academy.accumulate.Accumulators;
+import backend.academy.accumulate.PerThreadAccumulator;
+import backend.academy.accumulate.ProbeAccumulator;
+import backend.academy.accumulate.StripedAccumulator;
+import backend.academy.accumulate.TileOwnershipAccumulator;
+import backend.academy.accumulate.TileSpillAccumulator;
+import backend.academy.accumulate.WeightedAccumulator;
+import backend.academy.config.AccumulationMode;
+import backend.academy.config.HistogramLayout;
+import backend.academy.domain.PixelColor;
+import backend.academy.domain.Point;
+import backend.academy.models.CompactHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+import backend.academy.models.RowMajorLayout;
+import backend.academy.render.Renderer;
+import backend.academy.render.SymmetryGroup;
+import backend.academy.render.SymmetryResampler;
+import backend.academy.render.TiledImageWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AccumulatorTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 32;
+    private static final int THREADS = 5;
+    private static final int HITS_PER_THREAD = 10_000;
+
+    private static void fill(Accumulator accumulator) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                HitSink sink = accumulator.sink();
+                for (int i = 0; i < HITS_PER_THREAD; i++) {
+                    sink.add(i % WIDTH, i % HEIGHT, new PixelColor(i % 256, 1, 2));
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private static long[] expectedRow(int y) {
+        long[] row = new long[WIDTH * Histogram.CHANNELS];
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < HITS_PER_THREAD; i++) {
+                if (i % HEIGHT == y) {
+                    int base = (i % WIDTH) * Histogram.CHANNELS;
+                    row[base + Histogram.HITS]++;
+                    row[base + Histogram.RED] += i % 256;
+                    row[base + Histogram.GREEN] += 1;
+                    row[base + Histogram.BLUE] += 2;
+                }
+            }
+        }
+        return row;
+    }
+
+    private static void assertMatchesExpected(Histogram histogram) {
+        long[] row = new long[WIDTH * Histogram.CHANNELS];
+        for (int y = 0; y < HEIGHT; y++) {
+            histogram.readRow(y, row);
+            assertArrayEquals(expectedRow(y), row, "row " + y);
+        }
+    }
+
+    @Test
+    void testPerThreadMergeKeepsEveryHit() throws InterruptedException {
+        Accumulator accumulator = new PerThreadAccumulator(new RowMajorLayout(WIDTH, HEIGHT));
+        fill(accumulator);
+        assertMatchesExpected(accumulator.result());
+    }
+
+    @Test
+    void testAtomicAccumulationKeepsEveryHit() throws InterruptedException {
+        Accumulator accumulator = Accumulators.create(AccumulationMode.ATOMIC, WIDTH, HEIGHT);
+        fill(accumulator);
+        assertMatchesExpected(accumulator.result());
+    }
+
+    @Test
+    void testWriteCombiningFlushKeepsEveryHit() throws InterruptedException {
+        Accumulator accumulator = Accumulators.create(AccumulationMode.WRITE_COMBINING, WIDTH, HEIGHT);
+        fill(accumulator);
+        assertMatchesExpected(accumulator.result());
+    }
+
+    @Test
+    void testOffHeapAccumulationKeepsEveryHit() throws InterruptedException {
+        try (Accumulator accumulator = Accumulators.create(AccumulationMode.OFF_HEAP, WIDTH, HEIGHT)) {
+            fill(accumulator);
+            assertMatchesExpected(accumulator.result());
+        }
+    }
+
+    @Test
+    void testTileSpillReloadsEveryHit() throws InterruptedException {
+        try (TileSpillAccumulator accumulator = new TileSpillAccumulator(WIDTH, HEIGHT, 24)) {
+            fill(accumulator);
+            assertEquals((long) THREADS * HITS_PER_THREAD, accumulator.totalHits());
+            assertEquals(16, accumulator.tile(2, 1).width());
+            assertEquals(8, accumulator.tile(2, 1).height());
+            assertMatchesExpected(accumulator.result());
+        }
+    }
+
+    @Test
+    void testTileSpillKeepsHitsOfEveryTileInOneFile() {
+        int hitsPerPixel = 600;
+        try (TileSpillAccumulator accumulator = new TileSpillAccumulator(WIDTH, HEIGHT, 1)) {
+            HitSink sink = accumulator.sink();
+            for (int i = 0; i < hitsPerPixel; i++) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int x = 0; x < WIDTH; x++) {
+                        sink.add(x, y, new PixelColor(x, y, i % 2));
+                    }
+                }
+            }
+
+            assertEquals((long) WIDTH * HEIGHT * hitsPerPixel, accumulator.totalHits());
+            Histogram result = accumulator.result();
+            long[] row = new long[WIDTH * Histogram.CHANNELS];
+            for (int y = 0; y < HEIGHT; y++) {
+                result.readRow(y, row);
+                for (int x = 0, base = 0; x < WIDTH; x++, base += Histogram.CHANNELS) {
+                    assertEquals(hitsPerPixel, row[base + Histogram.HITS], "pixel " + x + ", " + y);
+                    assertEquals((long) x * hitsPerPixel, row[base + Histogram.RED]);
+                    assertEquals(hitsPerPixel / 2, row[base + Histogram.BLUE]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testTiledWriterCapsLoadedTilesByHeap() {
+        long mib = 1_048_576;
+        assertEquals(3, TiledImageWriter.concurrentTiles(TileSpillAccumulator.DEFAULT_TILE_SIZE, 256 * mib, 8));
+        assertEquals(1, TiledImageWriter.concurrentTiles(TileSpillAccumulator.DEFAULT_TILE_SIZE, 64 * mib, 8));
+        assertEquals(8, TiledImageWriter.concurrentTiles(TileSpillAccumulator.DEFAULT_TILE_SIZE, 16_384 * mib, 8));
+    }
+
+    @Test
+    void testSparseShardsMergeEveryHit() throws InterruptedException {
+        Accumulator accumulator = Accumulators.create(AccumulationMode.SPARSE, WIDTH, HEIGHT);
+        fill(accumulator);
+        assertMatchesExpected(accumulator.result());
+    }
+
+    @Test
+    void testCompactReplicasMergeEveryHit() throws InterruptedException {
+        Accumulator accumulator = Accumulators.create(AccumulationMode.COMPACT, WIDTH, HEIGHT);
+        fill(accumulator);
+        assertMatchesExpected(accumulator.result());
+    }
+
+    @Test
+    void testCompactCountersPromoteTileOnOverflow() {
+        CompactHistogram histogram = new CompactHistogram(100, 70);
+        PixelColor white = new PixelColor(255, 255, 255);
+        for (int i = 0; i < 1000; i++) {
+            histogram.add(70, 65, white);
+        }
+        histogram.add(10, 69, new PixelColor(1, 2, 3));
+
+        long[] row = new long[100 * Histogram.CHANNELS];
+        histogram.readRow(65, row);
+        assertArrayEquals(new long[] {1000, 255_000, 255_000, 255_000},
+            Arrays.copyOfRange(row, 70 * Histogram.CHANNELS, 71 * Histogram.CHANNELS));
+        histogram.readRow(69, row);
+        assertEquals(3, row[10 * Histogram.CHANNELS + Histogram.BLUE]);
+        assertEquals(64 * 64 * 4 * (8 + 2), histogram.footprintBytes());
+    }
+
+    @Test
+    void testTileOwnershipRoutingKeepsEveryHit() throws InterruptedException {
+        Accumulator accumulator = new TileOwnershipAccumulator(new RowMajorLayout(WIDTH, HEIGHT), 3);
+        fill(accumulator);
+        assertMatchesExpected(accumulator.result());
+    }
+
+    @Test
+    void testTileOwnersFitThreadBudgetAndStopOnClose() {
+        assertEquals(2, TileOwnershipAccumulator.ownerCount(6, 8));
+        assertEquals(1, TileOwnershipAccumulator.ownerCount(8, 8));
+        assertEquals(1, TileOwnershipAccumulator.ownerCount(0, 1));
+
+        Accumulator accumulator = new TileOwnershipAccumulator(new RowMajorLayout(WIDTH, HEIGHT), 2);
+        accumulator.sink().add(0, 0, new PixelColor(1, 2, 3));
+        accumulator.close();
+        assertTrue(Thread.getAllStackTraces().keySet().stream()
+            .noneMatch(thread -> thread.getName().startsWith("tile-owner-") && thread.isAlive()));
+    }
+
+    @Test
+    void testMortonLayoutReadsBackRowMajor() throws InterruptedException {
+        Accumulator accumulator = Accumulators.create(AccumulationMode.WRITE_COMBINING, WIDTH, HEIGHT,
+            HistogramLayout.MORTON);
+        fill(accumulator);
+        assertMatchesExpected(accumulator.result());
+    }
+
+    @Test
+    void testStripedAccumulationKeepsEveryHitAndReportsHotPixels() throws InterruptedException {
+        StripedAccumulator accumulator = new StripedAccumulator(WIDTH, HEIGHT);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                HitSink sink = accumulator.sink();
+                for (int i = 0; i < 100_000; i++) {
+                    sink.add(i % 2 == 0 ? 7 : i % WIDTH, i % 2 == 0 ? 3 : i % HEIGHT, new PixelColor(10, 20, 30));
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        long[] row = new long[WIDTH * Histogram.CHANNELS];
+        long total = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            accumulator.result().readRow(y, row);
+            for (int x = 0; x < WIDTH; x++) {
+                total += row[x * Histogram.CHANNELS + Histogram.HITS];
+            }
+        }
+        assertEquals(THREADS * 100_000L, total);
+        assertEquals(7, accumulator.topContendedPixels(1).getFirst().x());
+        assertEquals(3, accumulator.topContendedPixels(1).getFirst().y());
+    }
+
+    @Test
+    void testAutoSelectionFollowsMemoryAndCoverage() {
+        long laptop = 8L * 1024 * 1_048_576;
+        assertEquals(AccumulationMode.PER_THREAD,
+            AccumulationSelector.select(3840, 2160, 8, laptop, 1.0, 0).mode());
+        assertEquals(AccumulationMode.COMPACT,
+            AccumulationSelector.select(3840, 2160, 64, laptop, 1.0, 0).mode());
+        assertEquals(AccumulationMode.SPARSE,
+            AccumulationSelector.select(3840, 2160, 64, laptop, 0.05, 0).mode());
+        assertEquals(AccumulationMode.WRITE_COMBINING,
+            AccumulationSelector.select(12_000, 8000, 64, laptop, 1.0, 0.2).mode());
+        assertEquals(AccumulationMode.ATOMIC,
+            AccumulationSelector.select(12_000, 8000, 64, laptop, 1.0, 0).mode());
+        assertEquals(AccumulationMode.OUT_OF_CORE,
+            AccumulationSelector.select(50_000, 50_000, 64, laptop, 1.0, 0).mode());
+    }
+
+    @Test
+    void testAutoSelectionTriesOffHeapBeforeDisk() {
+        long laptop = 8L * 1024 * 1_048_576;
+        long server = 256L * 1024 * 1_048_576;
+        AccumulationSelector.Canvas poster = AccumulationSelector.Canvas.of(16_000, 16_000);
+        assertEquals(AccumulationMode.OFF_HEAP,
+            AccumulationSelector.select(poster, 64, laptop, server, 1.0, 0, true).mode());
+        assertEquals(AccumulationMode.OUT_OF_CORE,
+            AccumulationSelector.select(poster, 64, laptop, laptop / 2, 1.0, 0, false).mode());
+        assertEquals(AccumulationMode.OUT_OF_CORE, AccumulationSelector.select(
+            AccumulationSelector.Canvas.of(50_000, 50_000), 64, laptop, server, 1.0, 0, false).mode());
+    }
+
+    @Test
+    void testAutoSelectionBudgetsDeferredSymmetryPadding() {
+        long laptop = 8L * 1024 * 1_048_576;
+        SymmetryGroup octagonal = SymmetryGroup.rotational(8);
+        AccumulationSelector.Canvas padded = new AccumulationSelector.Canvas(3840, 2160,
+            SymmetryResampler.sourceSize(3840, octagonal), SymmetryResampler.sourceSize(2160, octagonal),
+            SymmetryResampler.intermediateBytes(3840, 2160, octagonal, 1));
+
+        assertEquals(AccumulationMode.PER_THREAD,
+            AccumulationSelector.select(3840, 2160, 16, laptop, 1.0, 0).mode());
+        assertEquals(AccumulationMode.COMPACT,
+            AccumulationSelector.select(padded, 16, laptop, 0, 1.0, 0, false).mode());
+        assertEquals(0, SymmetryResampler.intermediateBytes(3840, 2160, SymmetryGroup.rotational(1), 2));
+    }
+
+    @Test
+    void testProbeEstimatesCoverageAndHotShare() {
+        ProbeAccumulator probe = new ProbeAccumulator(WIDTH, HEIGHT);
+        HitSink sink = probe.sink();
+        for (int i = 0; i < 1000; i++) {
+            sink.add(i % 2 == 0 ? 5 : i % (WIDTH / 2), 0, new PixelColor(1, 1, 1));
+        }
+        assertEquals(16.0 / (WIDTH * HEIGHT), probe.coverage(), 1e-9);
+        assertEquals(1.0, probe.hotShare(), 1e-9);
+    }
+
+    @Test
+    void testSplattingSpreadsFixedPointWeights() {
+        for (AccumulationMode mode : List.of(AccumulationMode.PER_THREAD, AccumulationMode.ATOMIC,
+            AccumulationMode.OFF_HEAP, AccumulationMode.SPARSE)) {
+            try (Renderer renderer = new Renderer(16, 8, SymmetryGroup.rotational(1), mode,
+                HistogramLayout.ROW_MAJOR, true)) {
+                renderer.renderPoint(new Point(-0.5, 0), new PixelColor(10, 20, 30));
+                renderer.renderPoint(new Point(-1, -1), new PixelColor(10, 20, 30));
+                Histogram histogram = renderer.accumulator().result();
+                long[] row = new long[16 * Histogram.CHANNELS];
+                histogram.readRow(0, row);
+                assertEquals(HitSink.SPLAT_WEIGHT / 4, row[Histogram.HITS], mode.name());
+                for (int y = 3; y <= 4; y++) {
+                    histogram.readRow(y, row);
+                    assertEquals(HitSink.SPLAT_WEIGHT / 4, row[3 * Histogram.CHANNELS + Histogram.HITS], mode.name());
+                    assertEquals(HitSink.SPLAT_WEIGHT / 4 * 30, row[4 * Histogram.CHANNELS + Histogram.BLUE]);
+                }
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new Renderer(16, 8, SymmetryGroup.rotational(1),
+            AccumulationMode.COMPACT, HistogramLayout.ROW_MAJOR, true));
+    }
+
+    @Test
+    void testWeightedHitSupportMatchesAccumulatorType() {
+        for (AccumulationMode mode : AccumulationMode.values()) {
+            if (mode == AccumulationMode.AUTO) {
+                // Режим AUTO разрешается в конкретный режим до создания накопителя
+                continue;
+            }
+            try (Accumulator accumulator = Accumulators.create(mode, WIDTH, HEIGHT)) {
+                assertEquals(Accumulators.supportsWeightedHits(mode), accumulator instanceof WeightedAccumulator,
+                    mode.name());
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new Renderer(16, 8, SymmetryGroup.rotational(1),
+            AccumulationMode.WRITE_COMBINING, HistogramLayout.ROW_MAJOR, true));
+    }
+}
@@ -0,0 +1,111 @@
+package backend.academy.samples;
+
+import backend.academy.config.AccumulationMode;
+import backend.academy.config.Bloom;
+import backend.academy.config.DensityEstimation;
+import backend.academy.config.InputConfig;
+import backend.academy.config.InputConfig.GenerationSettings;
+import backend.academy.config.InputConfig.ImageSettings;
+import backend.academy.generate.BandedGenerator;
+import backend.academy.generate.MultiThreadedGenerator;
+import backend.academy.render.BandedImage;
+import backend.academy.render.Renderer;
+import backend.academy.render.SymmetryGroup;
+import backend.academy.render.ToneSettings;
+import backend.academy.transformation.SinusoidalTransformation;
+import backend.academy.transformation.SphericalTransformation;
+import backend.academy.transformation.Transformation;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BandedGeneratorTest {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 120;
+    private static final long ROW_BYTES = WIDTH * 32L;
+    private static final long IMAGE_BYTES = WIDTH * HEIGHT * BandedImage.BYTES_PER_PIXEL;
+
+    private static InputConfig config() {
+        return new InputConfig(new ImageSettings(WIDTH, HEIGHT, 2),
+            new GenerationSettings(4, 20_000, 3, true, 2, AccumulationMode.ATOMIC, 42L),
+            List.of("Spherical", "Sinusoidal"));
+    }
+
+    private static List<Transformation> transformations() {
+        return List.of(new SphericalTransformation(), new SinusoidalTransformation());
+    }
+
+    @Test
+    void testBandsStitchIntoSingleBandImage() throws InterruptedException {
+        BandedGenerator single = new BandedGenerator(config(), transformations(), IMAGE_BYTES + HEIGHT * ROW_BYTES);
+        BandedGenerator banded = new BandedGenerator(config(), transformations(), IMAGE_BYTES + 25 * ROW_BYTES);
+        assertEquals(1, single.bandCount());
+        assertEquals(5, banded.bandCount());
+
+        BufferedImage expected = single.render(2.0);
+        BufferedImage actual = banded.render(2.0);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    void testBandedImageMatchesInMemoryRender() throws InterruptedException {
+        InputConfig config = config();
+        Renderer renderer = new Renderer(config);
+        new MultiThreadedGenerator(config, transformations(), renderer).generate();
+        renderer.render(2.0);
+
+        assertCloseImages(renderer.image(),
+            new BandedGenerator(config, transformations(), IMAGE_BYTES + 40 * ROW_BYTES).render(2.0), 1);
+    }
+
+    @Test
+    void testBandedImageHonorsToneSettings() throws InterruptedException {
+        InputConfig config = config();
+        ToneSettings tone = new ToneSettings(2.2, 1.5, 0.8, false);
+        Renderer renderer = new Renderer(config);
+        new MultiThreadedGenerator(config, transformations(), renderer).generate();
+        renderer.render(tone, DensityEstimation.NONE, Bloom.NONE, SymmetryGroup.rotational(config.axesCount()));
+
+        assertCloseImages(renderer.image(),
+            new BandedGenerator(config, transformations(), IMAGE_BYTES + 40 * ROW_BYTES).render(tone, Bloom.NONE), 1);
+    }
+
+    @Test
+    void testBudgetCountsStitchedImage() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new BandedGenerator(config(), transformations(), IMAGE_BYTES + ROW_BYTES - 1));
+        assertEquals(HEIGHT, new BandedGenerator(config(), transformations(), IMAGE_BYTES + ROW_BYTES).bandCount());
+    }
+
+    @Test
+    void testUnsupportedPostProcessingIsRejectedBeforeGeneration() {
+        assertThrows(IllegalArgumentException.class,
+            () -> BandedGenerator.checkPostProcessing(new DensityEstimation(4), false));
+        assertThrows(IllegalArgumentException.class,
+            () -> BandedGenerator.checkPostProcessing(DensityEstimation.NONE, true));
+        assertThrows(IllegalArgumentException.class,
+            () -> Renderer.checkPostProcessing(AccumulationMode.OUT_OF_CORE, DensityEstimation.NONE, new Bloom(8), false));
+        Renderer.checkPostProcessing(AccumulationMode.ATOMIC, new DensityEstimation(4), new Bloom(8), true);
+    }
+
+    private static void assertCloseImages(BufferedImage expected, BufferedImage actual, int tolerance) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int e = expected.getRGB(x, y);
+                int a = actual.getRGB(x, y);
+                for (int shift = 0; shift < 24; shift += 8) {
+                    assertTrue(Math.abs(((e >> shift) & 0xFF) - ((a >> shift) & 0xFF)) <= tolerance, "pixel " + x + ", " + y);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package backend.academy.samples;
+
+import backend.academy.config.Bloom;
+import backend.academy.render.BloomFilter;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BloomTest {
+
+    private static final int SIZE = 64;
+    private static final int SQUARE = 9;
+    private static final int ORANGE = 0xFF8000;
+
+    private static int[] square(int size, int color) {
+        int[] pixels = new int[size * size];
+        int from = (size - SQUARE) / 2;
+        for (int y = from; y < from + SQUARE; y++) {
+            Arrays.fill(pixels, y * size + from, y * size + from + SQUARE, color);
+        }
+        return pixels;
+    }
+
+    private static double normal(int offset, double sigma) {
+        return Math.exp(-offset * offset / (2 * sigma * sigma)) / (Math.sqrt(2 * Math.PI) * sigma);
+    }
+
+    @Test
+    void testGlowMatchesDirectConvolution() {
+        int[] pixels = square(SIZE, ORANGE);
+        BloomFilter.apply(pixels, SIZE, SIZE, new Bloom(0.3, 12, 1));
+
+        double luma = 0.2126 + 0.7152 * 0.5;
+        double excess = (luma - 0.3) / luma;
+        double sigma = 12 / 3.0;
+        int from = (SIZE - SQUARE) / 2;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                if (x >= from && x < from + SQUARE && y >= from && y < from + SQUARE) {
+                    continue;
+                }
+                double weight = 0;
+                for (int sy = from; sy < from + SQUARE; sy++) {
+                    for (int sx = from; sx < from + SQUARE; sx++) {
+                        weight += normal(x - sx, sigma) * normal(y - sy, sigma);
+                    }
+                }
+                int rgb = pixels[y * SIZE + x];
+                assertEquals(255 * excess * weight, (rgb >>> 16) & 0xFF, 1, "red at " + x + ", " + y);
+                assertEquals(255 * excess * 0.5 * weight, (rgb >>> 8) & 0xFF, 1, "green at " + x + ", " + y);
+                assertEquals(0, rgb & 0xFF, "blue at " + x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    void testDownscaledGlowKeepsItsEnergy() {
+        int size = 256;
+        int gray = 0x666666;
+        int[] pixels = square(size, gray);
+        int[] original = pixels.clone();
+        BloomFilter.apply(pixels, size, size, new Bloom(0.2, 64, 8));
+
+        long added = 0;
+        for (int i = 0; i < pixels.length; i++) {
+            added += (pixels[i] & 0xFF) - (original[i] & 0xFF);
+        }
+        double bright = 0x66 / 255.0 - 0.2;
+        double expected = 8 * 255 * bright * SQUARE * SQUARE;
+        assertEquals(expected, added, expected * 0.05);
+    }
+
+    @Test
+    void testDarkImageIsUnchanged() {
+        int[] pixels = square(SIZE, 0x404040);
+        int[] original = pixels.clone();
+
+        BloomFilter.apply(pixels, SIZE, SIZE, new Bloom(100));
+        BloomFilter.apply(pixels, SIZE, SIZE, Bloom.NONE);
+
+        assertArrayEquals(original, pixels);
+    }
+
+    @Test
+    void testInvalidParametersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new Bloom(1, 10, 1));
+        assertThrows(IllegalArgumentException.class, () -> new Bloom(-1));
+        assertThrows(IllegalArgumentException.class, () -> new Bloom(0.5, 10, -1));
+    }
+}
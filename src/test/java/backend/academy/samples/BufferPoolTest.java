@@ -0,0 +1,93 @@
+package backend.academy.samples;
+
+import backend.academy.config.AccumulationMode;
+import backend.academy.domain.PixelColor;
+import backend.academy.domain.Point;
+import backend.academy.models.BufferPool;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.FractalImage;
+import backend.academy.models.Histogram;
+import backend.academy.models.RowMajorLayout;
+import backend.academy.render.Renderer;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class BufferPoolTest {
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    @Test
+    void testReleasedArraysAreReusedCleared() {
+        BufferPool pool = new BufferPool(1 << 24);
+        long[] values = pool.acquireLongs(1_000_000);
+        values[0] = 1;
+        values[999_999] = 2;
+        pool.release(values);
+
+        long[] reused = pool.acquireLongs(1_000_000);
+
+        assertSame(values, reused);
+        assertArrayEquals(new long[1_000_000], reused);
+        assertNotSame(reused, pool.acquireLongs(1_000_000));
+        assertEquals(0, pool.retainedBytes());
+    }
+
+    @Test
+    void testPoolKeepsArraysWithinBudget() {
+        BufferPool pool = new BufferPool(1000);
+        pool.release(new int[200]);
+        pool.release(new int[200]);
+
+        assertEquals(800, pool.retainedBytes());
+    }
+
+    @Test
+    void testPooledHistogramReturnsArrayOnce() {
+        BufferPool pool = new BufferPool(1 << 20);
+        DensityHistogram histogram = new DensityHistogram(new RowMajorLayout(8, 8), pool);
+        histogram.add(3, 4, new PixelColor(1, 2, 3));
+
+        histogram.release();
+        histogram.release();
+
+        assertEquals(8 * 8 * Histogram.CHANNELS * Long.BYTES, pool.retainedBytes());
+        assertEquals(0, new DensityHistogram(new RowMajorLayout(8, 8), pool).value(4 * 8 + 3, Histogram.HITS));
+    }
+
+    @Test
+    void testRendersOfOneSizeReuseRasters() {
+        BufferPool.shared().clear();
+        int[] first;
+        try (Renderer renderer = new Renderer(64, 48, 1, AccumulationMode.PER_THREAD)) {
+            renderer.renderPoint(new Point(0.1, 0.2), new PixelColor(255, 0, 0));
+            renderer.render(2.2);
+            first = pixels(renderer.image());
+        }
+        try (Renderer renderer = new Renderer(64, 48, 1, AccumulationMode.PER_THREAD)) {
+            renderer.render(2.2);
+
+            assertSame(first, pixels(renderer.image()));
+            assertEquals(0, renderer.image().getRGB(35, 28) & 0xFFFFFF);
+        }
+    }
+
+    @Test
+    void testFractalImageCreatesPixelsOnFirstHit() {
+        FractalImage image = new FractalImage(4, 4);
+        image.add(1, 2, new PixelColor(10, 20, 30));
+        long[] row = new long[4 * Histogram.CHANNELS];
+
+        image.readRow(2, row);
+
+        assertEquals(1, row[Histogram.CHANNELS + Histogram.HITS]);
+        assertEquals(0, row[Histogram.HITS]);
+    }
+}
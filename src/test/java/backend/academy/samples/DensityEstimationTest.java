@@ -0,0 +1,98 @@
+package backend.academy.samples;
+
+import backend.academy.config.DensityEstimation;
+import backend.academy.config.DownsampleFilter;
+import backend.academy.domain.PixelColor;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+import backend.academy.render.DensityEstimator;
+import backend.academy.render.Downsampler;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DensityEstimationTest {
+
+    private static final int SIZE = 41;
+
+    private static long total(DensityHistogram histogram, int channel) {
+        long sum = 0;
+        for (int index = 0; index < SIZE * SIZE; index++) {
+            sum += histogram.value(index, channel);
+        }
+        return sum;
+    }
+
+    @Test
+    void testSparseHitIsSpreadWithoutLosingDensity() {
+        DensityHistogram source = new DensityHistogram(SIZE, SIZE);
+        source.add(SIZE / 2, SIZE / 2, new PixelColor(200, 100, 50));
+
+        DensityHistogram output = DensityEstimator.filter(source, new DensityEstimation(9), 1);
+
+        int lit = 0;
+        for (int index = 0; index < SIZE * SIZE; index++) {
+            if (output.value(index, Histogram.HITS) > 0) {
+                lit++;
+            }
+        }
+        assertTrue(lit > 100, "lit pixels " + lit);
+        assertEquals(DensityEstimator.KERNEL_WEIGHT, total(output, Histogram.HITS), lit / 2.0);
+        assertEquals(100 * DensityEstimator.KERNEL_WEIGHT, total(output, Histogram.GREEN), lit / 2.0);
+    }
+
+    @Test
+    void testDensePixelStaysSharp() {
+        DensityHistogram source = new DensityHistogram(SIZE, SIZE);
+        for (int i = 0; i < 10_000; i++) {
+            source.add(SIZE / 2, SIZE / 2, new PixelColor(255, 255, 255));
+        }
+        source.add(3, 3, new PixelColor(255, 255, 255));
+
+        DensityHistogram output = DensityEstimator.filter(source, new DensityEstimation(9), 1);
+
+        int center = output.indexOf(SIZE / 2, SIZE / 2);
+        assertEquals(10_000 * DensityEstimator.KERNEL_WEIGHT, output.value(center, Histogram.HITS));
+        assertEquals(0, output.value(center + 1, Histogram.HITS));
+        assertTrue(output.value(output.indexOf(3, 3), Histogram.HITS) < DensityEstimator.KERNEL_WEIGHT);
+    }
+
+    @Test
+    void testStageWeightsDoNotStackNearSaturation() {
+        long hits = 1L << 58;
+        DensityHistogram grid = new DensityHistogram(2 * SIZE, 2 * SIZE);
+        for (int y = SIZE - 1; y <= SIZE; y++) {
+            for (int x = SIZE - 1; x <= SIZE; x++) {
+                grid.addPoints(grid.indexOf(x, y), hits, 3 * hits, 0, hits);
+            }
+        }
+
+        DensityHistogram downsampled = Downsampler.downsample(grid, 2, DownsampleFilter.BOX, HitSink.SPLAT_WEIGHT);
+        long sampledWeight = Downsampler.weight(HitSink.SPLAT_WEIGHT);
+        DensityHistogram output = DensityEstimator.filter(downsampled, new DensityEstimation(9), sampledWeight);
+
+        assertEquals(HitSink.SPLAT_WEIGHT, DensityEstimator.weight(sampledWeight));
+        int center = output.indexOf(SIZE / 2, SIZE / 2);
+        assertEquals(4 * hits, output.value(center, Histogram.HITS));
+        assertEquals(12 * hits, output.value(center, Histogram.RED));
+        assertEquals(4 * hits, output.value(center, Histogram.BLUE));
+    }
+
+    @Test
+    void testOverflowingCountIsRejected() {
+        DensityHistogram source = new DensityHistogram(SIZE, SIZE);
+        source.addPoints(source.indexOf(SIZE / 2, SIZE / 2), Long.MAX_VALUE / 512, 0, 0, 0);
+
+        assertThrows(ArithmeticException.class, () -> DensityEstimator.filter(source, new DensityEstimation(9), 1));
+    }
+
+    @Test
+    void testInvalidParametersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new DensityEstimation(-1));
+        assertThrows(IllegalArgumentException.class, () -> new DensityEstimation(100));
+        assertThrows(IllegalArgumentException.class, () -> new DensityEstimation(5, 6, 0.4));
+    }
+}
@@ -0,0 +1,89 @@
+package backend.academy.samples;
+
+import backend.academy.config.Bloom;
+import backend.academy.config.DensityEstimation;
+import backend.academy.domain.PixelColor;
+import backend.academy.domain.Point;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.render.MipmapChain;
+import backend.academy.render.PostProcessor;
+import backend.academy.render.Renderer;
+import backend.academy.render.SymmetryGroup;
+import backend.academy.render.ToneSettings;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MipmapTest {
+
+    private static final int SIZE = 64;
+
+    @Test
+    void testLevelsSumBlocksOfCounts() {
+        DensityHistogram source = new DensityHistogram(SIZE, SIZE - 3);
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            source.add(random.nextInt(SIZE), random.nextInt(SIZE - 3), new PixelColor(random.nextInt(256), 7, 0));
+        }
+        MipmapChain chain = new MipmapChain(SIZE, SIZE - 3);
+        new PostProcessor(chain.stage()).process(source, new int[SIZE * (SIZE - 3)]);
+
+        List<DensityHistogram> levels = chain.levels();
+        assertEquals(List.of(2, 4, 8), chain.factors());
+        for (int level = 0; level < levels.size(); level++) {
+            DensityHistogram histogram = levels.get(level);
+            int factor = chain.factors().get(level);
+            assertEquals(SIZE / factor, histogram.width());
+            assertEquals((SIZE - 3) / factor, histogram.height());
+            for (int y = 0; y < histogram.height(); y++) {
+                for (int x = 0; x < histogram.width(); x++) {
+                    long hits = 0;
+                    long red = 0;
+                    for (int sy = y * factor; sy < (y + 1) * factor; sy++) {
+                        for (int sx = x * factor; sx < (x + 1) * factor; sx++) {
+                            hits += source.value(source.indexOf(sx, sy), Histogram.HITS);
+                            red += source.value(source.indexOf(sx, sy), Histogram.RED);
+                        }
+                    }
+                    int index = histogram.indexOf(x, y);
+                    assertEquals(hits, histogram.value(index, Histogram.HITS), "level " + level);
+                    assertEquals(red, histogram.value(index, Histogram.RED), "level " + level);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testLevelsKeepExposureOfFullImage() {
+        Renderer renderer = new Renderer(SIZE, SIZE, 1);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                Point center = new Point((x + 0.5) * 2 / SIZE - 1, (y + 0.5) * 2 / SIZE - 1);
+                for (int hit = 0; hit < (x < SIZE / 2 ? 1 : 9); hit++) {
+                    renderer.renderPoint(center, new PixelColor(200, 120, 40));
+                }
+            }
+        }
+
+        List<BufferedImage> images = renderer.renderMipmaps(new ToneSettings(2.2, 1.0), DensityEstimation.NONE,
+            Bloom.NONE, SymmetryGroup.rotational(1));
+
+        assertEquals(4, images.size());
+        BufferedImage full = images.getFirst();
+        for (BufferedImage level : images) {
+            assertEquals(full.getRGB(1, 1), level.getRGB(1, 1));
+            assertEquals(full.getRGB(SIZE - 2, 1), level.getRGB(level.getWidth() - 2, 1));
+        }
+    }
+
+    @Test
+    void testTooSmallImageIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new MipmapChain(SIZE, 4));
+        assertEquals(32, MipmapChain.thumbnailFactor(7680, 4320));
+    }
+}
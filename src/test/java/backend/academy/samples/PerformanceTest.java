@@ -1,20 +1,71 @@
 package backend.academy.samples;
 
+import backend.academy.accumulate.Accumulator;
+import backend.academy.accumulate.Accumulators;
+import backend.academy.config.AccumulationMode;
+import backend.academy.config.Bloom;
+import backend.academy.config.DensityEstimation;
+import backend.academy.config.DownsampleFilter;
+import backend.academy.config.HistogramLayout;
 import backend.academy.config.InputConfig;
 import backend.academy.config.InputConfig.GenerationSettings;
 import backend.academy.config.InputConfig.ImageSettings;
+import backend.academy.config.Supersampling;
+import backend.academy.config.SymmetryType;
+import backend.academy.domain.PixelColor;
+import backend.academy.domain.Point;
 import backend.academy.generate.MultiThreadedGenerator;
 import backend.academy.generate.SingleThreadedGenerator;
+import backend.academy.models.BufferPool;
+import backend.academy.models.CompactHistogram;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.models.HitSink;
+import backend.academy.render.BandedImage;
+import backend.academy.render.BloomFilter;
+import backend.academy.render.Downsampler;
+import backend.academy.render.MipmapChain;
+import backend.academy.render.PostProcessor;
+import backend.academy.render.PostStage;
+import backend.academy.render.PostStages;
 import backend.academy.render.Renderer;
+import backend.academy.render.SymmetryGroup;
+import backend.academy.render.ToneMapper;
+import backend.academy.render.ToneSettings;
 import backend.academy.transformation.*;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import javax.imageio.ImageIO;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+/**
+ * Замеры производительности. Замеры, кроме {@link #comparePerformance()}, печатают время на больших
+ * буферах и помечены тегом {@value #BENCHMARK}: обычный прогон тестов их пропускает, запуск —
+ * {@code mvn test -Pbenchmark -Dtest=PerformanceTest#<замер>}. Время они не проверяют — полученные
+ * цифры приведены в README, — но каждый проверяет, что сравниваемые варианты дали верный результат.
+ */
 public class PerformanceTest {
 
+    private static final String BENCHMARK = "benchmark";
+
     private InputConfig createConfig(int threads, boolean multithreaded) {
         // Создание настроек изображения
         ImageSettings imageSettings = new ImageSettings(1920, 1080, 1);
@@ -68,4 +119,702 @@ public class PerformanceTest {
 
         assertTrue(singleThreadDuration > multiThreadDuration, "Multi-threaded version should be faster");
     }
+
+    private long measureGeneration(AccumulationMode mode, int threads, int samples, int iterations) {
+        ImageSettings imageSettings = new ImageSettings(1280, 720, 1);
+        GenerationSettings generationSettings = new GenerationSettings(samples, iterations, 5, true, threads, mode);
+        InputConfig config = new InputConfig(imageSettings, generationSettings, List.of("Spherical", "Swirl"));
+        Renderer renderer = new Renderer(config.width(), config.height(), config.axesCount(), mode);
+        MultiThreadedGenerator generator = new MultiThreadedGenerator(config, createTransformations(), renderer);
+
+        long start = System.nanoTime();
+        try {
+            generator.generate();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        renderer.render();
+        long duration = System.nanoTime() - start;
+        assertTrue(litPixels(renderer.image()) > 0, mode.name());
+        return duration;
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareAccumulationScaling() {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int iterations = 50_000;
+        for (AccumulationMode mode : List.of(AccumulationMode.LOCKED, AccumulationMode.PER_THREAD)) {
+            measureGeneration(mode, maxThreads, maxThreads, iterations);
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                int samples = threads * 4;
+                long duration = measureGeneration(mode, threads, samples, iterations);
+                long hits = 2L * samples * iterations;
+                System.out.println(mode + ", " + threads + " threads: " + hits * 1_000_000L / duration
+                    + " hits/ms (" + duration / 1_000_000 + " ms including merge and tone mapping)");
+            }
+        }
+    }
+
+    private long measureContention(AccumulationMode mode, int threads, int hitsPerThread)
+        throws InterruptedException {
+        Accumulator accumulator = Accumulators.create(mode, 1920, 1080);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                HitSink sink = accumulator.sink();
+                PixelColor color = new PixelColor(200, 100, 50);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                // Все потоки бьют в область 16x16 пикселей, как в ядро аттрактора
+                for (int i = 0; i < hitsPerThread; i++) {
+                    sink.add(960 + (i & 15), 540 + ((i >> 4) & 15), color);
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        Histogram result = accumulator.result();
+        long duration = System.nanoTime() - begin;
+        assertEquals((long) threads * hitsPerThread, totalHits(result), mode.name());
+        accumulator.close();
+        return duration;
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareContendedAccumulation() throws InterruptedException {
+        int hitsPerThread = 200_000;
+        for (AccumulationMode mode : AccumulationMode.values()) {
+            measureContention(mode, 4, hitsPerThread);
+            for (int threads : new int[] {1, 4, 8, 16}) {
+                long duration = measureContention(mode, threads, hitsPerThread);
+                System.out.println(mode + ", " + threads + " threads: "
+                    + duration / ((long) threads * hitsPerThread) + " ns/hit");
+            }
+        }
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareCompactFootprint() {
+        PixelColor color = new PixelColor(200, 100, 50);
+        for (int hits : new int[] {1_000_000, 10_000_000, 50_000_000}) {
+            int[] coordinates = flameWalk(3840, 2160, hits);
+            CompactHistogram histogram = new CompactHistogram(3840, 2160);
+            for (int i = 0; i < coordinates.length; i += 2) {
+                histogram.add(coordinates[i], coordinates[i + 1], color);
+            }
+            long dense = 3840L * 2160 * 32;
+            System.out.println(hits + " hits: compact " + histogram.footprintBytes() / 1024 + " KiB, dense "
+                + dense / 1024 + " KiB, " + (double) dense / histogram.footprintBytes() + "x");
+            assertEquals(hits, totalHits(histogram));
+            assertTrue(histogram.footprintBytes() < dense);
+        }
+    }
+
+    private int[] flameWalk(int width, int height, int hits) {
+        List<Transformation> variations = createTransformations();
+        Random random = new Random(42);
+        List<AffineTransformation> affines = List.of(new AffineTransformation(random),
+            new AffineTransformation(random), new AffineTransformation(random), new AffineTransformation(random));
+        int[] coordinates = new int[2 * hits];
+        Point point = new Point(0.1, 0.1);
+        int count = 0;
+        while (count < hits) {
+            point = affines.get(random.nextInt(affines.size())).transform(point);
+            point = variations.get(random.nextInt(variations.size())).transform(point);
+            int x = (int) ((point.x() + 1) * width / 2);
+            int y = (int) ((point.y() + 1) * height / 2);
+            if (x >= 0 && x < width && y >= 0 && y < height) {
+                coordinates[2 * count] = x;
+                coordinates[2 * count + 1] = y;
+                count++;
+            }
+        }
+        return coordinates;
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareHistogramLayouts() {
+        int hits = 5_000_000;
+        PixelColor color = new PixelColor(200, 100, 50);
+        for (int[] size : new int[][] {{3840, 2160}, {7680, 4320}}) {
+            long required = 2L * size[0] * size[1] * 4 * Long.BYTES;
+            if (Runtime.getRuntime().maxMemory() < required) {
+                System.out.println(size[0] + "x" + size[1] + ": skipped, not enough heap");
+                continue;
+            }
+            int[] coordinates = flameWalk(size[0], size[1], hits);
+            for (HistogramLayout layout : List.of(HistogramLayout.ROW_MAJOR, HistogramLayout.MORTON,
+                HistogramLayout.ROW_MAJOR, HistogramLayout.MORTON)) {
+                DensityHistogram histogram = new DensityHistogram(
+                    Accumulators.createLayout(layout, size[0], size[1]));
+                long start = System.nanoTime();
+                for (int i = 0; i < coordinates.length; i += 2) {
+                    histogram.add(coordinates[i], coordinates[i + 1], color);
+                }
+                long accumulate = System.nanoTime() - start;
+                start = System.nanoTime();
+                long[] row = new long[size[0] * 4];
+                for (int y = 0; y < size[1]; y++) {
+                    histogram.readRow(y, row);
+                }
+                long readBack = System.nanoTime() - start;
+                System.out.println(size[0] + "x" + size[1] + " " + layout + ": " + accumulate / hits
+                    + " ns/hit, row-major read back " + readBack / 1_000_000 + " ms");
+                assertEquals(hits, totalHits(histogram), layout.name());
+            }
+        }
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareSplatting() {
+        int hits = 5_000_000;
+        int[] coordinates = flameWalk(1919, 1079, hits);
+        PixelColor color = new PixelColor(200, 100, 50);
+        Random fractions = new Random(42);
+        for (int pass = 0; pass < 2; pass++) {
+            DensityHistogram point = new DensityHistogram(1920, 1080);
+            long start = System.nanoTime();
+            for (int i = 0; i < coordinates.length; i += 2) {
+                point.add(coordinates[i], coordinates[i + 1], color);
+            }
+            long pointDuration = System.nanoTime() - start;
+            DensityHistogram bilinear = new DensityHistogram(1920, 1080);
+            start = System.nanoTime();
+            for (int i = 0; i < coordinates.length; i += 2) {
+                bilinear.splat(coordinates[i], coordinates[i + 1], color, i & 0xFF, fractions.nextInt(256));
+            }
+            long splatDuration = System.nanoTime() - start;
+            System.out.println("1920x1080 accumulation: point " + pointDuration / hits + " ns/hit, bilinear "
+                + splatDuration / hits + " ns/hit");
+            assertEquals(hits, totalHits(point));
+            assertEquals((long) hits * HitSink.SPLAT_WEIGHT, totalHits(bilinear));
+        }
+
+        int reference = 16_000_000;
+        for (boolean splatting : new boolean[] {false, true}) {
+            BufferedImage expected = renderSplatting(splatting, reference).image();
+            for (int iterations : new int[] {500_000, 1_000_000, 2_000_000, 4_000_000}) {
+                long start = System.nanoTime();
+                Renderer renderer = renderSplatting(splatting, iterations);
+                long duration = System.nanoTime() - start;
+                double error = meanError(renderer.image(), expected);
+                System.out.println((splatting ? "bilinear" : "point") + ", " + iterations + " iterations: "
+                    + duration / iterations + " ns/hit, mean error against " + reference + " iterations " + error);
+                assertTrue(error < meanError(blank(expected), expected));
+            }
+        }
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareSupersampling() {
+        benchmarkDownsampling();
+        for (int factor = 1; factor <= 3; factor++) {
+            for (AccumulationMode mode : new AccumulationMode[] {AccumulationMode.PER_THREAD,
+                AccumulationMode.COMPACT}) {
+                InputConfig config = new InputConfig(
+                    new ImageSettings(1920, 1080, 1, HistogramLayout.ROW_MAJOR, 0, SymmetryType.ROTATIONAL, false,
+                        new Supersampling(factor, DownsampleFilter.GAUSSIAN)),
+                    new GenerationSettings(1, 5_000_000, 5, false, 1, mode, 42L),
+                    List.of("Spherical", "Swirl", "Sinusoidal"));
+                System.gc();
+                long start = System.nanoTime();
+                try (Renderer renderer = new Renderer(config)) {
+                    new SingleThreadedGenerator(config, createTransformations(), renderer).generate();
+                    long generated = System.nanoTime();
+                    System.gc();
+                    long heap = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+                    long toneStart = System.nanoTime();
+                    renderer.render(2.5);
+                    System.out.println(factor + "x " + mode + ": generation " + (generated - start) / 1_000_000
+                        + " ms, downsample and tone " + (System.nanoTime() - toneStart) / 1_000_000
+                        + " ms, heap after generation " + heap / (1 << 20) + " MiB");
+                    assertEquals(1920, renderer.image().getWidth());
+                    assertTrue(litPixels(renderer.image()) > 0, factor + "x " + mode);
+                }
+            }
+        }
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareBufferPool() {
+        InputConfig config = new InputConfig(
+            new ImageSettings(1920, 1080, 1, HistogramLayout.ROW_MAJOR, 0, SymmetryType.ROTATIONAL, false,
+                new Supersampling(2, DownsampleFilter.GAUSSIAN)),
+            new GenerationSettings(1, 200_000, 5, false, 1, AccumulationMode.PER_THREAD, 42L),
+            List.of("Spherical", "Swirl", "Sinusoidal"));
+        for (boolean pooled : new boolean[] {false, true, false, true}) {
+            BufferPool.shared().clear();
+            System.gc();
+            long collections = gcCount();
+            long gcTime = gcTime();
+            long start = System.nanoTime();
+            int lit = 0;
+            for (int render = 0; render < 30; render++) {
+                Renderer renderer = new Renderer(config);
+                new SingleThreadedGenerator(config, createTransformations(), renderer).generate();
+                renderer.render(2.5);
+                int rendered = litPixels(renderer.image());
+                assertTrue(render == 0 || rendered == lit, "render " + render);
+                lit = rendered;
+                if (pooled) {
+                    renderer.close();
+                }
+            }
+            assertTrue(lit > 0);
+            System.out.println((pooled ? "pooled" : "allocated") + ": 30 renders in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms, " + (gcCount() - collections) + " collections, "
+                + (gcTime() - gcTime) + " ms in GC");
+        }
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void comparePostProcessing() {
+        DensityHistogram histogram = new DensityHistogram(3840, 2160);
+        int[] coordinates = flameWalk(3839, 2159, 20_000_000);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            histogram.add(coordinates[i], coordinates[i + 1], new PixelColor(i & 0xFF, 100, 50));
+        }
+        ToneMapper toneMapper = new ToneMapper(2.2, Renderer.WHITE_POINT_PERCENTILE);
+        for (int pass = 0; pass < 3; pass++) {
+            long start = System.nanoTime();
+            float[] toned = toneMapper.map(histogram);
+            BufferedImage image = new BufferedImage(3840, 2160, BufferedImage.TYPE_INT_RGB);
+            IntStream.range(0, 2160).parallel().forEach(y -> {
+                for (int x = 0, offset = y * 3840 * 3; x < 3840; x++, offset += 3) {
+                    image.setRGB(x, y, (channel(toned[offset]) << 16) | (channel(toned[offset + 1]) << 8)
+                        | channel(toned[offset + 2]));
+                }
+            });
+            long separate = System.nanoTime() - start;
+            start = System.nanoTime();
+            int[] pixels = new int[3840 * 2160];
+            new PostProcessor(PostStages.standard(toneMapper, toneMapper.logWhitePoint(histogram), 1.0))
+                .process(histogram, pixels);
+            long fused = System.nanoTime() - start;
+            System.out.println("3840x2160 post-processing: tone map and setRGB " + separate / 1_000_000
+                + " ms, fused pipeline " + fused / 1_000_000 + " ms");
+            assertClosePixels(image.getRGB(0, 0, 3840, 2160, null, 0, 3840), pixels);
+        }
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareLookupToneMapping() {
+        DensityHistogram histogram = new DensityHistogram(7680, 4320);
+        int[] coordinates = flameWalk(7679, 4319, 30_000_000);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            histogram.add(coordinates[i], coordinates[i + 1], new PixelColor(i & 0xFF, 100, 50));
+        }
+        ToneMapper toneMapper = new ToneMapper(2.2, Renderer.WHITE_POINT_PERCENTILE);
+        double logWhitePoint = toneMapper.logWhitePoint(histogram);
+        int[] exactPixels = new int[7680 * 4320];
+        int[] lookupPixels = new int[7680 * 4320];
+        for (int pass = 0; pass < 3; pass++) {
+            for (double vibrancy : new double[] {1.0, 0.5}) {
+                long start = System.nanoTime();
+                new PostProcessor(PostStages.exact(toneMapper, logWhitePoint, vibrancy))
+                    .process(histogram, exactPixels);
+                long exact = System.nanoTime() - start;
+                start = System.nanoTime();
+                new PostProcessor(PostStages.standard(toneMapper, logWhitePoint, vibrancy))
+                    .process(histogram, lookupPixels);
+                long lookup = System.nanoTime() - start;
+                System.out.println("7680x4320 post-processing, vibrancy " + vibrancy + ": exact stages "
+                    + exact / 1_000_000 + " ms, lookup tables " + lookup / 1_000_000 + " ms");
+                assertClosePixels(exactPixels, lookupPixels);
+            }
+        }
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareRasterWrites() {
+        int width = 7680;
+        int height = 4320;
+        int bandRows = 16;
+        BandedImage banded = new BandedImage(width, height);
+        int[] colors = new int[width * height];
+        float[] logDensities = new float[width * height];
+        long maxHits = 0;
+        for (int top = 0; top < height; top += bandRows) {
+            DensityHistogram band = new DensityHistogram(width, bandRows);
+            for (int y = 0; y < bandRows; y++) {
+                for (int x = 0, pixel = (top + y) * width + x; x < width; x++, pixel++) {
+                    int hash = pixel * 0x9E3779B1;
+                    long hits = (hash >>> 26) % 7 == 0 ? 0 : 1 + (hash >>> 20) % 50;
+                    if (hits > 0) {
+                        int color = hash >>> 8;
+                        band.addPoints(band.indexOf(x, y), hits, (color >>> 16) * hits,
+                            ((color >>> 8) & 0xFF) * hits, (color & 0xFF) * hits);
+                        colors[pixel] = color;
+                        logDensities[pixel] = (float) Math.log1p(hits);
+                        maxHits = Math.max(maxHits, hits);
+                    }
+                }
+            }
+            banded.storeBand(band, top);
+        }
+        ToneMapper toneMapper = new ToneMapper(2.2, Renderer.WHITE_POINT_PERCENTILE);
+        for (int pass = 0; pass < 3; pass++) {
+            long start = System.nanoTime();
+            BufferedImage expected = setRgbToneMap(colors, logDensities, maxHits, width, toneMapper);
+            long setRgb = System.nanoTime() - start;
+            start = System.nanoTime();
+            BufferedImage actual = banded.toneMap(toneMapper);
+            long raster = System.nanoTime() - start;
+            System.out.println("7680x4320 banded tone mapping: setRGB " + setRgb / 1_000_000
+                + " ms, BandedImage#toneMap into DataBufferInt " + raster / 1_000_000 + " ms");
+            assertTrue(litPixels(expected) > 0);
+            assertTrue(litPixels(actual) > 0);
+        }
+    }
+
+    /**
+     * Прежнее тонирование {@link BandedImage}: та же точка белого и яркость, но каждый пиксель
+     * пишется через {@link BufferedImage#setRGB}.
+     */
+    private static BufferedImage setRgbToneMap(int[] colors, float[] logDensities, long maxHits, int width,
+        ToneMapper toneMapper) {
+        int height = colors.length / width;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        double logMax = Math.log1p(maxHits);
+        long[] buckets = new long[ToneMapper.PERCENTILE_BUCKETS];
+        for (float logDensity : logDensities) {
+            if (logDensity > 0) {
+                buckets[ToneMapper.densityBucket(logDensity, logMax)]++;
+            }
+        }
+        double logWhitePoint = toneMapper.logWhitePoint(maxHits, buckets, logMax);
+        IntStream.range(0, height).parallel().forEach(y -> {
+            for (int x = 0, pixel = y * width; x < width; x++, pixel++) {
+                if (logDensities[pixel] > 0) {
+                    float brightness = (float) toneMapper.brightness(logDensities[pixel], logWhitePoint);
+                    int color = colors[pixel];
+                    image.setRGB(x, y, (channel((color >>> 16) / 255f * brightness) << 16)
+                        | (channel(((color >>> 8) & 0xFF) / 255f * brightness) << 8)
+                        | channel((color & 0xFF) / 255f * brightness));
+                }
+            }
+        });
+        return image;
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareBloom() {
+        int width = 7680;
+        int height = 4320;
+        int[] colors = new int[width * height];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = i * 0x9E3779B1 >>> 8;
+        }
+        for (int pass = 0; pass < 3; pass++) {
+            for (int radius : new int[] {24, 128, 512}) {
+                int[] pixels = colors.clone();
+                long start = System.nanoTime();
+                BloomFilter.apply(pixels, width, height, new Bloom(radius));
+                System.out.println("7680x4320 bloom, radius " + radius + ": "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+                assertTrue(IntStream.range(0, pixels.length).allMatch(i -> brighterOrEqual(pixels[i], colors[i])));
+            }
+        }
+        // Прямая сепарабельная свёртка одного канала 1920x1080 с ядром радиуса 128 для сравнения
+        float[] channel = new float[1920 * 1080];
+        for (int i = 0; i < channel.length; i++) {
+            channel[i] = (colors[i] & 0xFF) / 255f;
+        }
+        long start = System.nanoTime();
+        float[] blurred = separableBlur(channel, 1920, 1080, 128);
+        System.out.println("1920x1080 spatial separable blur of one channel, radius 128: "
+            + (System.nanoTime() - start) / 1_000_000 + " ms, center " + blurred[channel.length / 2]);
+        assertTrue(blurred[channel.length / 2] > 0);
+    }
+
+    private static float[] separableBlur(float[] source, int width, int height, int radius) {
+        float[] kernel = new float[2 * radius + 1];
+        for (int d = -radius; d <= radius; d++) {
+            kernel[d + radius] = (float) Math.exp(-4.5 * d * d / (radius * radius));
+        }
+        float[] horizontal = new float[source.length];
+        IntStream.range(0, height).parallel().forEach(y -> {
+            for (int x = 0; x < width; x++) {
+                float sum = 0;
+                for (int d = Math.max(-radius, -x); d <= Math.min(radius, width - 1 - x); d++) {
+                    sum += kernel[d + radius] * source[y * width + x + d];
+                }
+                horizontal[y * width + x] = sum;
+            }
+        });
+        float[] result = new float[source.length];
+        IntStream.range(0, height).parallel().forEach(y -> {
+            for (int d = Math.max(-radius, -y); d <= Math.min(radius, height - 1 - y); d++) {
+                float weight = kernel[d + radius];
+                for (int x = 0; x < width; x++) {
+                    result[y * width + x] += weight * horizontal[(y + d) * width + x];
+                }
+            }
+        });
+        return result;
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareMipmaps() throws IOException {
+        int width = 3840;
+        int height = 2160;
+        DensityHistogram histogram = new DensityHistogram(width, height);
+        int[] coordinates = flameWalk(width - 1, height - 1, 20_000_000);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            histogram.add(coordinates[i], coordinates[i + 1], new PixelColor(i & 0xFF, 100, 50));
+        }
+        ToneMapper toneMapper = new ToneMapper(2.2, Renderer.WHITE_POINT_PERCENTILE);
+        ToneSettings settings = new ToneSettings(2.2, 1.0);
+        double logWhitePoint = toneMapper.logWhitePoint(histogram);
+        int[] pixels = new int[width * height];
+        for (int pass = 0; pass < 3; pass++) {
+            long start = System.nanoTime();
+            new PostProcessor(PostStages.standard(toneMapper, logWhitePoint, settings)).process(histogram, pixels);
+            Downsampler.downsample(histogram, 2, DownsampleFilter.BOX).release();
+            Downsampler.downsample(histogram, 4, DownsampleFilter.BOX).release();
+            long separate = System.nanoTime() - start;
+            start = System.nanoTime();
+            MipmapChain chain = new MipmapChain(width, height);
+            PostStage[] standard = PostStages.standard(toneMapper, logWhitePoint, settings);
+            PostStage[] stages = new PostStage[standard.length + 1];
+            stages[0] = chain.stage();
+            System.arraycopy(standard, 0, stages, 1, standard.length);
+            new PostProcessor(stages).process(histogram, pixels);
+            List<DensityHistogram> chainLevels = chain.levels();
+            assertEquals(MipmapChain.LEVEL_SUFFIXES.size(), chainLevels.size());
+            long hits = totalHits(histogram);
+            assertTrue(chainLevels.stream().allMatch(level -> totalHits(level) == hits));
+            chainLevels.forEach(DensityHistogram::release);
+            long fused = System.nanoTime() - start;
+            System.out.println("3840x2160 full pass and 1/2, 1/4 histograms: separate passes " + separate / 1_000_000
+                + " ms, one fused pass " + fused / 1_000_000 + " ms");
+        }
+        List<BufferedImage> levels = new ArrayList<>();
+        for (int factor = 1; factor <= 8; factor *= 2) {
+            BufferedImage level = new BufferedImage(width / factor, height / factor, BufferedImage.TYPE_INT_RGB);
+            level.getRaster().setDataElements(0, 0, width / factor, height / factor,
+                Arrays.copyOf(pixels, width / factor * (height / factor)));
+            levels.add(level);
+        }
+        for (int pass = 0; pass < 3; pass++) {
+            long start = System.nanoTime();
+            for (BufferedImage level : levels) {
+                assertTrue(ImageIO.write(level, "png", new ByteArrayOutputStream()));
+            }
+            long sequential = System.nanoTime() - start;
+            start = System.nanoTime();
+            levels.parallelStream().forEach(level -> {
+                try {
+                    ImageIO.write(level, "png", new ByteArrayOutputStream());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            long parallel = System.nanoTime() - start;
+            System.out.println("PNG encoding of 4 levels on " + Runtime.getRuntime().availableProcessors()
+                + " cores: sequential " + sequential / 1_000_000 + " ms, parallel " + parallel / 1_000_000 + " ms");
+        }
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareVectorPostProcessing() {
+        DensityHistogram histogram = new DensityHistogram(4096, 4096);
+        int[] coordinates = flameWalk(4095, 4095, 20_000_000);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            histogram.add(coordinates[i], coordinates[i + 1], new PixelColor(i & 0xFF, 100, 50));
+        }
+        ToneMapper toneMapper = new ToneMapper(2.2, Renderer.WHITE_POINT_PERCENTILE);
+        ToneSettings settings = new ToneSettings(2.2, 1.0);
+        double logWhitePoint = toneMapper.logWhitePoint(histogram);
+        int[] scalarPixels = new int[4096 * 4096];
+        int[] vectorPixels = new int[4096 * 4096];
+        for (int pass = 0; pass < 5; pass++) {
+            long start = System.nanoTime();
+            new PostProcessor(PostStages.scalar(toneMapper, logWhitePoint, settings))
+                .process(histogram, scalarPixels);
+            long scalar = System.nanoTime() - start;
+            start = System.nanoTime();
+            new PostProcessor(PostStages.standard(toneMapper, logWhitePoint, settings))
+                .process(histogram, vectorPixels);
+            long vector = System.nanoTime() - start;
+            assertClosePixels(scalarPixels, vectorPixels);
+            System.out.println("4096x4096 post-processing on " + Runtime.getRuntime().availableProcessors()
+                + " cores: scalar " + scalar / 1_000_000 + " ms, Vector API " + vector / 1_000_000 + " ms"
+                + (PostStages.vectorized() ? "" : " (module unavailable, scalar)"));
+        }
+    }
+
+    @Test
+    @Tag(BENCHMARK)
+    void compareDensityEstimation() {
+        BufferedImage expected = renderEstimated(16_000_000, DensityEstimation.NONE).image();
+        double blankError = meanError(blank(expected), expected);
+        for (int iterations : new int[] {500_000, 1_000_000, 2_000_000, 4_000_000}) {
+            for (DensityEstimation estimation : new DensityEstimation[] {DensityEstimation.NONE,
+                new DensityEstimation(9)}) {
+                Renderer renderer = renderEstimated(iterations, estimation);
+                double error = meanError(renderer.image(), expected);
+                System.out.println(iterations + " iterations, estimator radius " + estimation.maxRadius()
+                    + ": mean error against 16000000 iterations " + error);
+                assertTrue(error < blankError);
+            }
+        }
+        for (int iterations : new int[] {4_000_000, 20_000_000}) {
+            benchmarkDensityEstimation(iterations);
+        }
+    }
+
+    private void benchmarkDensityEstimation(int iterations) {
+        InputConfig config = estimationConfig(1920, 1080, iterations);
+        Renderer renderer = new Renderer(config);
+        long start = System.nanoTime();
+        new SingleThreadedGenerator(config, createTransformations(), renderer).generate();
+        long generation = System.nanoTime() - start;
+        for (int pass = 0; pass < 3; pass++) {
+            start = System.nanoTime();
+            renderer.render(new ToneSettings(2.5, 1.0), DensityEstimation.NONE, SymmetryGroup.rotational(1));
+            long plain = System.nanoTime() - start;
+            start = System.nanoTime();
+            renderer.render(new ToneSettings(2.5, 1.0), new DensityEstimation(9), SymmetryGroup.rotational(1));
+            long estimated = System.nanoTime() - start;
+            System.out.println("1920x1080, " + iterations + " iterations: generation " + generation / 1_000_000
+                + " ms, render " + plain / 1_000_000 + " ms, render with density estimation "
+                + estimated / 1_000_000 + " ms");
+            assertTrue(litPixels(renderer.image()) > 0);
+        }
+    }
+
+    private static int channel(float value) {
+        return (int) Math.min(255, value * 255 + 0.5f);
+    }
+
+    private static long totalHits(Histogram histogram) {
+        long[] row = new long[histogram.width() * Histogram.CHANNELS];
+        long hits = 0;
+        for (int y = 0; y < histogram.height(); y++) {
+            histogram.readRow(y, row);
+            for (int base = Histogram.HITS; base < row.length; base += Histogram.CHANNELS) {
+                hits += row[base];
+            }
+        }
+        return hits;
+    }
+
+    private static int litPixels(BufferedImage image) {
+        int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        return (int) Arrays.stream(pixels).filter(pixel -> (pixel & 0xFFFFFF) != 0).count();
+    }
+
+    private static BufferedImage blank(BufferedImage image) {
+        return new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static boolean brighterOrEqual(int actual, int original) {
+        for (int shift = 0; shift < 24; shift += 8) {
+            if (((actual >> shift) & 0xFF) < ((original >> shift) & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void assertClosePixels(int[] expected, int[] actual) {
+        for (int pixel = 0; pixel < expected.length; pixel++) {
+            for (int shift = 0; shift < 24; shift += 8) {
+                int difference = Math.abs(((expected[pixel] >> shift) & 0xFF) - ((actual[pixel] >> shift) & 0xFF));
+                if (difference > 1) {
+                    assertEquals(expected[pixel] & 0xFFFFFF, actual[pixel] & 0xFFFFFF, "pixel " + pixel);
+                }
+            }
+        }
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    private void benchmarkDownsampling() {
+        DensityHistogram grid = new DensityHistogram(1920 * 3, 1080 * 3);
+        int[] coordinates = flameWalk(1920 * 3 - 1, 1080 * 3 - 1, 5_000_000);
+        PixelColor color = new PixelColor(200, 100, 50);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            grid.add(coordinates[i], coordinates[i + 1], color);
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (DownsampleFilter filter : DownsampleFilter.values()) {
+                long start = System.nanoTime();
+                DensityHistogram downsampled = Downsampler.downsample(grid, 3, filter);
+                System.out.println("5760x3240 -> 1920x1080 " + filter + ": "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+                assertEquals(1920, downsampled.width());
+                assertTrue(totalHits(downsampled) > 0, filter.name());
+            }
+        }
+    }
+
+    private Renderer renderSplatting(boolean splatting, int iterations) {
+        InputConfig config = new InputConfig(
+            new ImageSettings(480, 270, 1, HistogramLayout.ROW_MAJOR, 0, SymmetryType.ROTATIONAL, splatting),
+            new GenerationSettings(1, iterations, 5, false, 1, AccumulationMode.PER_THREAD, 42L),
+            List.of("Spherical", "Swirl", "Sinusoidal"));
+        Renderer renderer = new Renderer(config);
+        new SingleThreadedGenerator(config, createTransformations(), renderer).generate();
+        renderer.render(2.5);
+        return renderer;
+    }
+
+    private Renderer renderEstimated(int iterations, DensityEstimation estimation) {
+        InputConfig config = estimationConfig(480, 270, iterations);
+        Renderer renderer = new Renderer(config);
+        new SingleThreadedGenerator(config, createTransformations(), renderer).generate();
+        renderer.render(new ToneSettings(2.5, 1.0), estimation, SymmetryGroup.rotational(1));
+        return renderer;
+    }
+
+    private static InputConfig estimationConfig(int width, int height, int iterations) {
+        return new InputConfig(
+            new ImageSettings(width, height, 1, HistogramLayout.ROW_MAJOR, 0, SymmetryType.ROTATIONAL, false),
+            new GenerationSettings(1, iterations, 5, false, 1, AccumulationMode.PER_THREAD, 42L),
+            List.of("Spherical", "Swirl", "Sinusoidal"));
+    }
+
+    private double meanError(BufferedImage actual, BufferedImage expected) {
+        long error = 0;
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                int a = actual.getRGB(x, y);
+                int e = expected.getRGB(x, y);
+                for (int shift = 0; shift < 24; shift += 8) {
+                    error += Math.abs(((a >> shift) & 0xFF) - ((e >> shift) & 0xFF));
+                }
+            }
+        }
+        return (double) error / (3L * actual.getWidth() * actual.getHeight());
+    }
 }
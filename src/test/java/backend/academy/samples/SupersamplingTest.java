@@ -0,0 +1,77 @@
+package backend.academy.samples;
+
+import backend.academy.config.AccumulationMode;
+import backend.academy.config.DownsampleFilter;
+import backend.academy.config.HistogramLayout;
+import backend.academy.config.Supersampling;
+import backend.academy.config.SymmetryType;
+import backend.academy.domain.PixelColor;
+import backend.academy.domain.Point;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.render.Downsampler;
+import backend.academy.render.Renderer;
+import backend.academy.render.SymmetryGroup;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SupersamplingTest {
+
+    private static final int SIZE = 24;
+
+    private static BufferedImage render(Supersampling supersampling) {
+        Renderer renderer = new Renderer(SIZE, SIZE, SymmetryGroup.of(SymmetryType.DIHEDRAL, 4),
+            AccumulationMode.PER_THREAD, HistogramLayout.ROW_MAJOR, false, supersampling);
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            renderer.renderPoint(new Point(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1),
+                new PixelColor(random.nextInt(256), 120, 40));
+        }
+        renderer.render(2.2);
+        return renderer.image();
+    }
+
+    @Test
+    void testBoxFilterMatchesAccumulationAtOutputResolution() {
+        BufferedImage expected = render(Supersampling.NONE);
+        BufferedImage actual = render(new Supersampling(3, DownsampleFilter.BOX));
+
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    void testSmoothFiltersPreserveInteriorDensity() {
+        DensityHistogram grid = new DensityHistogram(SIZE * 2, SIZE * 2);
+        for (int y = 0; y < grid.height(); y++) {
+            for (int x = 0; x < grid.width(); x++) {
+                grid.add(x, y, new PixelColor(10, 20, 30));
+            }
+        }
+        for (DownsampleFilter filter : DownsampleFilter.values()) {
+            DensityHistogram output = Downsampler.downsample(grid, 2, filter);
+            int center = output.indexOf(SIZE / 2, SIZE / 2);
+
+            assertEquals(4 * Downsampler.FILTER_WEIGHT, output.value(center, Histogram.HITS), filter.name());
+            assertEquals(4 * 20 * Downsampler.FILTER_WEIGHT, output.value(center, Histogram.GREEN), filter.name());
+            assertTrue(output.value(0, Histogram.HITS) <= 4 * Downsampler.FILTER_WEIGHT, filter.name());
+        }
+    }
+
+    @Test
+    void testOutOfCoreRejectsSupersampling() {
+        Supersampling supersampling = new Supersampling(2, DownsampleFilter.BOX);
+
+        assertThrows(IllegalArgumentException.class, () -> new Renderer(SIZE, SIZE, SymmetryGroup.rotational(1),
+            AccumulationMode.OUT_OF_CORE, HistogramLayout.ROW_MAJOR, false, supersampling));
+        assertThrows(IllegalArgumentException.class, () -> new Supersampling(0, DownsampleFilter.BOX));
+    }
+}
@@ -0,0 +1,159 @@
+package backend.academy.samples;
+
+import backend.academy.accumulate.Accumulators;
+import backend.academy.config.AccumulationMode;
+import backend.academy.config.HistogramLayout;
+import backend.academy.config.SymmetryType;
+import backend.academy.domain.PixelColor;
+import backend.academy.domain.Point;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.Histogram;
+import backend.academy.render.Renderer;
+import backend.academy.render.SymmetryGroup;
+import backend.academy.render.SymmetryResampler;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SymmetryTest {
+
+    private static final int SIZE = 16;
+    private static final Point[] POINTS = {new Point(0.3, 0.1), new Point(-0.55, 0.7), new Point(0.05, -0.9)};
+
+    private static BufferedImage render(Renderer renderer, int axes) {
+        for (Point point : POINTS) {
+            renderer.renderPoint(point, new PixelColor(200, 100, 50));
+        }
+        renderer.render(2.0, axes);
+        return renderer.image();
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + ", " + y);
+            }
+        }
+    }
+
+    private static long totalHits(Histogram histogram) {
+        long[] row = new long[histogram.width() * Histogram.CHANNELS];
+        long total = 0;
+        for (int y = 0; y < histogram.height(); y++) {
+            histogram.readRow(y, row);
+            for (int i = Histogram.HITS; i < row.length; i += Histogram.CHANNELS) {
+                total += row[i];
+            }
+        }
+        return total;
+    }
+
+    private static int litPixels(BufferedImage image) {
+        int lit = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                lit += (image.getRGB(x, y) & 0xFFFFFF) != 0 ? 1 : 0;
+            }
+        }
+        return lit;
+    }
+
+    @Test
+    void testDeferredSymmetryMatchesPerHitCopies() {
+        Renderer perHit = new Renderer(SIZE, SIZE, 4,
+            Accumulators.create(AccumulationMode.PER_THREAD, SIZE, SIZE));
+        Renderer deferred = new Renderer(SIZE, SIZE, 4, AccumulationMode.PER_THREAD, HistogramLayout.ROW_MAJOR);
+
+        assertSameImage(render(perHit, 4), render(deferred, 4));
+    }
+
+    @Test
+    void testDeferredDihedralSymmetryMatchesPerHitCopies() {
+        SymmetryGroup dihedral = SymmetryGroup.of(SymmetryType.DIHEDRAL, 4);
+        Renderer perHit = new Renderer(SIZE - 1, SIZE - 1, dihedral,
+            Accumulators.create(AccumulationMode.PER_THREAD, SIZE - 1, SIZE - 1));
+        Renderer deferred = new Renderer(SIZE - 1, SIZE - 1, dihedral, AccumulationMode.PER_THREAD,
+            HistogramLayout.ROW_MAJOR);
+
+        assertSameImage(render(perHit, 4), render(deferred, 4));
+    }
+
+    @Test
+    void testMirrorSkipsDuplicateImagesOnAxis() {
+        int oddSize = SIZE - 1;
+        Renderer renderer = new Renderer(oddSize, oddSize, SymmetryGroup.of(SymmetryType.MIRROR, 1),
+            Accumulators.create(AccumulationMode.PER_THREAD, oddSize, oddSize));
+        renderer.renderPoint(new Point(0.01, 0.3), new PixelColor(1, 1, 1));
+        assertEquals(1, totalHits(renderer.accumulator().result()));
+
+        renderer = new Renderer(oddSize, oddSize, SymmetryGroup.of(SymmetryType.MIRROR, 1),
+            Accumulators.create(AccumulationMode.PER_THREAD, oddSize, oddSize));
+        renderer.renderPoint(new Point(0.4, 0.3), new PixelColor(1, 1, 1));
+        assertEquals(2, totalHits(renderer.accumulator().result()));
+    }
+
+    @Test
+    void testAxesCountChangesWithoutRegeneration() {
+        Renderer deferred = new Renderer(SIZE, SIZE, 3, AccumulationMode.ATOMIC, HistogramLayout.ROW_MAJOR);
+        assertEquals(POINTS.length, litPixels(render(deferred, 1)));
+        deferred.render(2.0, 3);
+        assertEquals(3 * POINTS.length, litPixels(deferred.image()));
+
+        Renderer perHit = new Renderer(SIZE, SIZE, 3, Accumulators.create(AccumulationMode.ATOMIC, SIZE, SIZE));
+        assertThrows(IllegalStateException.class, () -> render(perHit, 2));
+    }
+
+    @Test
+    void testDiagonalRotationsKeepMassWithoutMoire() {
+        int size = 64;
+        SymmetryGroup octagonal = SymmetryGroup.rotational(8);
+        int sourceSize = SymmetryResampler.sourceSize(size, octagonal);
+        int offset = (sourceSize - size) / 2;
+        DensityHistogram source = new DensityHistogram(sourceSize, sourceSize);
+        long hits = 0;
+        for (int y = 0; y < sourceSize; y++) {
+            for (int x = 0; x < sourceSize; x++) {
+                if (Math.hypot(x + 0.5 - offset - size / 2.0, y + 0.5 - offset - size / 2.0) < size / 4.0) {
+                    source.addPoints(source.indexOf(x, y), 1000, 255_000, 0, 0);
+                    hits += 1000;
+                }
+            }
+        }
+
+        DensityHistogram canvas = SymmetryResampler.resample(source, size, size, octagonal);
+
+        assertEquals(8 * hits, totalHits(canvas));
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (Math.hypot(x + 0.5 - size / 2.0, y + 0.5 - size / 2.0) < size / 4.0 - 2) {
+                    int index = canvas.indexOf(x, y);
+                    assertEquals(8000, canvas.value(index, Histogram.HITS), 8000 * 0.15, "pixel " + x + ", " + y);
+                    assertEquals(255 * canvas.value(index, Histogram.HITS), canvas.value(index, Histogram.RED), 8);
+                }
+            }
+        }
+        canvas.release();
+    }
+
+    @Test
+    void testCompactAndSparseModesWriteCopiesPerHit() {
+        for (AccumulationMode mode : new AccumulationMode[] {AccumulationMode.SPARSE, AccumulationMode.COMPACT}) {
+            Renderer renderer = new Renderer(SIZE, SIZE, 3, mode, HistogramLayout.ROW_MAJOR);
+            assertEquals(3 * POINTS.length, litPixels(render(renderer, 3)));
+            assertEquals(SIZE, renderer.accumulator().result().width());
+            assertThrows(IllegalStateException.class, () -> renderer.render(2.0, 1));
+        }
+    }
+
+    @Test
+    void testOffHeapModeWritesCopiesPerHit() {
+        try (Renderer renderer = new Renderer(SIZE, SIZE, 3, AccumulationMode.OFF_HEAP, HistogramLayout.ROW_MAJOR)) {
+            assertEquals(3 * POINTS.length, litPixels(render(renderer, 3)));
+            assertEquals(SIZE, renderer.accumulator().result().width());
+            assertEquals(SIZE, renderer.accumulator().result().height());
+            assertThrows(IllegalStateException.class, () -> renderer.render(2.0, 1));
+        }
+    }
+}
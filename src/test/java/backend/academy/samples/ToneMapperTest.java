@@ -0,0 +1,289 @@
+package backend.academy.samples;
+
+import backend.academy.domain.PixelColor;
+import backend.academy.models.DensityHistogram;
+import backend.academy.models.FractalImage;
+import backend.academy.models.Histogram;
+import backend.academy.models.SparseHistogram;
+import backend.academy.render.MipmapChain;
+import backend.academy.render.PostProcessor;
+import backend.academy.render.PostStage;
+import backend.academy.render.PostStages;
+import backend.academy.render.ToneMapper;
+import backend.academy.render.ToneSettings;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ToneMapperTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    void testDensePixelIsBrighterThanSparse() {
+        FractalImage image = new FractalImage(2, 1);
+        PixelColor white = new PixelColor(255, 255, 255);
+        for (int i = 0; i < 100; i++) {
+            image.add(0, 0, white);
+        }
+        image.add(1, 0, white);
+
+        float[] rgb = new ToneMapper(1.0, 1.0).map(image);
+
+        assertEquals(1.0, rgb[0], DELTA);
+        assertTrue(rgb[ToneMapper.RGB] > 0);
+        assertTrue(rgb[ToneMapper.RGB] < rgb[0]);
+    }
+
+    @Test
+    void testAverageColorIsPreserved() {
+        FractalImage image = new FractalImage(1, 1);
+        image.add(0, 0, new PixelColor(255, 0, 0));
+        image.add(0, 0, new PixelColor(0, 0, 255));
+
+        float[] rgb = new ToneMapper(1.0, 1.0).map(image);
+
+        assertEquals(0.5, rgb[0], 0.01);
+        assertEquals(0.0, rgb[1], DELTA);
+        assertEquals(0.5, rgb[2], 0.01);
+    }
+
+    @Test
+    void testPercentileWhitePointClipsHotPixels() {
+        FractalImage image = new FractalImage(10, 1);
+        PixelColor white = new PixelColor(255, 255, 255);
+        for (int x = 0; x < 10; x++) {
+            image.add(x, 0, white);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            image.add(0, 0, white);
+        }
+
+        float[] byMax = new ToneMapper(1.0, 1.0).map(image);
+        float[] byPercentile = new ToneMapper(1.0, 0.9).map(image);
+
+        assertTrue(byPercentile[ToneMapper.RGB] > byMax[ToneMapper.RGB]);
+        assertEquals(1.0, byPercentile[0], DELTA);
+    }
+
+    @Test
+    void testSparseHistogramMapsLikeDense() {
+        FractalImage dense = new FractalImage(50, 20);
+        SparseHistogram sparse = new SparseHistogram(50, 20);
+        for (int i = 0; i < 2_000; i++) {
+            PixelColor color = new PixelColor(i % 256, 255 - i % 256, 7);
+            dense.add(i * 7 % 50, i % 13, color);
+            sparse.add(i * 7 % 50, i % 13, color);
+        }
+
+        ToneMapper toneMapper = new ToneMapper(2.0, 0.9);
+        assertArrayEquals(toneMapper.map(dense), toneMapper.map(sparse));
+    }
+
+    @Test
+    void testSparsePipelineWritesOnlyLitPixels() {
+        int width = 66;
+        int height = 48;
+        FractalImage dense = new FractalImage(width, height);
+        SparseHistogram sparse = new SparseHistogram(width, height);
+        for (int i = 0; i < 3_000; i++) {
+            PixelColor color = new PixelColor(i % 256, 255 - i % 256, 40);
+            // Освещена только верхняя треть холста, и в ней только каждый третий столбец
+            dense.add(i * 3 % width, i % (height / 3), color);
+            sparse.add(i * 3 % width, i % (height / 3), color);
+        }
+        ToneMapper toneMapper = new ToneMapper(2.2, 0.95);
+        ToneSettings settings = new ToneSettings(2.2, 1.2, 0.7, true);
+        int[] expected = new int[width * height];
+        new PostProcessor(PostStages.standard(toneMapper, toneMapper.logWhitePoint(dense), settings))
+            .process(dense, expected);
+        MipmapChain denseLevels = new MipmapChain(width, height);
+        new PostProcessor(denseLevels.stage()).process(dense, new int[width * height]);
+
+        int background = 0x123456;
+        int[] actual = new int[width * height];
+        Arrays.fill(actual, background);
+        MipmapChain sparseLevels = new MipmapChain(width, height);
+        PostStage[] stages = PostStages.standard(toneMapper, toneMapper.logWhitePoint(sparse), settings);
+        PostStage[] withLevels = new PostStage[stages.length + 1];
+        withLevels[0] = sparseLevels.stage();
+        System.arraycopy(stages, 0, withLevels, 1, stages.length);
+        new PostProcessor(withLevels).process(sparse, actual);
+
+        long[] expectedRow = new long[width * Histogram.CHANNELS];
+        long[] actualRow = new long[width * Histogram.CHANNELS];
+        for (int y = 0; y < height; y++) {
+            dense.readRow(y, expectedRow);
+            for (int x = 0; x < width; x++) {
+                int pixel = y * width + x;
+                boolean lit = expectedRow[x * Histogram.CHANNELS + Histogram.HITS] > 0;
+                assertEquals(lit ? expected[pixel] : background, actual[pixel], "pixel " + x + ", " + y);
+            }
+        }
+        for (int level = 0; level < denseLevels.factors().size(); level++) {
+            DensityHistogram expectedLevel = denseLevels.levels().get(level);
+            DensityHistogram actualLevel = sparseLevels.levels().get(level);
+            for (int y = 0; y < expectedLevel.height(); y++) {
+                expectedLevel.readRow(y, expectedRow);
+                actualLevel.readRow(y, actualRow);
+                assertArrayEquals(expectedRow, actualRow, "level " + level + ", row " + y);
+            }
+        }
+    }
+
+    @Test
+    void testOversizedSparseCanvasIsRejected() {
+        SparseHistogram sparse = new SparseHistogram(40_000, 40_000);
+        sparse.add(39_999, 39_999, new PixelColor(255, 255, 255));
+
+        assertThrows(ArithmeticException.class, () -> new ToneMapper(2.2, 1.0).map(sparse));
+    }
+
+    @Test
+    void testFusedPipelineMatchesToneMapper() {
+        FractalImage image = new FractalImage(40, 30);
+        for (int i = 0; i < 5_000; i++) {
+            image.add(i * 11 % 40, i * i % 30, new PixelColor(i % 256, 255 - i % 256, 90));
+        }
+        ToneMapper toneMapper = new ToneMapper(2.2, 0.95);
+        float[] expected = toneMapper.map(image);
+        int[] pixels = new int[40 * 30];
+
+        new PostProcessor(PostStages.standard(toneMapper, toneMapper.logWhitePoint(image), 1.0))
+            .process(image, pixels);
+
+        for (int pixel = 0; pixel < pixels.length; pixel++) {
+            for (int channel = 0; channel < ToneMapper.RGB; channel++) {
+                int actual = pixels[pixel] >> (16 - 8 * channel) & 0xFF;
+                assertEquals(expected[pixel * ToneMapper.RGB + channel] * 255, actual, 1.0, "pixel " + pixel);
+            }
+        }
+    }
+
+    @Test
+    void testLowVibrancyAppliesGammaPerChannel() {
+        FractalImage image = new FractalImage(2, 1);
+        for (int i = 0; i < 100; i++) {
+            image.add(0, 0, new PixelColor(255, 64, 0));
+        }
+        image.add(1, 0, new PixelColor(255, 64, 0));
+        ToneMapper toneMapper = new ToneMapper(2.0, 1.0);
+        int[] vivid = new int[2];
+        int[] washed = new int[2];
+
+        new PostProcessor(PostStages.standard(toneMapper, toneMapper.logWhitePoint(image), 1.0)).process(image, vivid);
+        new PostProcessor(PostStages.standard(toneMapper, toneMapper.logWhitePoint(image), 0.0)).process(image, washed);
+
+        assertEquals(0xFF4000, vivid[0]);
+        assertEquals(0xFF8000, washed[0]);
+        assertTrue((washed[1] >> 8 & 0xFF) > (vivid[1] >> 8 & 0xFF));
+    }
+
+    @Test
+    void testLookupToneMappingMatchesExactStages() {
+        DensityHistogram image = new DensityHistogram(64, 48);
+        for (int i = 0; i < 40_000; i++) {
+            image.add(i * 13 % 64, i * i % 48, new PixelColor(i % 256, 255 - i % 256, i * 7 % 256), 1 + i % 5000);
+        }
+        for (double vibrancy : new double[] {1.0, 0.5, 0.0}) {
+            ToneMapper toneMapper = new ToneMapper(2.2, 0.95, 5000);
+            double logWhitePoint = toneMapper.logWhitePoint(image);
+            int[] exact = new int[64 * 48];
+            int[] lookup = new int[64 * 48];
+
+            new PostProcessor(PostStages.exact(toneMapper, logWhitePoint, vibrancy)).process(image, exact);
+            new PostProcessor(PostStages.standard(toneMapper, logWhitePoint, vibrancy)).process(image, lookup);
+
+            for (int pixel = 0; pixel < exact.length; pixel++) {
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    assertEquals(exact[pixel] >> shift & 0xFF, lookup[pixel] >> shift & 0xFF, 1.0, "pixel " + pixel);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testBrightnessAndSrgbEncoding() {
+        FractalImage image = new FractalImage(2, 1);
+        for (int i = 0; i < 100; i++) {
+            image.add(0, 0, new PixelColor(255, 255, 255));
+        }
+        image.add(1, 0, new PixelColor(255, 255, 255));
+        ToneMapper toneMapper = new ToneMapper(1.0, 1.0);
+        double logWhitePoint = toneMapper.logWhitePoint(image);
+        int[] linear = new int[2];
+        int[] bright = new int[2];
+        int[] srgb = new int[2];
+
+        new PostProcessor(PostStages.standard(toneMapper, logWhitePoint, new ToneSettings(1.0, 1.0, 1.0, false)))
+            .process(image, linear);
+        new PostProcessor(PostStages.standard(toneMapper, logWhitePoint, new ToneSettings(1.0, 4.0, 1.0, false)))
+            .process(image, bright);
+        new PostProcessor(PostStages.standard(toneMapper, logWhitePoint, new ToneSettings(1.0, 1.0, 1.0, true)))
+            .process(image, srgb);
+
+        // log1p(1) / log1p(100) = 0.150: 38 в линейном выводе, 108 после кривой sRGB
+        assertEquals(38, linear[1] & 0xFF);
+        assertEquals(108, srgb[1] & 0xFF, 1.0);
+        assertEquals(0xFFFFFF, srgb[0]);
+        assertTrue((bright[1] & 0xFF) > (linear[1] & 0xFF));
+    }
+
+    @Test
+    void testVectorStagesMatchScalar() {
+        assumeTrue(PostStages.vectorized());
+        DensityHistogram image = new DensityHistogram(67, 9);
+        for (int i = 0; i < 3_000; i++) {
+            image.add(i * 13 % 67, i * i % 9, new PixelColor(i % 256, 255 - i % 256, i * 7 % 256), 1 + i % 300);
+        }
+        ToneMapper toneMapper = new ToneMapper(2.2, 0.95, 300);
+        ToneSettings settings = new ToneSettings(2.2, 1.0);
+        double logWhitePoint = toneMapper.logWhitePoint(image);
+        int[] scalar = new int[67 * 9];
+        int[] vector = new int[67 * 9];
+
+        new PostProcessor(PostStages.scalar(toneMapper, logWhitePoint, settings)).process(image, scalar);
+        new PostProcessor(PostStages.standard(toneMapper, logWhitePoint, settings)).process(image, vector);
+
+        for (int pixel = 0; pixel < scalar.length; pixel++) {
+            for (int shift = 0; shift <= 16; shift += 8) {
+                assertEquals(scalar[pixel] >> shift & 0xFF, vector[pixel] >> shift & 0xFF, 1.0, "pixel " + pixel);
+            }
+        }
+    }
+
+    @Test
+    void testStandardPipelineFallsBackToScalarWithoutVectorModule() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            assertFalse(PostStages.vectorized());
+        }
+        assumeFalse(PostStages.vectorized());
+        DensityHistogram image = new DensityHistogram(67, 9);
+        for (int i = 0; i < 3_000; i++) {
+            image.add(i * 13 % 67, i * i % 9, new PixelColor(i % 256, 255 - i % 256, i * 7 % 256));
+        }
+        ToneMapper toneMapper = new ToneMapper(2.2, 0.95);
+        ToneSettings settings = new ToneSettings(2.2, 1.0);
+        double logWhitePoint = toneMapper.logWhitePoint(image);
+        PostStage[] standard = PostStages.standard(toneMapper, logWhitePoint, settings);
+        PostStage[] scalar = PostStages.scalar(toneMapper, logWhitePoint, settings);
+        int[] expected = new int[67 * 9];
+        int[] actual = new int[67 * 9];
+
+        new PostProcessor(scalar).process(image, expected);
+        new PostProcessor(standard).process(image, actual);
+
+        assertEquals(scalar.length, standard.length);
+        for (int stage = 0; stage < scalar.length; stage++) {
+            assertEquals(scalar[stage].getClass(), standard[stage].getClass(), "stage " + stage);
+        }
+        assertArrayEquals(expected, actual);
+    }
+}